@@ -18,7 +18,9 @@ package com.hivemq.cli;
 import com.hivemq.cli.ioc.DaggerMqttCLI;
 import com.hivemq.cli.ioc.MqttCLI;
 import com.hivemq.cli.mqtt.ClientData;
+import com.hivemq.cli.mqtt.FormatterPool;
 import com.hivemq.cli.mqtt.MqttClientExecutor;
+import com.hivemq.cli.utils.LineWriter;
 import com.hivemq.client.mqtt.MqttClient;
 import com.hivemq.client.mqtt.mqtt3.Mqtt3Client;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
@@ -90,6 +92,9 @@ public class MqttCLIMain {
 
             CompletableFuture.allOf(disconnectFutures.toArray(new CompletableFuture<?>[0]))
                     .join();
+
+            FormatterPool.closeAll();
+            LineWriter.closeAll();
         }
     }
 
@@ -22,6 +22,7 @@ import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.nio.ByteBuffer;
 
 public interface Connect extends Context, Will, ConnectRestrictions {
@@ -50,4 +51,8 @@ public interface Connect extends Context, Will, ConnectRestrictions {
 
     @Nullable MqttWebSocketConfig getWebSocketConfig();
 
+    default @Nullable File getOutboxFile() {
+        return null;
+    }
+
 }
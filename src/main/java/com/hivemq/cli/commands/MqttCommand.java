@@ -49,6 +49,8 @@ public abstract class MqttCommand extends AbstractCommand implements Context {
     @CommandLine.Option(names = {"-ip", "--identifierPrefix"}, description = "The prefix of the client Identifier UTF-8 String", order = 2)
     private String identifierPrefix;
 
+    private String connectionIdentifierBase;
+
     public void setDefaultOptions() {
         final DefaultCLIProperties defaultCLIProperties = MqttCLIMain.MQTTCLI.defaultCLIProperties();
         if (version == null) {
@@ -83,6 +85,14 @@ public abstract class MqttCommand extends AbstractCommand implements Context {
             }
         }
 
+        // several connections of one command share a random identifier part derived from the identifier prefix
+        if (identifier.isEmpty()) {
+            connectionIdentifierBase = identifierPrefix + MqttUtils.buildRandomClientID(defaultCLIProperties.getClientLength());
+        }
+        else {
+            connectionIdentifierBase = identifier;
+        }
+
         logIdentifierWarnings();
 
     }
@@ -155,4 +165,12 @@ public abstract class MqttCommand extends AbstractCommand implements Context {
         return identifier;
     }
 
+    /**
+     * @return the identifier of the connection with the given index if the command opens several connections
+     */
+    @NotNull
+    public String getConnectionIdentifier(final int connectionIndex) {
+        return connectionIdentifierBase + "-" + connectionIndex;
+    }
+
 }
@@ -15,6 +15,7 @@
  */
 package com.hivemq.cli.commands;
 
+import com.hivemq.cli.mqtt.probe.ProbeStamp;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
 import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PayloadFormatIndicator;
@@ -45,5 +46,11 @@ public interface Publish extends Context {
 
     @Nullable Mqtt5UserProperties getUserProperties();
 
+    /**
+     * @return how the publishes are stamped for measuring their latency or <code>null</code> if they are not stamped
+     */
+    default @Nullable ProbeStamp.Encoding getProbe() {
+        return null;
+    }
 
 }
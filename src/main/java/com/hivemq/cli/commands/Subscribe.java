@@ -15,6 +15,15 @@
  */
 package com.hivemq.cli.commands;
 
+import com.hivemq.cli.mqtt.FormatterPool;
+import com.hivemq.cli.mqtt.SubscribeStatistics;
+import com.hivemq.cli.mqtt.capture.CaptureWriter;
+import com.hivemq.cli.mqtt.chunk.ChunkAssembler;
+import com.hivemq.cli.mqtt.probe.ProbeStatistics;
+import com.hivemq.cli.mqtt.store.StoreWriter;
+import com.hivemq.cli.utils.ConsoleWriter;
+import com.hivemq.cli.utils.OutputFileRotation;
+import com.hivemq.cli.utils.OutputFileWriter;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
 import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
 import org.jetbrains.annotations.NotNull;
@@ -38,14 +47,74 @@ public interface Subscribe extends Context {
 
     boolean isJsonOutput();
 
+    /**
+     * @return whether JSON output is written compact on a single line per publish instead of pretty printed
+     */
+    default boolean isCompactJson() {
+        return false;
+    }
+
     boolean showTopics();
 
     @Nullable Mqtt5UserProperties getUserProperties();
 
+    default @Nullable CaptureWriter getCaptureWriter() {
+        return null;
+    }
+
+    /**
+     * @return the writer which appends the publishes to a message store, or <code>null</code> if they are not stored
+     */
+    default @Nullable StoreWriter getStoreWriter() {
+        return null;
+    }
+
+    default @Nullable ChunkAssembler getChunkAssembler() {
+        return null;
+    }
+
+    default @Nullable OutputFileRotation getOutputFileRotation() {
+        return null;
+    }
+
+    /**
+     * @return the writer which buffers the console output, or <code>null</code> to print every publish directly
+     */
+    default @Nullable ConsoleWriter getConsoleWriter() {
+        return null;
+    }
+
+    /**
+     * @return the statistics which count the received publishes instead of printing them, or <code>null</code> to
+     * print every publish
+     */
+    default @Nullable SubscribeStatistics getStatistics() {
+        return null;
+    }
+
+    /**
+     * @return the statistics which measure the latency of the publishes stamped by 'mqtt pub --probe' instead of
+     * printing them, or <code>null</code> to print every publish
+     */
+    default @Nullable ProbeStatistics getProbeStatistics() {
+        return null;
+    }
+
+    /**
+     * @return the pool which formats and outputs the publishes, or <code>null</code> to format them on the callback
+     * thread of the client
+     */
+    default @Nullable FormatterPool getFormatterPool() {
+        return null;
+    }
+
     default boolean createOutputFile(final @Nullable File outputFile) {
 
         if (outputFile == null) {
             // option --outputToFile was not used
+            if (getOutputFileRotation() != null) {
+                Logger.warn("Output file rotation was set but is unused without an output file");
+            }
             return true;
         }
 
@@ -63,6 +132,7 @@ public interface Subscribe extends Context {
             return false;
         }
 
+        OutputFileWriter.of(outputFile, getOutputFileRotation());
         return true;
 
     }
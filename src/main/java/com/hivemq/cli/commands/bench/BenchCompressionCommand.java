@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.commands.bench;
+
+import com.hivemq.cli.MqttCLIMain;
+import com.hivemq.cli.converters.FileToMappedByteBufferConverter;
+import com.hivemq.cli.utils.PayloadCodec;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tinylog.Logger;
+import picocli.CommandLine;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+@CommandLine.Command(name = "compression",
+        versionProvider = MqttCLIMain.CLIVersionProvider.class,
+        description = "Measure the compression ratio and the CPU cost of the payload codecs for different payload sizes.",
+        abbreviateSynopsis = false)
+
+public class BenchCompressionCommand implements Runnable {
+
+    @Inject
+    public BenchCompressionCommand() { }
+
+    @CommandLine.Option(names = {"--version"}, versionHelp = true, description = "display version info")
+    boolean versionInfoRequested;
+
+    @CommandLine.Option(names = {"--help"}, usageHelp = true, description = "display this help message")
+    boolean usageHelpRequested;
+
+    @CommandLine.Option(names = {"--codec"}, split = ",", defaultValue = "deflate,gzip", description = "The codecs to measure: ${COMPLETION-CANDIDATES} (default: deflate,gzip)", order = 1)
+    @NotNull private PayloadCodec[] codecs;
+
+    @CommandLine.Option(names = {"--size"}, split = ",", defaultValue = "64,256,1024,4096,16384", description = "The payload sizes in bytes (default: 64,256,1024,4096,16384)", order = 1)
+    @NotNull private int[] sizes;
+
+    @CommandLine.Option(names = {"--iterations"}, defaultValue = "10000", description = "The number of times every payload is compressed and decompressed (default: 10000)", order = 1)
+    private int iterations;
+
+    @CommandLine.Option(names = {"-m:file"}, converter = FileToMappedByteBufferConverter.class, description = "A sample payload which is repeated or truncated to the payload sizes (default: generated JSON telemetry)", order = 1)
+    @Nullable private ByteBuffer sample;
+
+    @Override
+    public void run() {
+
+        for (final int size : sizes) {
+            if (size < 1) {
+                Logger.error("The payload sizes have to be at least 1 byte but were {}", Arrays.toString(sizes));
+                return;
+            }
+        }
+        if (iterations < 1) {
+            Logger.error("The number of iterations has to be at least 1 but was {}", iterations);
+            return;
+        }
+        if (sample != null && !sample.hasRemaining()) {
+            Logger.error("The sample payload must not be empty");
+            return;
+        }
+
+        System.out.printf("%-8s %10s %12s %8s %16s %18s%n",
+                "Codec", "Size", "Compressed", "Saved", "Compress (us)", "Decompress (us)");
+        for (final PayloadCodec codec : codecs) {
+            for (final int size : sizes) {
+                final ByteBuffer payload = payload(size);
+                try {
+                    measure(codec, payload);
+                } catch (final IOException e) {
+                    Logger.error(e, "Could not decompress {} payload: {}", codec, e.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+
+    // Every measurement is preceded by a warm up of the same length, so the JIT compiled the codec before it is timed.
+    private void measure(final @NotNull PayloadCodec codec, final @NotNull ByteBuffer payload) throws IOException {
+        final byte[] compressed = codec.encode(payload).array();
+
+        for (int i = 0; i < iterations; i++) {
+            codec.encode(payload);
+            codec.decode(compressed);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            codec.encode(payload);
+        }
+        final long compressNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            codec.decode(compressed);
+        }
+        final long decompressNanos = System.nanoTime() - start;
+
+        System.out.printf("%-8s %10d %12d %7.1f%% %16.3f %18.3f%n",
+                codec,
+                payload.remaining(),
+                compressed.length,
+                100D * (payload.remaining() - compressed.length) / payload.remaining(),
+                compressNanos / 1000D / iterations,
+                decompressNanos / 1000D / iterations);
+    }
+
+    private @NotNull ByteBuffer payload(final int size) {
+        final byte[] payload = new byte[size];
+        if (sample != null) {
+            final ByteBuffer source = sample.duplicate();
+            for (int i = 0; i < size; i++) {
+                if (!source.hasRemaining()) {
+                    source.rewind();
+                }
+                payload[i] = source.get();
+            }
+            return ByteBuffer.wrap(payload);
+        }
+
+        // telemetry records with changing readings, so repetitions are not trivially compressible
+        final Random random = new Random(size);
+        final StringBuilder records = new StringBuilder(size + 128);
+        for (int i = 0; records.length() < size; i++) {
+            records.append(String.format(Locale.ROOT, "{\"device\":\"sensor-%04d\",\"ts\":%d,\"temperature\":%.2f,\"humidity\":%.1f,\"battery\":%.2f,\"status\":\"ok\"}\n",
+                    random.nextInt(10_000),
+                    1_700_000_000_000L + i * 1000L + random.nextInt(1000),
+                    15 + random.nextDouble() * 15,
+                    30 + random.nextDouble() * 40,
+                    3 + random.nextDouble()));
+        }
+        System.arraycopy(records.toString().getBytes(StandardCharsets.UTF_8), 0, payload, 0, size);
+        return ByteBuffer.wrap(payload);
+    }
+}
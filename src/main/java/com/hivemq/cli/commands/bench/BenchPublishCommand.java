@@ -0,0 +1,249 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.commands.bench;
+
+import com.google.common.base.Throwables;
+import com.hivemq.cli.MqttCLIMain;
+import com.hivemq.cli.commands.Publish;
+import com.hivemq.cli.commands.cli.AbstractConnectFlags;
+import com.hivemq.cli.converters.MqttQosConverter;
+import com.hivemq.cli.impl.MqttAction;
+import com.hivemq.cli.mqtt.MqttClientExecutor;
+import com.hivemq.cli.utils.LoggerUtils;
+import com.hivemq.cli.utils.MqttUtils;
+import com.hivemq.client.mqtt.MqttClientSslConfig;
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.exceptions.ConnectionFailedException;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PayloadFormatIndicator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tinylog.Logger;
+import picocli.CommandLine;
+
+import javax.inject.Inject;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+@CommandLine.Command(name = "pub",
+        versionProvider = MqttCLIMain.CLIVersionProvider.class,
+        aliases = "publish",
+        description = "Publish messages for a fixed duration and report the reached throughput and the acknowledgement latency.",
+        abbreviateSynopsis = false)
+
+public class BenchPublishCommand extends AbstractConnectFlags implements MqttAction, Publish {
+
+    private final MqttClientExecutor mqttClientExecutor;
+
+    private MqttClientSslConfig sslConfig;
+
+    private ByteBuffer message;
+
+    //needed for pico cli - reflection code generation
+    public BenchPublishCommand() { this(null); }
+
+    @Inject
+    public BenchPublishCommand(final @NotNull MqttClientExecutor mqttClientExecutor) {
+        this.mqttClientExecutor = mqttClientExecutor;
+    }
+
+    @CommandLine.Option(names = {"--version"}, versionHelp = true, description = "display version info")
+    boolean versionInfoRequested;
+
+    @CommandLine.Option(names = {"--help"}, usageHelp = true, description = "display this help message")
+    boolean usageHelpRequested;
+
+    @CommandLine.Option(names = {"-t", "--topic"}, required = true, description = "The topics to publish to, used in turn", order = 1)
+    @NotNull private String[] topics;
+
+    @CommandLine.Option(names = {"-q", "--qos"}, converter = MqttQosConverter.class, defaultValue = "1", description = "Quality of service for the corresponding topic (default for all: 1)", order = 1)
+    @NotNull private MqttQos[] qos;
+
+    @CommandLine.Option(names = {"--size"}, defaultValue = "64", description = "The size of the random payload of each message in bytes (default: 64)", order = 1)
+    private int size;
+
+    @CommandLine.Option(names = {"--duration"}, defaultValue = "10", description = "The duration of the benchmark in seconds (default: 10)", order = 1)
+    private long duration;
+
+    @CommandLine.Option(names = {"--rate"}, description = "The maximum number of messages published per second (default: unlimited)", order = 1)
+    @Nullable private Double rate;
+
+    @CommandLine.Option(names = {"--maxInFlight"}, defaultValue = "1000", description = "The maximum number of sent but not yet acknowledged messages (default: 1000)", order = 1)
+    private int maxInFlight;
+
+    @CommandLine.Option(names = {"--connections"}, defaultValue = "1", description = "The number of connections the messages are spread across round-robin (default: 1)", order = 1)
+    private int connections;
+
+    @CommandLine.Option(names = {"-l"}, defaultValue = "false", description = "Log to $HOME/.mqtt-cli/logs (Configurable through $HOME/.mqtt-cli/config.properties)", order = 1)
+    private boolean logToLogfile;
+
+    @Override
+    public void run() {
+
+        String logLevel = "warn";
+        if (isDebug()) logLevel = "debug";
+        if (isVerbose()) logLevel = "trace";
+        LoggerUtils.setupConsoleLogging(logToLogfile, logLevel);
+
+        setDefaultOptions();
+        try {
+            sslConfig = buildSslConfig();
+        } catch (final Exception e) {
+            Logger.error(e, "Could not build SSL configuration");
+            return;
+        }
+
+        Logger.trace("Command {} ", this);
+
+        logUnusedOptions();
+
+        if (size < 0) {
+            Logger.error("The payload size must not be negative but was {}", size);
+            return;
+        }
+        if (duration < 1) {
+            Logger.error("The duration has to be at least 1 second but was {}", duration);
+            return;
+        }
+        if (rate != null && rate <= 0) {
+            Logger.error("The rate has to be greater than 0 but was {}", rate);
+            return;
+        }
+        if (connections < 1) {
+            Logger.error("The number of connections has to be at least 1 but was {}", connections);
+            return;
+        }
+        if (maxInFlight < 1) {
+            Logger.error("The maximum number of in-flight messages has to be at least 1 but was {}", maxInFlight);
+            return;
+        }
+
+        final byte[] payload = new byte[size];
+        ThreadLocalRandom.current().nextBytes(payload);
+        message = ByteBuffer.wrap(payload);
+
+        try {
+            qos = MqttUtils.arrangeQosToMatchTopics(topics, qos);
+            mqttClientExecutor.benchmarkPublish(this);
+        }
+        catch (final ConnectionFailedException cex) {
+            Logger.error(cex, cex.getCause().getMessage());
+        }
+        catch (final Exception ex) {
+            Logger.error(ex, Throwables.getRootCause(ex).getMessage());
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                connectOptions() +
+                ", topics=" + Arrays.toString(topics) +
+                ", qos=" + Arrays.toString(qos) +
+                ", size=" + size +
+                ", duration=" + duration +
+                (rate != null ? (", rate=" + rate) : "") +
+                ", maxInFlight=" + maxInFlight +
+                ", connections=" + connections +
+                '}';
+    }
+
+    @NotNull
+    @Override
+    public String[] getTopics() {
+        return topics;
+    }
+
+    @NotNull
+    @Override
+    public MqttQos[] getQos() {
+        return qos;
+    }
+
+    @NotNull
+    @Override
+    public ByteBuffer getMessage() {
+        return message;
+    }
+
+    @Nullable
+    @Override
+    public Boolean getRetain() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Long getMessageExpiryInterval() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Mqtt5PayloadFormatIndicator getPayloadFormatIndicator() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public String getResponseTopic() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public ByteBuffer getCorrelationData() {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Mqtt5UserProperties getUserProperties() {
+        return null;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    @Nullable
+    public Double getRate() {
+        return rate;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    @Nullable
+    @Override
+    public MqttClientSslConfig getSslConfig() {
+        return sslConfig;
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.commands.capture;
+
+import com.hivemq.cli.MqttCLIMain;
+import com.hivemq.cli.mqtt.capture.CaptureConverter;
+import com.hivemq.cli.mqtt.capture.CaptureReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tinylog.Logger;
+import picocli.CommandLine;
+
+import javax.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+@CommandLine.Command(name = "convert",
+        versionProvider = MqttCLIMain.CLIVersionProvider.class,
+        description = "Convert a capture file recorded with 'mqtt sub --capture' to text, JSON or CSV.",
+        abbreviateSynopsis = false)
+
+public class CaptureConvertCommand implements Runnable {
+
+    @Inject
+    public CaptureConvertCommand() { }
+
+    @CommandLine.Option(names = {"--version"}, versionHelp = true, description = "display version info")
+    boolean versionInfoRequested;
+
+    @CommandLine.Option(names = {"--help"}, usageHelp = true, description = "display this help message")
+    boolean usageHelpRequested;
+
+    @CommandLine.Option(names = {"-f", "--file"}, required = true, description = "The capture file to convert", order = 1)
+    @NotNull private File file;
+
+    @CommandLine.Option(names = {"--format"}, defaultValue = "text", description = "The output format: ${COMPLETION-CANDIDATES} (default: text)", order = 1)
+    @NotNull private CaptureConverter.Format format;
+
+    @CommandLine.Option(names = {"-o", "--output"}, description = "The file to write the converted publishes to (default: the console)", order = 1)
+    @Nullable private File output;
+
+    @CommandLine.Option(names = {"-b64", "--base64"}, description = "Specify the encoding of the payloads as Base64 (default: false)", order = 1)
+    private boolean base64;
+
+    @CommandLine.Option(names = {"-T", "--showTopics"}, defaultValue = "false", description = "Prepend the specific topic name to the payload of the text format", order = 1)
+    private boolean showTopics;
+
+    @Override
+    public void run() {
+
+        Logger.trace("Command {} ", this);
+
+        if (!file.isFile()) {
+            Logger.error("Capture file {} does not exist", file.getAbsolutePath());
+            return;
+        }
+
+        final CaptureConverter converter = new CaptureConverter(format, base64, showTopics);
+        try (final CaptureReader reader = new CaptureReader(file)) {
+            if (output == null) {
+                // System.out must stay open, so the writer is only flushed
+                final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                converter.convert(reader, out);
+                out.flush();
+            } else {
+                final long count;
+                try (final Writer out = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+                    count = converter.convert(reader, out);
+                }
+                System.out.printf("Converted %d publishes to %s%n", count, output.getAbsolutePath());
+            }
+        } catch (final IOException e) {
+            Logger.error(e, "Could not convert capture file {}: {}", file.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "file=" + file.getAbsolutePath() +
+                ", format=" + format +
+                (output != null ? (", output=" + output.getAbsolutePath()) : "") +
+                ", base64=" + base64 +
+                ", showTopics=" + showTopics +
+                '}';
+    }
+}
@@ -40,7 +40,7 @@ public abstract class AbstractConnectFlags extends AbstractCommonFlags implement
     private Mqtt5UserProperty[] connectUserProperties;
 
 
-    String connectOptions() {
+    public String connectOptions() {
         return commonOptions() +
                 (sessionExpiryInterval != null ? (", sessionExpiryInterval=" + sessionExpiryInterval) : "") +
                 (connectUserProperties != null ? (", userProperties=" + Arrays.toString(connectUserProperties)) : "") +
@@ -19,14 +19,20 @@ import com.google.common.base.Throwables;
 import com.hivemq.cli.MqttCLIMain;
 import com.hivemq.cli.commands.Publish;
 import com.hivemq.cli.converters.ByteBufferConverter;
+import com.hivemq.cli.converters.FileToMappedByteBufferConverter;
 import com.hivemq.cli.converters.Mqtt5UserPropertyConverter;
 import com.hivemq.cli.converters.MqttQosConverter;
 import com.hivemq.cli.converters.PayloadFormatIndicatorConverter;
 import com.hivemq.cli.converters.UnsignedIntConverter;
 import com.hivemq.cli.impl.MqttAction;
 import com.hivemq.cli.mqtt.MqttClientExecutor;
+import com.hivemq.cli.mqtt.probe.ProbeStamp;
+import com.hivemq.cli.utils.DelimitedRecordReader;
 import com.hivemq.cli.utils.LoggerUtils;
+import com.hivemq.cli.utils.MessageTemplate;
+import com.hivemq.cli.utils.MqttPublishUtils;
 import com.hivemq.cli.utils.MqttUtils;
+import com.hivemq.cli.utils.PayloadCodec;
 import com.hivemq.client.mqtt.MqttClientSslConfig;
 import com.hivemq.client.mqtt.MqttVersion;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
@@ -41,6 +47,7 @@ import org.tinylog.configuration.Configuration;
 import picocli.CommandLine;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -59,6 +66,10 @@ public class PublishCommand extends AbstractConnectFlags implements MqttAction,
 
     private MqttClientSslConfig sslConfig;
 
+    @Nullable private MessageTemplate messageTemplate;
+
+    @Nullable private MessageTemplate[] topicTemplates;
+
     //needed for pico cli - reflection code generation
     public PublishCommand() { this(null); }
 
@@ -79,8 +90,10 @@ public class PublishCommand extends AbstractConnectFlags implements MqttAction,
     @CommandLine.Option(names = {"-q", "--qos"}, converter = MqttQosConverter.class, defaultValue = "0", description = "Quality of service for the corresponding topic (default for all: 0)", order = 1)
     @NotNull private MqttQos[] qos;
 
-    @CommandLine.Option(names = {"-m", "--message"}, converter = ByteBufferConverter.class, required = true, description = "The message to publish", order = 1)
-    @NotNull private ByteBuffer message;
+    @CommandLine.ArgGroup(exclusive = true, multiplicity = "0..1")
+    @Nullable private MessageOptions messageOptions;
+
+    @Nullable private ByteBuffer message;
 
     @CommandLine.Option(names = {"-r", "--retain"}, negatable = true, description = "The message will be retained (default: false)", order = 1)
     @Nullable private Boolean retain;
@@ -103,6 +116,48 @@ public class PublishCommand extends AbstractConnectFlags implements MqttAction,
     @CommandLine.Option(names = {"-up", "--userProperty"}, converter = Mqtt5UserPropertyConverter.class, description = "A user property of the publish message", order = 1)
     @Nullable private Mqtt5UserProperty[] userProperties;
 
+    @CommandLine.Option(names = {"--stdin"}, defaultValue = "false", description = "Publish every record read from stdin as a message over a single connection (default: false)", order = 1)
+    private boolean stdin;
+
+    @CommandLine.Option(names = {"--stdinFormat"}, defaultValue = "line", description = "How records read from stdin are delimited: ${COMPLETION-CANDIDATES} (default: line)", order = 1)
+    @NotNull private DelimitedRecordReader.Format stdinFormat;
+
+    @CommandLine.Option(names = {"--fromFile"}, description = "Publish every record of a CSV (*.csv) or JSON lines dataset as a message, CSV rows are published as JSON objects", order = 1)
+    @Nullable private File fromFile;
+
+    @CommandLine.Option(names = {"--topicField"}, description = "A field of the dataset records whose value is appended as topic level to the topics", order = 1)
+    @Nullable private String[] topicFields;
+
+    @CommandLine.Option(names = {"--template"}, defaultValue = "false", description = "Replace the variables $${seq}, $${nanoTime}, $${timestamp}, $${random}, $${clientIdx} and $${schedule} in the message and topics for every message (default: false)", order = 1)
+    private boolean template;
+
+    @CommandLine.Option(names = {"--compress"}, description = "Compress the payload with the given codec (${COMPLETION-CANDIDATES}), signalled by the user property '" + PayloadCodec.USER_PROPERTY + "'", order = 1)
+    @Nullable private PayloadCodec compress;
+
+    @CommandLine.Option(names = {"--probe"}, description = "Stamp every message with its send time and sequence number for 'mqtt sub --probe', as user property '" + ProbeStamp.USER_PROPERTY + "' or as payload header (${COMPLETION-CANDIDATES})", order = 1)
+    @Nullable private ProbeStamp.Encoding probe;
+
+    @CommandLine.Option(names = {"--chunkSize"}, description = "Split the message into chunks of at most this many bytes which are reassembled by 'mqtt sub --reassemble', at most the maximum packet size of the broker minus the topic and properties of a chunk (default: a message which exceeds the maximum packet size is split into chunks of that size)", order = 1)
+    @Nullable private Integer chunkSize;
+
+    @CommandLine.Option(names = {"--count"}, description = "The number of times the message is published to each topic, or by each schedule when publishing periodically (default: 1, unlimited with '--interval')", order = 1)
+    @Nullable private Long count;
+
+    @CommandLine.Option(names = {"--rate"}, description = "The maximum number of messages published per second (default: unlimited)", order = 1)
+    @Nullable private Double rate;
+
+    @CommandLine.Option(names = {"--interval"}, description = "Publish to each topic periodically every given number of milliseconds until interrupted or '--count' times per schedule (default: no interval)", order = 1)
+    @Nullable private Long interval;
+
+    @CommandLine.Option(names = {"--schedules"}, defaultValue = "1", description = "The number of periodic schedules per topic, evenly spread across the interval and distinguished by the template variable $${schedule} (default: 1)", order = 1)
+    private int schedules;
+
+    @CommandLine.Option(names = {"--maxInFlight"}, defaultValue = "1000", description = "The maximum number of sent but not yet acknowledged messages when publishing repeatedly (default: 1000)", order = 1)
+    private int maxInFlight;
+
+    @CommandLine.Option(names = {"--connections"}, defaultValue = "1", description = "The number of connections the messages are spread across round-robin (default: 1)", order = 1)
+    private int connections;
+
     @CommandLine.Option(names = {"-l"}, defaultValue = "false", description = "Log to $HOME/.mqtt-cli/logs (Configurable through $HOME/.mqtt-cli/config.properties)", order = 1)
     private boolean logToLogfile;
 
@@ -122,10 +177,143 @@ public class PublishCommand extends AbstractConnectFlags implements MqttAction,
             return;
         }
 
+        message = messageOptions != null ? messageOptions.getMessage() : null;
+        if (message == null && !stdin && fromFile == null) {
+            Logger.error("Missing required option: either '--message', '-m:file', '--stdin' or '--fromFile' has to be specified");
+            return;
+        }
+        if (message != null && stdin) {
+            Logger.error("A message must not be specified when publishing from stdin");
+            return;
+        }
+        if (fromFile != null && (message != null || stdin)) {
+            Logger.error("A message or '--stdin' must not be specified when publishing from a file");
+            return;
+        }
+        if ((stdin || fromFile != null) && count != null && count != 1) {
+            Logger.warn("Publish count was set but is unused when publishing from {}", stdin ? "stdin" : "a file");
+        }
+        if (fromFile != null && !fromFile.isFile()) {
+            Logger.error("Cannot publish from {} as it is not a file", fromFile.getAbsolutePath());
+            return;
+        }
+        if (topicFields != null && fromFile == null) {
+            Logger.warn("Topic fields were set but are unused when not publishing from a file");
+        }
+
         Logger.trace("Command {} ", this);
 
         logUnusedOptions();
 
+        if (count != null && count < 1) {
+            Logger.error("The count has to be at least 1 but was {}", count);
+            return;
+        }
+        if (rate != null && rate <= 0) {
+            Logger.error("The rate has to be greater than 0 but was {}", rate);
+            return;
+        }
+        if (connections < 1) {
+            Logger.error("The number of connections has to be at least 1 but was {}", connections);
+            return;
+        }
+        if (maxInFlight < 1) {
+            Logger.error("The maximum number of in-flight messages has to be at least 1 but was {}", maxInFlight);
+            return;
+        }
+
+        if (interval != null) {
+            if (interval < 1) {
+                Logger.error("The interval has to be at least 1 millisecond but was {}", interval);
+                return;
+            }
+            if (schedules < 1) {
+                Logger.error("The number of schedules has to be at least 1 but was {}", schedules);
+                return;
+            }
+            if (stdin || fromFile != null || chunkSize != null) {
+                Logger.error("Periodic publishing cannot be combined with '--stdin', '--fromFile' or '--chunkSize'");
+                return;
+            }
+            if (rate != null) {
+                Logger.warn("Publish rate was set but is unused when publishing periodically");
+            }
+        }
+        else if (schedules != 1) {
+            Logger.warn("Publish schedules were set but are unused without an interval");
+        }
+
+        if (chunkSize != null) {
+            if (chunkSize < 1) {
+                Logger.error("The chunk size has to be at least 1 byte but was {}", chunkSize);
+                return;
+            }
+            if (getVersion() == MqttVersion.MQTT_3_1_1) {
+                Logger.error("Chunked messages can only be published in MQTT Version {}", MqttVersion.MQTT_5_0);
+                return;
+            }
+            if (stdin || fromFile != null || template || compress != null) {
+                Logger.error("Chunked messages cannot be combined with '--stdin', '--fromFile', '--template' or '--compress'");
+                return;
+            }
+            if (count != null && count != 1) {
+                Logger.warn("Publish count was set but is unused when publishing chunked messages");
+            }
+            if (correlationData != null) {
+                Logger.warn("Publish correlation data was set but is replaced by the transfer identifier of the chunks");
+            }
+        }
+
+        if (probe != null) {
+            if (probe == ProbeStamp.Encoding.property && getVersion() == MqttVersion.MQTT_3_1_1) {
+                Logger.error("Probes can only be stamped as user property in MQTT Version {}, use '--probe header'", MqttVersion.MQTT_5_0);
+                return;
+            }
+            if (probe == ProbeStamp.Encoding.header && compress != null) {
+                Logger.error("A probe header cannot be combined with '--compress', use '--probe property'");
+                return;
+            }
+            if (chunkSize != null) {
+                Logger.error("Probes cannot be combined with '--chunkSize'");
+                return;
+            }
+        }
+
+        if (compress != null && getVersion() == MqttVersion.MQTT_3_1_1) {
+            Logger.error("Compressed payloads can only be signalled in MQTT Version {}", MqttVersion.MQTT_5_0);
+            return;
+        }
+
+        if (template) {
+            try {
+                topicTemplates = new MessageTemplate[topics.length];
+                for (int i = 0; i < topics.length; i++) {
+                    topicTemplates[i] = MessageTemplate.compile(topics[i]);
+                }
+                if (message != null) {
+                    final byte[] messageBytes = new byte[message.remaining()];
+                    message.duplicate().get(messageBytes);
+                    messageTemplate = MessageTemplate.compile(messageBytes);
+                }
+            } catch (final IllegalArgumentException e) {
+                Logger.error(e.getMessage());
+                return;
+            }
+        }
+
+        if (compress != null) {
+            if (message != null) {
+                message = compress.encode(message);
+            }
+            final Mqtt5UserProperty contentEncoding = Mqtt5UserProperty.of(PayloadCodec.USER_PROPERTY, compress.name());
+            if (userProperties == null) {
+                userProperties = new Mqtt5UserProperty[]{contentEncoding};
+            } else {
+                userProperties = Arrays.copyOf(userProperties, userProperties.length + 1);
+                userProperties[userProperties.length - 1] = contentEncoding;
+            }
+        }
+
         try {
             qos = MqttUtils.arrangeQosToMatchTopics(topics, qos);
             mqttClientExecutor.publish(this);
@@ -172,7 +360,7 @@ public class PublishCommand extends AbstractConnectFlags implements MqttAction,
                  connectOptions() +
                 ", topics=" + Arrays.toString(topics) +
                 ", qos=" + Arrays.toString(qos) +
-                ", message=" + new String(message.array(), StandardCharsets.UTF_8) +
+                (message != null ? (", message=" + MqttPublishUtils.payloadPreview(message)) : "") +
                 (retain != null ? (", retain=" + retain) : "") +
                 (messageExpiryInterval != null ? (", messageExpiryInterval=" + messageExpiryInterval) : "") +
                 (payloadFormatIndicator != null ? (", payloadFormatIndicator=" + payloadFormatIndicator) : "") +
@@ -180,6 +368,18 @@ public class PublishCommand extends AbstractConnectFlags implements MqttAction,
                 (responseTopic != null ? (", responseTopic=" + responseTopic) : "") +
                 (correlationData != null ? (", correlationData=" + new String(correlationData.array(), StandardCharsets.UTF_8)) : "") +
                 (userProperties != null ? (", userProperties=" + getUserProperties()) : "") +
+                (stdin ? (", stdin=" + stdin + ", stdinFormat=" + stdinFormat) : "") +
+                (fromFile != null ? (", fromFile=" + fromFile.getAbsolutePath()) : "") +
+                (topicFields != null ? (", topicFields=" + Arrays.toString(topicFields)) : "") +
+                (template ? ", template=true" : "") +
+                (compress != null ? (", compress=" + compress) : "") +
+                (probe != null ? (", probe=" + probe) : "") +
+                (chunkSize != null ? (", chunkSize=" + chunkSize) : "") +
+                (count != null ? (", count=" + count) : "") +
+                (rate != null ? (", rate=" + rate) : "") +
+                (interval != null ? (", interval=" + interval + ", schedules=" + schedules) : "") +
+                ", maxInFlight=" + maxInFlight +
+                ", connections=" + connections +
                 '}';
     }
 
@@ -252,10 +452,117 @@ public class PublishCommand extends AbstractConnectFlags implements MqttAction,
         this.userProperties = userProperties;
     }
 
+    public boolean isStdin() {
+        return stdin;
+    }
+
+    @NotNull
+    public DelimitedRecordReader.Format getStdinFormat() {
+        return stdinFormat;
+    }
+
+    @Nullable
+    public File getFromFile() {
+        return fromFile;
+    }
+
+    @Nullable
+    public String[] getTopicFields() {
+        return topicFields;
+    }
+
+    /**
+     * @return the codec the payloads are compressed with or <code>null</code> if they are sent uncompressed. The
+     *         message is already compressed, records read from stdin and rendered templates are not.
+     */
+    @Nullable
+    public PayloadCodec getCompress() {
+        return compress;
+    }
+
+    @Nullable
+    @Override
+    public ProbeStamp.Encoding getProbe() {
+        return probe;
+    }
+
+    @Nullable
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    // whether the message could be published in chunks if it exceeds the maximum packet size of the broker
+    public boolean isChunkable() {
+        return message != null && !stdin && fromFile == null && interval == null && getCount() == 1 && !template &&
+                compress == null && probe == null;
+    }
+
+    public boolean isTemplate() {
+        return template;
+    }
+
+    /**
+     * @return the compiled message if the message is a template, otherwise <code>null</code>
+     */
+    @Nullable
+    public MessageTemplate getMessageTemplate() {
+        return messageTemplate;
+    }
+
+    /**
+     * @return the compiled topics if the topics are templates, otherwise <code>null</code>
+     */
+    @Nullable
+    public MessageTemplate[] getTopicTemplates() {
+        return topicTemplates;
+    }
+
+    // without an explicit count, periodic schedules publish until interrupted
+    public long getCount() {
+        if (count != null) {
+            return count;
+        }
+        return interval != null ? Long.MAX_VALUE : 1;
+    }
+
+    @Nullable
+    public Double getRate() {
+        return rate;
+    }
+
+    @Nullable
+    public Long getInterval() {
+        return interval;
+    }
+
+    public int getSchedules() {
+        return schedules;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
     @Nullable
     @Override
     public MqttClientSslConfig getSslConfig() {
         return sslConfig;
     }
 
+    static class MessageOptions {
+
+        @CommandLine.Option(names = {"-m", "--message"}, converter = ByteBufferConverter.class, description = "The message to publish", order = 1)
+        @Nullable private ByteBuffer messageFromArgument;
+
+        @CommandLine.Option(names = {"-m:file"}, converter = FileToMappedByteBufferConverter.class, description = "The message to publish read in from a file (memory-mapped, not copied)", order = 1)
+        @Nullable private ByteBuffer messageFromFile;
+
+        @Nullable ByteBuffer getMessage() {
+            return messageFromArgument != null ? messageFromArgument : messageFromFile;
+        }
+    }
 }
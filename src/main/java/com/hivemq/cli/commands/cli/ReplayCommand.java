@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.commands.cli;
+
+import com.google.common.base.Throwables;
+import com.hivemq.cli.MqttCLIMain;
+import com.hivemq.cli.converters.ReplaySpeedConverter;
+import com.hivemq.cli.impl.MqttAction;
+import com.hivemq.cli.mqtt.MqttClientExecutor;
+import com.hivemq.cli.utils.LoggerUtils;
+import com.hivemq.client.mqtt.MqttClientSslConfig;
+import com.hivemq.client.mqtt.exceptions.ConnectionFailedException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tinylog.Logger;
+import picocli.CommandLine;
+
+import javax.inject.Inject;
+import java.io.File;
+
+@CommandLine.Command(name = "replay",
+        versionProvider = MqttCLIMain.CLIVersionProvider.class,
+        description = "Publish the messages of a capture file recorded with 'mqtt sub --capture' with their original timing.",
+        abbreviateSynopsis = false)
+
+public class ReplayCommand extends AbstractConnectFlags implements MqttAction {
+
+    private final MqttClientExecutor mqttClientExecutor;
+
+    private MqttClientSslConfig sslConfig;
+
+    //needed for pico cli - reflection code generation
+    public ReplayCommand() { this(null); }
+
+    @Inject
+    public ReplayCommand(final @NotNull MqttClientExecutor mqttClientExecutor) {
+        this.mqttClientExecutor = mqttClientExecutor;
+    }
+
+    @CommandLine.Option(names = {"--version"}, versionHelp = true, description = "display version info")
+    boolean versionInfoRequested;
+
+    @CommandLine.Option(names = {"--help"}, usageHelp = true, description = "display this help message")
+    boolean usageHelpRequested;
+
+    @CommandLine.Option(names = {"-f", "--file"}, required = true, description = "The capture file to replay", order = 1)
+    @NotNull private File file;
+
+    @CommandLine.Option(names = {"--speed"}, converter = ReplaySpeedConverter.class, defaultValue = "1", description = "The factor the original timing is accelerated by or 'max' to publish as fast as possible (default: 1)", order = 1)
+    private double speed;
+
+    @CommandLine.Option(names = {"--maxInFlight"}, defaultValue = "1000", description = "The maximum number of sent but not yet acknowledged messages (default: 1000)", order = 1)
+    private int maxInFlight;
+
+    @CommandLine.Option(names = {"-l"}, defaultValue = "false", description = "Log to $HOME/.mqtt-cli/logs (Configurable through $HOME/.mqtt-cli/config.properties)", order = 1)
+    private boolean logToLogfile;
+
+    @Override
+    public void run() {
+
+        String logLevel = "warn";
+        if (isDebug()) logLevel = "debug";
+        if (isVerbose()) logLevel = "trace";
+        LoggerUtils.setupConsoleLogging(logToLogfile, logLevel);
+
+        setDefaultOptions();
+        try {
+            sslConfig = buildSslConfig();
+        } catch (final Exception e) {
+            Logger.error(e, "Could not build SSL configuration");
+            return;
+        }
+
+        Logger.trace("Command {} ", this);
+
+        logUnusedOptions();
+
+        if (!file.isFile()) {
+            Logger.error("Capture file {} does not exist", file.getAbsolutePath());
+            return;
+        }
+        if (maxInFlight < 1) {
+            Logger.error("The maximum number of in-flight messages has to be at least 1 but was {}", maxInFlight);
+            return;
+        }
+
+        try {
+            mqttClientExecutor.replay(this);
+        }
+        catch (final ConnectionFailedException cex) {
+            Logger.error(cex, cex.getCause().getMessage());
+        }
+        catch (final Exception ex) {
+            Logger.error(ex, Throwables.getRootCause(ex).getMessage());
+        }
+
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                connectOptions() +
+                ", file=" + file.getAbsolutePath() +
+                ", speed=" + speed +
+                ", maxInFlight=" + maxInFlight +
+                '}';
+    }
+
+    @NotNull
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the factor the original timing is accelerated by, {@link Double#POSITIVE_INFINITY} to replay as fast as
+     *         possible
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @Nullable
+    @Override
+    public MqttClientSslConfig getSslConfig() {
+        return sslConfig;
+    }
+}
@@ -19,12 +19,23 @@ import com.google.common.base.Throwables;
 import com.hivemq.cli.DefaultCLIProperties;
 import com.hivemq.cli.MqttCLIMain;
 import com.hivemq.cli.commands.Subscribe;
+import com.hivemq.cli.converters.ByteSizeConverter;
+import com.hivemq.cli.converters.DurationConverter;
 import com.hivemq.cli.converters.Mqtt5UserPropertyConverter;
 import com.hivemq.cli.converters.MqttQosConverter;
 import com.hivemq.cli.impl.MqttAction;
+import com.hivemq.cli.mqtt.FormatterPool;
 import com.hivemq.cli.mqtt.MqttClientExecutor;
+import com.hivemq.cli.mqtt.SubscribeStatistics;
+import com.hivemq.cli.mqtt.capture.CaptureWriter;
+import com.hivemq.cli.mqtt.chunk.ChunkAssembler;
+import com.hivemq.cli.mqtt.probe.ProbeStatistics;
+import com.hivemq.cli.mqtt.store.StoreWriter;
+import com.hivemq.cli.utils.ConsoleWriter;
+import com.hivemq.cli.utils.LineWriter;
 import com.hivemq.cli.utils.LoggerUtils;
 import com.hivemq.cli.utils.MqttUtils;
+import com.hivemq.cli.utils.OutputFileRotation;
 import com.hivemq.client.mqtt.MqttClient;
 import com.hivemq.client.mqtt.MqttClientSslConfig;
 import com.hivemq.client.mqtt.MqttVersion;
@@ -39,7 +50,9 @@ import picocli.CommandLine;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 
 @CommandLine.Command(name = "sub",
         versionProvider = MqttCLIMain.CLIVersionProvider.class,
@@ -51,12 +64,24 @@ public class SubscribeCommand extends AbstractConnectFlags implements MqttAction
 
     private final MqttClientExecutor mqttClientExecutor;
     private final DefaultCLIProperties defaultCLIProperties;
-    private MqttClient subscribeClient;
+    private List<MqttClient> subscribeClients;
 
     private MqttClientSslConfig sslConfig;
 
+    @Nullable private CaptureWriter captureWriter;
+    @Nullable private StoreWriter storeWriter;
+    @Nullable private ChunkAssembler chunkAssembler;
+    @Nullable private ConsoleWriter consoleWriter;
+    @Nullable private SubscribeStatistics statistics;
+    @Nullable private ProbeStatistics probeStatistics;
+    @Nullable private FormatterPool formatterPool;
+
     public static final int IDLE_TIME = 5000;
 
+    private static final String SHARED_SUBSCRIPTION_PREFIX = "$share/";
+    // formatting threads and consumers hand their lines to a console writer, which writes them with at most this delay
+    private static final long MERGED_FLUSH_INTERVAL_MILLIS = 1;
+
     //needed for pico cli - reflection code generation
     public SubscribeCommand() {
         this(null, null);
@@ -81,21 +106,81 @@ public class SubscribeCommand extends AbstractConnectFlags implements MqttAction
     @CommandLine.Option(names = {"-q", "--qos"}, converter = MqttQosConverter.class, defaultValue = "2", description = "Quality of service for the corresponding topics (default for all: 2)", order = 1)
     @NotNull private MqttQos[] qos;
 
+    @CommandLine.Option(names = {"--consumers"}, defaultValue = "1", description = "The number of clients which subscribe to the topics as shared subscription group '$share/<shareGroup>/<topic>' and whose publishes are output together (default: 1)", order = 1)
+    private int consumers;
+
+    @CommandLine.Option(names = {"--shareGroup"}, defaultValue = "mqtt-cli", description = "The name of the shared subscription group of the consumers (default: mqtt-cli)", order = 1)
+    @NotNull private String shareGroup;
+
     @CommandLine.Option(names = {"-up", "--userProperty"}, converter = Mqtt5UserPropertyConverter.class, description = "A user property of the subscribe message", order = 1)
     @Nullable private Mqtt5UserProperty[] userProperties;
 
     @CommandLine.Option(names = {"-of", "--outputToFile"}, description = "A file to which the received publish messages will be written", order = 1)
     @Nullable private File outputFile;
 
+    @CommandLine.Option(names = {"--outputMaxSize"}, converter = ByteSizeConverter.class, description = "Rotate the output file before it exceeds the given size in bytes, KB, MB or GB, e.g. 100MB", order = 1)
+    @Nullable private Long outputMaxSize;
+
+    @CommandLine.Option(names = {"--outputMaxAge"}, converter = DurationConverter.class, description = "Rotate the output file once it is older than the given duration in s, m, h or d, e.g. 1d", order = 1)
+    @Nullable private Long outputMaxAge;
+
+    @CommandLine.Option(names = {"--outputKeep"}, description = "The amount of rotated and compressed output files to keep (default: all)", order = 1)
+    @Nullable private Integer outputKeep;
+
+    @CommandLine.Option(names = {"--capture"}, description = "A file to which the received publish messages will be captured with their QoS, retain flag, properties and receive time, so they can be replayed with 'mqtt replay'", order = 1)
+    @Nullable private File captureFile;
+
+    @CommandLine.Option(names = {"--store"}, description = "A directory in which the received publish messages will be stored with their topic, QoS, retain flag and receive time, so they can be queried by topic and time with 'mqtt store query'", order = 1)
+    @Nullable private File storeDirectory;
+
+    @CommandLine.Option(names = {"--storeSegmentSize"}, converter = ByteSizeConverter.class, defaultValue = "64MB", description = "Start a new segment of the store once a segment exceeds the given size in bytes, KB, MB or GB (default: 64MB)", order = 1)
+    private long storeSegmentSize;
+
+    @CommandLine.Option(names = {"--reassemble"}, description = "A directory in which the chunks of messages published with 'mqtt pub --chunkSize' will be reassembled to files", order = 1)
+    @Nullable private File reassembleDirectory;
+
     @CommandLine.Option(names = {"-oc", "--outputToConsole"}, hidden = true, defaultValue = "true", description = "The received messages will be written to the console (default: true)", order = 1)
     private boolean printToSTDOUT;
 
+    @CommandLine.Option(names = {"--outputFlushInterval"}, description = "Buffer the console output and write it in blocks at least every given milliseconds instead of line by line (default: line by line)", order = 1)
+    @Nullable private Long outputFlushInterval;
+
+    @CommandLine.Option(names = {"--formatThreads"}, defaultValue = "0", description = "The number of threads formatting and writing the received publishes, publishes of the same topic stay in order (default: 0, on the thread of the MQTT client)", order = 1)
+    private int formatThreads;
+
+    @CommandLine.Option(names = {"--formatQueue"}, defaultValue = "1024", description = "The number of received publishes queued per formatting thread (default: 1024)", order = 1)
+    private int formatQueue;
+
+    @CommandLine.Option(names = {"--formatQueueFull"}, defaultValue = "block", description = "Whether a full formatting queue blocks the MQTT client or drops the publish: ${COMPLETION-CANDIDATES} (default: block)", order = 1)
+    @NotNull private FormatterPool.QueueFullPolicy formatQueueFull;
+
+    @CommandLine.Option(names = {"--stats"}, defaultValue = "false", description = "Print live throughput statistics of the received publishes instead of the publishes (default: false)", order = 1)
+    private boolean stats;
+
+    @CommandLine.Option(names = {"--statsInterval"}, converter = DurationConverter.class, defaultValue = "1s", description = "The interval in which the statistics are printed in s, m, h or d (default: 1s)", order = 1)
+    private long statsInterval;
+
+    @CommandLine.Option(names = {"--statsTopics"}, defaultValue = "10", description = "The amount of topics with the highest message rate shown in the statistics (default: 10)", order = 1)
+    private int statsTopics;
+
+    @CommandLine.Option(names = {"--probe"}, defaultValue = "false", description = "Print the one-way latency, loss and reordering of the publishes stamped by 'mqtt pub --probe' instead of the publishes (default: false)", order = 1)
+    private boolean probe;
+
+    @CommandLine.Option(names = {"--probeInterval"}, converter = DurationConverter.class, defaultValue = "1s", description = "The interval in which the latencies are printed in s, m, h or d (default: 1s)", order = 1)
+    private long probeInterval;
+
+    @CommandLine.Option(names = {"--probeClockOffset"}, defaultValue = "0", description = "The milliseconds the clock of the publisher is ahead of the clock of this host, negative if it is behind (default: 0)", order = 1)
+    private double probeClockOffset;
+
     @CommandLine.Option(names = {"-b64", "--base64"}, description = "Specify the encoding of the received messages as Base64 (default: false)", order = 1)
     private boolean base64;
 
     @CommandLine.Option(names = {"-J", "--jsonOutput"}, defaultValue = "false", description = "Print the received publishes in pretty JSON format", order = 1)
     private boolean jsonOutput;
 
+    @CommandLine.Option(names = {"--compactJson"}, defaultValue = "false", description = "Print the received publishes in compact JSON format, one publish per line (implies -J)", order = 1)
+    private boolean compactJson;
+
     @CommandLine.Option(names = {"-T", "--showTopics"}, defaultValue = "false", description = "Prepend the specific topic name to the received publish", order = 1)
     private boolean showTopics;
 
@@ -122,20 +207,118 @@ public class SubscribeCommand extends AbstractConnectFlags implements MqttAction
 
         logUnusedOptions();
 
+        if (outputKeep != null && outputKeep < 1) {
+            Logger.error("The amount of output files to keep has to be at least 1");
+            return;
+        }
+
+        if (outputFlushInterval != null && outputFlushInterval < 1) {
+            Logger.error("The output flush interval has to be at least 1 ms but was {}", outputFlushInterval);
+            return;
+        }
+
+        if (consumers < 1) {
+            Logger.error("The number of consumers has to be at least 1 but was {}", consumers);
+            return;
+        }
+
+        if (consumers > 1) {
+            if (shareGroup.isEmpty() || shareGroup.contains("/") || shareGroup.contains("+") || shareGroup.contains("#")) {
+                Logger.error("The share group '{}' must not be empty or contain '/', '+' or '#'", shareGroup);
+                return;
+            }
+            for (int i = 0; i < topics.length; i++) {
+                if (!topics[i].startsWith(SHARED_SUBSCRIPTION_PREFIX)) {
+                    topics[i] = SHARED_SUBSCRIPTION_PREFIX + shareGroup + "/" + topics[i];
+                }
+            }
+        }
+
+        if (formatThreads < 0) {
+            Logger.error("The number of formatting threads must not be negative but was {}", formatThreads);
+            return;
+        }
+
+        if (formatQueue < 1) {
+            Logger.error("The formatting queue has to hold at least 1 publish but was {}", formatQueue);
+            return;
+        }
+
+        if (statsTopics < 0) {
+            Logger.error("The amount of topics shown in the statistics must not be negative but was {}", statsTopics);
+            return;
+        }
+
         if (!createOutputFile(outputFile)){
             return;
         }
 
+        if (captureFile != null) {
+            try {
+                captureWriter = new CaptureWriter(captureFile);
+            } catch (final IOException e) {
+                Logger.error(e, "Could not create capture file {}", captureFile.getAbsolutePath());
+                return;
+            }
+        }
+
+        if (storeDirectory != null) {
+            if (storeSegmentSize > StoreWriter.MAX_SEGMENT_SIZE) {
+                Logger.error("The segment size of the store must not exceed {} bytes but was {}", StoreWriter.MAX_SEGMENT_SIZE, storeSegmentSize);
+                closeFiles();
+                return;
+            }
+            try {
+                storeWriter = new StoreWriter(storeDirectory, storeSegmentSize);
+            } catch (final IOException e) {
+                Logger.error(e, "Could not open store {}: {}", storeDirectory.getAbsolutePath(), e.getMessage());
+                closeFiles();
+                return;
+            }
+        }
+
+        if (reassembleDirectory != null) {
+            if (!reassembleDirectory.isDirectory()) {
+                Logger.error("Cannot reassemble chunks in {} as it is not a directory", reassembleDirectory.getAbsolutePath());
+                closeFiles();
+                return;
+            }
+            chunkAssembler = new ChunkAssembler(reassembleDirectory);
+        }
+
+        if (outputFlushInterval != null) {
+            consoleWriter = new ConsoleWriter(outputFlushInterval);
+        }
+
+        if (formatThreads > 0) {
+            formatterPool = new FormatterPool(formatThreads, formatQueue, formatQueueFull);
+        }
+
+        // the console writer is the single writer which drains the lines of all formatting threads and consumers
+        if ((formatThreads > 0 || consumers > 1) && consoleWriter == null) {
+            consoleWriter = new ConsoleWriter(MERGED_FLUSH_INTERVAL_MILLIS);
+        }
+
+        if (stats) {
+            statistics = new SubscribeStatistics(statsInterval, statsTopics, formatterPool);
+        }
+
+        if (probe) {
+            probeStatistics = new ProbeStatistics(probeInterval, probeClockOffset);
+        }
+
         try {
             qos = MqttUtils.arrangeQosToMatchTopics(topics, qos);
-            subscribeClient = mqttClientExecutor.subscribe(this);
+            subscribeClients = mqttClientExecutor.subscribe(this);
         }
         catch (final ConnectionFailedException cex) {
             Logger.error(cex, cex.getCause().getMessage());
+            closeFiles();
             return;
         }
         catch (final Exception ex) {
             Logger.error(ex, Throwables.getRootCause(ex).getMessage());
+            closeFiles();
             return;
         }
 
@@ -145,6 +328,9 @@ public class SubscribeCommand extends AbstractConnectFlags implements MqttAction
         catch (final InterruptedException ex) {
             Logger.error(ex, Throwables.getRootCause(ex).getMessage());
         }
+        finally {
+            closeFiles();
+        }
 
 
     }
@@ -159,12 +345,55 @@ public class SubscribeCommand extends AbstractConnectFlags implements MqttAction
         }
     }
 
+    private void closeFiles() {
+        if (formatterPool != null) {
+            formatterPool.close();
+        }
+        if (captureWriter != null) {
+            try {
+                captureWriter.close();
+            } catch (final IOException e) {
+                Logger.error(e, "Could not close capture file {}", captureFile.getAbsolutePath());
+            }
+        }
+        if (storeWriter != null) {
+            try {
+                storeWriter.close();
+            } catch (final IOException e) {
+                Logger.error(e, "Could not close store {}", storeDirectory.getAbsolutePath());
+            }
+        }
+        if (chunkAssembler != null) {
+            try {
+                chunkAssembler.close();
+            } catch (final IOException e) {
+                Logger.error(e, "Could not close incomplete chunk files in {}", reassembleDirectory.getAbsolutePath());
+            }
+        }
+        LineWriter.closeAll();
+        if (statistics != null) {
+            statistics.close();
+        }
+        if (probeStatistics != null) {
+            probeStatistics.close();
+        }
+    }
+
     private void stay() throws InterruptedException {
-        while (subscribeClient.getState().isConnectedOrReconnect()) {
+        while (isAnyConnectedOrReconnect()) {
             Thread.sleep(IDLE_TIME);
         }
     }
 
+    private boolean isAnyConnectedOrReconnect() {
+        for (final MqttClient subscribeClient : subscribeClients) {
+            if (subscribeClient.getState().isConnectedOrReconnect()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void setDefaultOptions() {
         super.setDefaultOptions();
@@ -185,9 +414,28 @@ public class SubscribeCommand extends AbstractConnectFlags implements MqttAction
                 ", outputToConsole=" + printToSTDOUT +
                 ", base64=" + base64 +
                 ", jsonOutput=" + jsonOutput +
+                ", compactJson=" + compactJson +
                 ", showTopics=" + showTopics +
                 (userProperties != null ? (", userProperties=" + Arrays.toString(userProperties)) : "") +
                 (outputFile != null ? (", publishFile=" + outputFile.getAbsolutePath()) : "") +
+                (outputMaxSize != null ? (", outputMaxSize=" + outputMaxSize) : "") +
+                (outputMaxAge != null ? (", outputMaxAge=" + outputMaxAge) : "") +
+                (outputKeep != null ? (", outputKeep=" + outputKeep) : "") +
+                (outputFlushInterval != null ? (", outputFlushInterval=" + outputFlushInterval) : "") +
+                ", stats=" + stats +
+                ", statsInterval=" + statsInterval +
+                ", consumers=" + consumers +
+                ", shareGroup=" + shareGroup +
+                ", formatThreads=" + formatThreads +
+                ", formatQueue=" + formatQueue +
+                ", formatQueueFull=" + formatQueueFull +
+                ", statsTopics=" + statsTopics +
+                ", probe=" + probe +
+                ", probeInterval=" + probeInterval +
+                ", probeClockOffset=" + probeClockOffset +
+                (captureFile != null ? (", captureFile=" + captureFile.getAbsolutePath()) : "") +
+                (storeDirectory != null ? (", storeDirectory=" + storeDirectory.getAbsolutePath() + ", storeSegmentSize=" + storeSegmentSize) : "") +
+                (reassembleDirectory != null ? (", reassembleDirectory=" + reassembleDirectory.getAbsolutePath()) : "") +
                 '}';
     }
 
@@ -209,13 +457,74 @@ public class SubscribeCommand extends AbstractConnectFlags implements MqttAction
         return outputFile;
     }
 
+    @Nullable
+    @Override
+    public OutputFileRotation getOutputFileRotation() {
+        if (outputMaxSize == null && outputMaxAge == null) {
+            return null;
+        }
+        return new OutputFileRotation(
+                outputMaxSize != null ? outputMaxSize : 0,
+                outputMaxAge != null ? outputMaxAge : 0,
+                outputKeep != null ? outputKeep : 0);
+    }
+
+    @Nullable
+    @Override
+    public CaptureWriter getCaptureWriter() {
+        return captureWriter;
+    }
+
+    @Nullable
+    @Override
+    public StoreWriter getStoreWriter() {
+        return storeWriter;
+    }
+
+    @Nullable
+    @Override
+    public ChunkAssembler getChunkAssembler() {
+        return chunkAssembler;
+    }
+
+    @Nullable
+    @Override
+    public ConsoleWriter getConsoleWriter() {
+        return consoleWriter;
+    }
+
+    @Nullable
+    @Override
+    public SubscribeStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Nullable
+    @Override
+    public ProbeStatistics getProbeStatistics() {
+        return probeStatistics;
+    }
+
+    @Nullable
+    @Override
+    public FormatterPool getFormatterPool() {
+        return formatterPool;
+    }
+
+    public int getConsumers() {
+        return consumers;
+    }
+
     public boolean isPrintToSTDOUT() {
         return printToSTDOUT;
     }
 
     public boolean isBase64() { return base64; }
 
-    public boolean isJsonOutput() { return jsonOutput; }
+    public boolean isJsonOutput() { return jsonOutput || compactJson; }
+
+    @Override
+    public boolean isCompactJson() { return compactJson; }
 
     public boolean showTopics() { return showTopics; }
 
@@ -18,11 +18,13 @@ package com.hivemq.cli.commands.shell;
 import com.google.common.base.Throwables;
 import com.hivemq.cli.commands.Publish;
 import com.hivemq.cli.converters.ByteBufferConverter;
+import com.hivemq.cli.converters.FileToMappedByteBufferConverter;
 import com.hivemq.cli.converters.Mqtt5UserPropertyConverter;
 import com.hivemq.cli.converters.MqttQosConverter;
 import com.hivemq.cli.converters.PayloadFormatIndicatorConverter;
 import com.hivemq.cli.converters.UnsignedIntConverter;
 import com.hivemq.cli.mqtt.MqttClientExecutor;
+import com.hivemq.cli.utils.MqttPublishUtils;
 import com.hivemq.cli.utils.MqttUtils;
 import com.hivemq.client.mqtt.MqttVersion;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
@@ -66,8 +68,10 @@ public class ContextPublishCommand extends ShellContextCommand implements Runnab
     @CommandLine.Option(names = {"-q", "--qos"}, converter = MqttQosConverter.class, defaultValue = "0", description = "Quality of service for the corresponding topic (default for all: 0)")
     @NotNull private MqttQos[] qos;
 
-    @CommandLine.Option(names = {"-m", "--message"}, converter = ByteBufferConverter.class, required = true, description = "The message to publish")
-    @NotNull private ByteBuffer message;
+    @CommandLine.ArgGroup(exclusive = true, multiplicity = "0..1")
+    @Nullable private MessageOptions messageOptions;
+
+    @Nullable private ByteBuffer message;
 
     @CommandLine.Option(names = {"-r", "--retain"}, negatable = true, defaultValue = "false", description = "The message will be retained (default: false)")
     @Nullable private Boolean retain;
@@ -92,6 +96,13 @@ public class ContextPublishCommand extends ShellContextCommand implements Runnab
 
     @Override
     public void run() {
+        message = messageOptions != null ? messageOptions.getMessage() : null;
+
+        if (message == null) {
+            Logger.error("Missing required option: either '--message' or '-m:file' has to be specified");
+            return;
+        }
+
         logUnusedOptions();
 
         Logger.trace("Command {} ", this);
@@ -134,7 +145,7 @@ public class ContextPublishCommand extends ShellContextCommand implements Runnab
                 "key=" + getKey() +
                 ", topics=" + Arrays.toString(topics) +
                 ", qos=" + Arrays.toString(qos) +
-                ", message=" + new String(message.array(), StandardCharsets.UTF_8) +
+                ", message=" + MqttPublishUtils.payloadPreview(message) +
                 ", retain=" + retain +
                 (messageExpiryInterval != null ? (", messageExpiryInterval=" + messageExpiryInterval) : "") +
                 (payloadFormatIndicator != null ? (", payloadFormatIndicator=" + payloadFormatIndicator) : "") +
@@ -212,4 +223,17 @@ public class ContextPublishCommand extends ShellContextCommand implements Runnab
     public void setUserProperties(@Nullable final Mqtt5UserProperty... userProperties) {
         this.userProperties = userProperties;
     }
+
+    static class MessageOptions {
+
+        @CommandLine.Option(names = {"-m", "--message"}, converter = ByteBufferConverter.class, description = "The message to publish")
+        @Nullable private ByteBuffer messageFromArgument;
+
+        @CommandLine.Option(names = {"-m:file"}, converter = FileToMappedByteBufferConverter.class, description = "The message to publish read in from a file (memory-mapped, not copied)")
+        @Nullable private ByteBuffer messageFromFile;
+
+        @Nullable ByteBuffer getMessage() {
+            return messageFromArgument != null ? messageFromArgument : messageFromFile;
+        }
+    }
 }
@@ -19,10 +19,13 @@ import com.google.common.base.Throwables;
 import com.hivemq.cli.DefaultCLIProperties;
 import com.hivemq.cli.commands.Subscribe;
 import com.hivemq.cli.commands.Unsubscribe;
+import com.hivemq.cli.converters.ByteSizeConverter;
+import com.hivemq.cli.converters.DurationConverter;
 import com.hivemq.cli.converters.Mqtt5UserPropertyConverter;
 import com.hivemq.cli.converters.MqttQosConverter;
 import com.hivemq.cli.mqtt.MqttClientExecutor;
 import com.hivemq.cli.utils.MqttUtils;
+import com.hivemq.cli.utils.OutputFileRotation;
 import com.hivemq.client.mqtt.MqttVersion;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
 import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
@@ -75,6 +78,15 @@ public class ContextSubscribeCommand extends ShellContextCommand implements Runn
     @CommandLine.Option(names = {"-of", "--outputToFile"}, description = "A file to which the received publish messages will be written")
     @Nullable private File outputFile;
 
+    @CommandLine.Option(names = {"--outputMaxSize"}, converter = ByteSizeConverter.class, description = "Rotate the output file before it exceeds the given size in bytes, KB, MB or GB, e.g. 100MB", order = 1)
+    @Nullable private Long outputMaxSize;
+
+    @CommandLine.Option(names = {"--outputMaxAge"}, converter = DurationConverter.class, description = "Rotate the output file once it is older than the given duration in s, m, h or d, e.g. 1d", order = 1)
+    @Nullable private Long outputMaxAge;
+
+    @CommandLine.Option(names = {"--outputKeep"}, description = "The amount of rotated and compressed output files to keep (default: all)", order = 1)
+    @Nullable private Integer outputKeep;
+
     @CommandLine.Option(names = {"-oc", "--outputToConsole"}, defaultValue = "false", description = "The received messages will be written to the console (default: false)")
     private boolean printToSTDOUT;
 
@@ -87,6 +99,9 @@ public class ContextSubscribeCommand extends ShellContextCommand implements Runn
     @CommandLine.Option(names = {"-J", "--jsonOutput"}, defaultValue = "false", description = "Print the received publishes in pretty JSON format", order = 1)
     private boolean jsonOutput;
 
+    @CommandLine.Option(names = {"--compactJson"}, defaultValue = "false", description = "Print the received publishes in compact JSON format, one publish per line (implies -J)", order = 1)
+    private boolean compactJson;
+
     @CommandLine.Option(names = {"-T", "--showTopics"}, defaultValue = "false", description = "Prepend the specific topic name to the received publish", order = 1)
     private boolean showTopics;
 
@@ -103,6 +118,11 @@ public class ContextSubscribeCommand extends ShellContextCommand implements Runn
             printToSTDOUT = true;
         }
 
+        if (outputKeep != null && outputKeep < 1) {
+            Logger.error("The amount of output files to keep has to be at least 1");
+            return;
+        }
+
         if (!createOutputFile(outputFile)){
             return;
         }
@@ -177,9 +197,13 @@ public class ContextSubscribeCommand extends ShellContextCommand implements Runn
                 ", outputToConsole=" + printToSTDOUT +
                 ", base64=" + base64 +
                 ", jsonOutput=" + jsonOutput +
+                ", compactJson=" + compactJson +
                 ", showTopics=" + showTopics +
                 (userProperties != null ? (", userProperties=" + Arrays.toString(userProperties)) : "") +
                 (outputFile != null ? (", publishFile=" + outputFile.getAbsolutePath()) : "") +
+                (outputMaxSize != null ? (", outputMaxSize=" + outputMaxSize) : "") +
+                (outputMaxAge != null ? (", outputMaxAge=" + outputMaxAge) : "") +
+                (outputKeep != null ? (", outputKeep=" + outputKeep) : "") +
                 '}';
     }
 
@@ -217,13 +241,27 @@ public class ContextSubscribeCommand extends ShellContextCommand implements Runn
         return outputFile;
     }
 
+    @Nullable
+    public OutputFileRotation getOutputFileRotation() {
+        if (outputMaxSize == null && outputMaxAge == null) {
+            return null;
+        }
+        return new OutputFileRotation(
+                outputMaxSize != null ? outputMaxSize : 0,
+                outputMaxAge != null ? outputMaxAge : 0,
+                outputKeep != null ? outputKeep : 0);
+    }
+
     public boolean isPrintToSTDOUT() {
         return printToSTDOUT;
     }
 
     public boolean isBase64() { return base64; }
 
-    public boolean isJsonOutput() { return jsonOutput; }
+    public boolean isJsonOutput() { return jsonOutput || compactJson; }
+
+    @Override
+    public boolean isCompactJson() { return compactJson; }
 
     public boolean showTopics() { return showTopics; }
 
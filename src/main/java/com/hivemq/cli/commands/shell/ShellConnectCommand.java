@@ -34,6 +34,7 @@ import org.tinylog.Logger;
 import picocli.CommandLine;
 
 import javax.inject.Inject;
+import java.io.File;
 import java.util.Arrays;
 
 @CommandLine.Command(name = "con",
@@ -65,6 +66,9 @@ public class ShellConnectCommand extends AbstractCommonFlags implements Runnable
     @CommandLine.Option(names = {"-up", "--userProperty"}, converter = Mqtt5UserPropertyConverter.class, description = "A user property of the connect message")
     @Nullable private Mqtt5UserProperty[] connectUserProperties;
 
+    @CommandLine.Option(names = {"--outbox"}, description = "A journal file in which publishes are queued while the client is disconnected, the client reconnects automatically and sends them once it is connected again")
+    @Nullable private File outboxFile;
+
     public void run() {
         setDefaultOptions();
 
@@ -116,6 +120,7 @@ public class ShellConnectCommand extends AbstractCommonFlags implements Runnable
         return commonOptions() +
                 (sessionExpiryInterval != null ? (", sessionExpiryInterval=" + sessionExpiryInterval) : "") +
                 (connectUserProperties != null ? (", userProperties=" + Arrays.toString(connectUserProperties)) : "") +
+                (outboxFile != null ? (", outboxFile=" + outboxFile.getAbsolutePath()) : "") +
                 connectRestrictionOptions();
     }
 
@@ -151,4 +156,10 @@ public class ShellConnectCommand extends AbstractCommonFlags implements Runnable
         return sslConfig;
     }
 
+    @Nullable
+    @Override
+    public File getOutboxFile() {
+        return outboxFile;
+    }
+
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.commands.store;
+
+import com.hivemq.cli.MqttCLIMain;
+import com.hivemq.cli.converters.TimestampConverter;
+import com.hivemq.cli.mqtt.capture.CaptureConverter;
+import com.hivemq.cli.mqtt.store.StoreQuery;
+import com.hivemq.cli.mqtt.store.StoredPublish;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tinylog.Logger;
+import picocli.CommandLine;
+
+import javax.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+@CommandLine.Command(name = "query",
+        versionProvider = MqttCLIMain.CLIVersionProvider.class,
+        description = "Print the messages of a store recorded with 'mqtt sub --store' which match topic filters and were received in a time range.",
+        abbreviateSynopsis = false)
+
+public class StoreQueryCommand implements Runnable {
+
+    @Inject
+    public StoreQueryCommand() { }
+
+    @CommandLine.Option(names = {"--version"}, versionHelp = true, description = "display version info")
+    boolean versionInfoRequested;
+
+    @CommandLine.Option(names = {"--help"}, usageHelp = true, description = "display this help message")
+    boolean usageHelpRequested;
+
+    @CommandLine.Option(names = {"-d", "--directory"}, required = true, description = "The directory of the store to query", order = 1)
+    @NotNull private File directory;
+
+    @CommandLine.Option(names = {"-t", "--topic"}, description = "The topic filters of the messages to print (default: all topics)", order = 1)
+    @Nullable private String[] topics;
+
+    @CommandLine.Option(names = {"--from"}, converter = TimestampConverter.class, description = "The earliest receive time of the messages to print, e.g. 2020-01-31T03:12, 03:12 or milliseconds since the epoch (default: the first message)", order = 1)
+    @Nullable private Long from;
+
+    @CommandLine.Option(names = {"--to"}, converter = TimestampConverter.class, description = "The latest receive time of the messages to print, e.g. 2020-01-31T03:13, 03:13 or milliseconds since the epoch (default: the last message)", order = 1)
+    @Nullable private Long to;
+
+    @CommandLine.Option(names = {"--format"}, defaultValue = "text", description = "The output format: ${COMPLETION-CANDIDATES} (default: text)", order = 1)
+    @NotNull private CaptureConverter.Format format;
+
+    @CommandLine.Option(names = {"-o", "--output"}, description = "The file to write the messages to (default: the console)", order = 1)
+    @Nullable private File output;
+
+    @CommandLine.Option(names = {"-b64", "--base64"}, description = "Specify the encoding of the payloads as Base64 (default: false)", order = 1)
+    private boolean base64;
+
+    @CommandLine.Option(names = {"-T", "--showTopics"}, defaultValue = "false", description = "Prepend the specific topic name to the payload of the text format", order = 1)
+    private boolean showTopics;
+
+    @Override
+    public void run() {
+
+        Logger.trace("Command {} ", this);
+
+        final long fromMillis = from != null ? from : Long.MIN_VALUE;
+        final long toMillis = to != null ? to : Long.MAX_VALUE;
+        if (fromMillis > toMillis) {
+            Logger.error("The start of the time range must not be after its end");
+            return;
+        }
+
+        final StoreQuery query;
+        try {
+            query = new StoreQuery(directory,
+                    topics != null ? Arrays.asList(topics) : Collections.emptyList(),
+                    fromMillis,
+                    toMillis);
+        } catch (final IllegalArgumentException e) {
+            Logger.error("Invalid topic filter: {}", e.getMessage());
+            return;
+        } catch (final IOException e) {
+            Logger.error(e, "Could not open store {}: {}", directory.getAbsolutePath(), e.getMessage());
+            return;
+        }
+
+        final CaptureConverter converter = new CaptureConverter(format, base64, showTopics);
+        try {
+            if (output == null) {
+                // System.out must stay open, so the writer is only flushed
+                final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                print(query, converter, out);
+                out.flush();
+            } else {
+                final long count;
+                try (final Writer out = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8)) {
+                    count = print(query, converter, out);
+                }
+                System.out.printf("Wrote %d publishes from %d of %d segments to %s%n",
+                        count,
+                        query.getReadSegments(),
+                        query.getSegmentCount(),
+                        output.getAbsolutePath());
+            }
+        } catch (final IOException e) {
+            Logger.error(e, "Could not query store {}: {}", directory.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    private long print(
+            final @NotNull StoreQuery query,
+            final @NotNull CaptureConverter converter,
+            final @NotNull Writer out) throws IOException {
+
+        converter.writeHeader(out);
+        long count = 0;
+        StoredPublish stored;
+        while ((stored = query.next()) != null) {
+            out.write(converter.format(stored.toMqtt5Publish(), stored.getReceivedAtMillis()));
+            out.write(System.lineSeparator());
+            count++;
+        }
+        Logger.debug("Read {} of {} segments of store {}", query.getReadSegments(), query.getSegmentCount(), directory.getAbsolutePath());
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "directory=" + directory.getAbsolutePath() +
+                (topics != null ? (", topics=" + Arrays.toString(topics)) : "") +
+                (from != null ? (", from=" + from) : "") +
+                (to != null ? (", to=" + to) : "") +
+                ", format=" + format +
+                (output != null ? (", output=" + output.getAbsolutePath()) : "") +
+                ", base64=" + base64 +
+                ", showTopics=" + showTopics +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.converters;
+
+import org.jetbrains.annotations.NotNull;
+import picocli.CommandLine;
+
+import java.util.Locale;
+
+public class ByteSizeConverter implements CommandLine.ITypeConverter<Long> {
+
+    public static final String WRONG_INPUT_MESSAGE = "Value must be a number of bytes greater than 0, optionally followed by KB, MB or GB";
+
+    @Override
+    public Long convert(final @NotNull String s) throws Exception {
+        final String value = s.trim().toUpperCase(Locale.ROOT);
+        final long unit;
+        final int unitLength;
+        if (value.endsWith("KB")) {
+            unit = 1024L;
+            unitLength = 2;
+        } else if (value.endsWith("MB")) {
+            unit = 1024L * 1024;
+            unitLength = 2;
+        } else if (value.endsWith("GB")) {
+            unit = 1024L * 1024 * 1024;
+            unitLength = 2;
+        } else if (value.endsWith("B")) {
+            unit = 1;
+            unitLength = 1;
+        } else {
+            unit = 1;
+            unitLength = 0;
+        }
+        try {
+            final long size = Long.parseLong(value.substring(0, value.length() - unitLength).trim());
+            if (size <= 0 || size > Long.MAX_VALUE / unit) {
+                throw new Exception(WRONG_INPUT_MESSAGE);
+            }
+            return size * unit;
+        } catch (final NumberFormatException p) {
+            throw new Exception(WRONG_INPUT_MESSAGE);
+        }
+    }
+}
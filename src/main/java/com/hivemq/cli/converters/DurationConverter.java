@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.converters;
+
+import org.jetbrains.annotations.NotNull;
+import picocli.CommandLine;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a duration like {@code 30s}, {@code 15m}, {@code 6h} or {@code 1d} to milliseconds.
+ * A number without unit is interpreted as seconds.
+ */
+public class DurationConverter implements CommandLine.ITypeConverter<Long> {
+
+    public static final String WRONG_INPUT_MESSAGE = "Value must be a number greater than 0, optionally followed by s, m, h or d";
+
+    @Override
+    public Long convert(final @NotNull String s) throws Exception {
+        final String value = s.trim().toLowerCase(Locale.ROOT);
+        if (value.isEmpty()) {
+            throw new Exception(WRONG_INPUT_MESSAGE);
+        }
+        final TimeUnit unit;
+        switch (value.charAt(value.length() - 1)) {
+            case 'd':
+                unit = TimeUnit.DAYS;
+                break;
+            case 'h':
+                unit = TimeUnit.HOURS;
+                break;
+            case 'm':
+                unit = TimeUnit.MINUTES;
+                break;
+            case 's':
+                unit = TimeUnit.SECONDS;
+                break;
+            default:
+                unit = null;
+        }
+        try {
+            final long amount = Long.parseLong(unit == null ? value : value.substring(0, value.length() - 1).trim());
+            if (amount <= 0) {
+                throw new Exception(WRONG_INPUT_MESSAGE);
+            }
+            return (unit == null ? TimeUnit.SECONDS : unit).toMillis(amount);
+        } catch (final NumberFormatException p) {
+            throw new Exception(WRONG_INPUT_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.converters;
+
+import org.jetbrains.annotations.NotNull;
+import picocli.CommandLine;
+
+public class ReplaySpeedConverter implements CommandLine.ITypeConverter<Double> {
+
+    public static final String MAX = "max";
+    public static final String WRONG_INPUT_MESSAGE = "Value must be a number greater than 0 or 'max'";
+
+    @Override
+    public Double convert(final @NotNull String s) throws Exception {
+        if (MAX.equalsIgnoreCase(s)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        try {
+            final double speed = Double.parseDouble(s);
+            if (!(speed > 0) || Double.isInfinite(speed)) {
+                throw new Exception(WRONG_INPUT_MESSAGE);
+            }
+            return speed;
+        } catch (final NumberFormatException p) {
+            throw new Exception(WRONG_INPUT_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.converters;
+
+import org.jetbrains.annotations.NotNull;
+import picocli.CommandLine;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+public class TimestampConverter implements CommandLine.ITypeConverter<Long> {
+
+    public static final String WRONG_INPUT_MESSAGE = "Value must be milliseconds since the epoch, an ISO-8601 date and time like 2020-01-31T03:12:00Z, a local date and time like 2020-01-31T03:12, a local date like 2020-01-31 or a local time of today like 03:12";
+
+    private final @NotNull Clock clock;
+
+    public TimestampConverter() {
+        this(Clock.systemDefaultZone());
+    }
+
+    TimestampConverter(final @NotNull Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Long convert(final @NotNull String s) throws Exception {
+        final String value = s.trim().replace(' ', 'T');
+        if (!value.isEmpty() && value.chars().allMatch(Character::isDigit)) {
+            try {
+                return Long.parseLong(value);
+            } catch (final NumberFormatException e) {
+                throw new Exception(WRONG_INPUT_MESSAGE);
+            }
+        }
+        try {
+            return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+        } catch (final DateTimeParseException ignored) {
+            // no offset, the value is a local time
+        }
+        try {
+            return LocalDateTime.parse(value).atZone(clock.getZone()).toInstant().toEpochMilli();
+        } catch (final DateTimeParseException ignored) {
+            // no time
+        }
+        try {
+            return LocalDate.parse(value).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        } catch (final DateTimeParseException ignored) {
+            // no date
+        }
+        try {
+            return LocalDate.now(clock).atTime(LocalTime.parse(value)).atZone(clock.getZone()).toInstant().toEpochMilli();
+        } catch (final DateTimeParseException e) {
+            throw new Exception(WRONG_INPUT_MESSAGE);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.hivemq.cli.commandline.CommandErrorMessageHandler;
 import com.hivemq.cli.commandline.CommandLineConfig;
 import com.hivemq.cli.commands.MqttCLICommand;
 import com.hivemq.cli.commands.cli.PublishCommand;
+import com.hivemq.cli.commands.cli.ReplayCommand;
 import com.hivemq.cli.commands.cli.SubscribeCommand;
 import com.hivemq.cli.commands.cli.TestBrokerCommand;
 import com.hivemq.cli.commands.shell.ShellCommand;
@@ -53,6 +54,10 @@ class CLIModule {
             final @NotNull SubscribeCommand subscribeCommand,
             final @NotNull ShellCommand shellCommand,
             final @NotNull TestBrokerCommand testBrokerCommand,
+            final @NotNull ReplayCommand replayCommand,
+            final @NotNull @Named("bench-cli") CommandLine benchCliCommandLine,
+            final @NotNull @Named("capture-cli") CommandLine captureCliCommandLine,
+            final @NotNull @Named("store-cli") CommandLine storeCliCommandLine,
             final @NotNull @Named("hivemq-cli") CommandLine hivemqCliCommandLine,
             final @NotNull @Named("swarm-cli") CommandLine swarmCLICommand,
             final @NotNull CommandLineConfig config,
@@ -63,6 +68,10 @@ class CLIModule {
                 .addSubcommand(subscribeCommand)
                 .addSubcommand(shellCommand)
                 .addSubcommand(testBrokerCommand)
+                .addSubcommand(replayCommand)
+                .addSubcommand(benchCliCommandLine)
+                .addSubcommand(captureCliCommandLine)
+                .addSubcommand(storeCliCommandLine)
                 .addSubcommand(hivemqCliCommandLine)
                 .addSubcommand(swarmCLICommand)
                 .setColorScheme(config.getColorScheme())
@@ -26,6 +26,9 @@ import javax.inject.Singleton;
 @Singleton
 @Component(modules = {
         CLIModule.class,
+        BenchCLIModule.class,
+        CaptureCLIModule.class,
+        StoreCLIModule.class,
         HiveMQCLIModule.class,
         ShellModule.class,
         SwarmCLIModule.class
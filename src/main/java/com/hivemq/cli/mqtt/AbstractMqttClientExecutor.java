@@ -15,6 +15,9 @@
  */
 package com.hivemq.cli.mqtt;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.hivemq.cli.commands.Connect;
 import com.hivemq.cli.commands.ConnectRestrictions;
 import com.hivemq.cli.commands.Context;
@@ -23,13 +26,29 @@ import com.hivemq.cli.commands.Publish;
 import com.hivemq.cli.commands.Subscribe;
 import com.hivemq.cli.commands.Unsubscribe;
 import com.hivemq.cli.commands.Will;
+import com.hivemq.cli.commands.bench.BenchPublishCommand;
+import com.hivemq.cli.commands.cli.AbstractConnectFlags;
 import com.hivemq.cli.commands.cli.PublishCommand;
+import com.hivemq.cli.commands.cli.ReplayCommand;
 import com.hivemq.cli.commands.cli.SubscribeCommand;
+import com.hivemq.cli.mqtt.capture.CaptureReader;
+import com.hivemq.cli.mqtt.capture.CapturedPublish;
+import com.hivemq.cli.mqtt.chunk.Chunk;
+import com.hivemq.cli.mqtt.outbox.OutboxJournal;
+import com.hivemq.cli.utils.DatasetReader;
+import com.hivemq.cli.utils.DelimitedRecordReader;
+import com.hivemq.cli.utils.LatencyHistogram;
+import com.hivemq.cli.utils.LoggerUtils;
+import com.hivemq.cli.utils.MessageTemplate;
 import com.hivemq.cli.utils.MqttUtils;
+import com.hivemq.cli.utils.PayloadCodec;
+import com.hivemq.cli.utils.TimerWheel;
 import com.hivemq.client.mqtt.MqttClient;
 import com.hivemq.client.mqtt.MqttClientBuilder;
+import com.hivemq.client.mqtt.MqttClientExecutorConfig;
 import com.hivemq.client.mqtt.MqttClientState;
 import com.hivemq.client.mqtt.MqttGlobalPublishFilter;
+import com.hivemq.client.mqtt.MqttVersion;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
 import com.hivemq.client.mqtt.mqtt3.Mqtt3Client;
 import com.hivemq.client.mqtt.mqtt3.message.auth.Mqtt3SimpleAuth;
@@ -50,28 +69,65 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.tinylog.Logger;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
 
 abstract class AbstractMqttClientExecutor {
 
     @NotNull private static final Map<String, ClientData> clientKeyToClientData = new ConcurrentHashMap<>();
 
+    private static final int DEFAULT_RECEIVE_MAXIMUM = 65_535;
+    private static final int DEFAULT_MAXIMUM_PACKET_SIZE = 268_435_460;
+    private static final @NotNull ByteBuffer EMPTY_PAYLOAD = ByteBuffer.allocate(0);
+
+    // Outboxes are drained on a single thread, one after another
+    private static final @NotNull ExecutorService OUTBOX_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("mqtt-cli-outbox-%d")
+            .setDaemon(true)
+            .build());
+
+    // 1 ms ticks on 1024 buckets: a round of the timer wheel spans about a second
+    private static final long TIMER_WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int TIMER_WHEEL_BUCKETS = 1024;
+
+    // All clients share one netty event loop group, so opening many connections does not allocate threads per client
+    private static final int NETTY_THREADS = Runtime.getRuntime().availableProcessors();
+    @NotNull private static final MqttClientExecutorConfig EXECUTOR_CONFIG = MqttClientExecutorConfig.builder()
+            .nettyExecutor(Executors.newFixedThreadPool(NETTY_THREADS, new ThreadFactoryBuilder()
+                    .setNameFormat("mqtt-cli-netty-%d")
+                    .setDaemon(true)
+                    .build()))
+            .nettyThreads(NETTY_THREADS)
+            .build();
+
 
     abstract void mqtt5Connect(final @NotNull Mqtt5Client client, final @NotNull Mqtt5Connect connectMessage, final @NotNull Connect connect);
 
     abstract void mqtt3Connect(final @NotNull Mqtt3Client client, final @NotNull Mqtt3Connect connectMessage, final @NotNull Connect connect);
 
-    abstract void mqtt5Subscribe(final @NotNull Mqtt5Client client, final @NotNull Subscribe subscribe, final @NotNull String topic, final @NotNull MqttQos qos);
+    abstract void mqtt5Subscribe(final @NotNull Mqtt5Client client, final @NotNull Subscribe subscribe, final @NotNull String[] topics, final @NotNull MqttQos[] qos);
 
-    abstract void mqtt3Subscribe(final @NotNull Mqtt3Client client, final @NotNull Subscribe subscribe, final @NotNull String topic, final @NotNull MqttQos qos);
+    abstract void mqtt3Subscribe(final @NotNull Mqtt3Client client, final @NotNull Subscribe subscribe, final @NotNull String[] topics, final @NotNull MqttQos[] qos);
 
-    abstract void mqtt5Publish(final @NotNull Mqtt5Client client, final @NotNull Publish publish, final @NotNull String topic, final @NotNull MqttQos qos);
+    abstract @NotNull CompletableFuture<?> mqtt5Publish(final @NotNull Mqtt5Client client, final @NotNull Mqtt5Publish publish);
 
-    abstract void mqtt3Publish(final @NotNull Mqtt3Client client, final @NotNull Publish publish, final @NotNull String topic, final @NotNull MqttQos qos);
+    abstract @NotNull CompletableFuture<?> mqtt3Publish(final @NotNull Mqtt3Client client, final @NotNull Mqtt3Publish publish);
 
     abstract void mqtt5Unsubscribe(final @NotNull Mqtt5Client client, final @NotNull Unsubscribe unsubscribe);
 
@@ -82,57 +138,918 @@ abstract class AbstractMqttClientExecutor {
     abstract void mqtt3Disconnect(final @NotNull Mqtt3Client client, final @NotNull Disconnect disconnect);
 
 
-    public MqttClient subscribe(final @NotNull SubscribeCommand subscribeCommand) {
+    // Connects and subscribes every consumer of the command. The consumers share the event loop of all clients and
+    // the outputs of the command.
+    public @NotNull List<MqttClient> subscribe(final @NotNull SubscribeCommand subscribeCommand) {
 
-        final MqttClient client = connect(subscribeCommand);
+        final List<MqttClient> clients = connect(subscribeCommand, subscribeCommand.getConsumers());
 
-        subscribe(client, subscribeCommand);
+        for (final MqttClient client : clients) {
+            subscribe(client, subscribeCommand);
+        }
 
-        return client;
+        return clients;
 
     }
 
     public void subscribe(final @NotNull MqttClient client, final @NotNull Subscribe subscribe) {
-        for (int i = 0; i < subscribe.getTopics().length; i++) {
-            final String topic = subscribe.getTopics()[i];
-
-            int qosI = i < subscribe.getQos().length ? i: subscribe.getQos().length-1;
-            final MqttQos qos = subscribe.getQos()[qosI];
+        final String[] topics = subscribe.getTopics();
+        final MqttQos[] qos = matchQosToTopics(topics, subscribe.getQos());
 
-            switch (client.getConfig().getMqttVersion()) {
-                case MQTT_5_0:
-                    mqtt5Subscribe((Mqtt5Client) client, subscribe, topic, qos);
-                    break;
-                case MQTT_3_1_1:
-                    mqtt3Subscribe((Mqtt3Client) client, subscribe, topic, qos);
-                    break;
-            }
+        switch (client.getConfig().getMqttVersion()) {
+            case MQTT_5_0:
+                mqtt5Subscribe((Mqtt5Client) client, subscribe, topics, qos);
+                break;
+            case MQTT_3_1_1:
+                mqtt3Subscribe((Mqtt3Client) client, subscribe, topics, qos);
+                break;
         }
     }
 
     public void publish(final @NotNull PublishCommand publishCommand) {
 
-        final MqttClient client = connect(publishCommand);
+        final List<MqttClient> clients = connect(publishCommand, publishCommand.getConnections());
 
-        publish(client, publishCommand);
+        if (publishCommand.isStdin()) {
+            publishFromStdin(clients, publishCommand);
+        }
+        else if (publishCommand.getFromFile() != null) {
+            publishFromFile(clients, publishCommand, publishCommand.getFromFile());
+        }
+        else if (publishCommand.getChunkSize() != null || exceedsMaximumPacketSize(clients, publishCommand)) {
+            publishChunked(clients, publishCommand, publishCommand.getChunkSize());
+        }
+        else if (publishCommand.getInterval() != null) {
+            publishPeriodically(clients, publishCommand, publishCommand.getInterval());
+        }
+        else if (publishCommand.getCount() > 1 || publishCommand.getRate() != null || clients.size() > 1 || publishCommand.isTemplate()) {
+            publishRepeatedly(clients, publishCommand);
+        }
+        else {
+            publish(clients.get(0), publishCommand);
+        }
 
     }
 
+    // Publishes the message to all topics concurrently. The number of outstanding publishes is bounded by the
+    // receive maximum of the broker, failures are reported once all publishes completed.
     public void publish(final @NotNull MqttClient client, final @NotNull Publish publish) {
-        for (int i = 0; i < publish.getTopics().length; i++) {
-            final String topic = publish.getTopics()[i];
-            int qosI = i < publish.getQos().length ? i: publish.getQos().length-1;
-            final MqttQos qos = publish.getQos()[qosI];
+        final String[] topics = publish.getTopics();
+        final MqttQos[] qos = matchQosToTopics(topics, publish.getQos());
 
-            switch (client.getConfig().getMqttVersion()) {
-                case MQTT_5_0:
-                    mqtt5Publish((Mqtt5Client) client, publish, topic, qos);
-                    break;
-                case MQTT_3_1_1:
-                    mqtt3Publish((Mqtt3Client) client, publish, topic, qos);
-                    break;
+        final ClientData clientData = clientKeyToClientData.get(getKey(client));
+        if (clientData != null && clientData.getOutbox() != null) {
+            queue(client, clientData.getOutbox(), publish, topics, qos);
+            return;
+        }
+        final InFlightWindow window = new InFlightWindow(getSendMaximum(client));
+
+        final List<CompletableFuture<?>> futures = new ArrayList<>(topics.length);
+        try {
+            for (int i = 0; i < topics.length; i++) {
+                window.acquire();
+                final PublishTemplate publishTemplate = PublishTemplate.of(getMqttVersion(client), publish, topics[i], qos[i], publish.getMessage());
+                final CompletableFuture<?> future = publish(client, publishTemplate, topics[i], publish.getMessage());
+                window.track(future);
+                futures.add(future);
+            }
+            window.awaitEmpty();
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.warn("Publishing was interrupted after {} of {} topics", futures.size(), topics.length);
+            return;
+        }
+
+        if (window.getFailed() > 0) {
+            final List<String> failedTopics = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                final int topicIndex = i;
+                futures.get(i).whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        failedTopics.add("'" + topics[topicIndex] + "' (" + Throwables.getRootCause(throwable).getMessage() + ")");
+                    }
+                });
+            }
+            Logger.error("{} failed PUBLISH to {} of {} TOPICS: {}",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    failedTopics.size(),
+                    topics.length,
+                    String.join(", ", failedTopics));
+        }
+    }
+
+    // Publishes the message count times to every topic without waiting for the acknowledgement of a publish before
+    // sending the next one. The amount of unacknowledged publishes is bounded by the in-flight window. The publishes
+    // are spread round-robin across the given clients.
+    void publishRepeatedly(final @NotNull List<MqttClient> clients, final @NotNull PublishCommand publishCommand) {
+        final String[] topics = publishCommand.getTopics();
+        final MqttQos[] qos = publishCommand.getQos();
+        final ByteBuffer message = publishCommand.getMessage();
+        final long count = publishCommand.getCount();
+        final RateLimiter rateLimiter = createRateLimiter(publishCommand.getRate());
+        final InFlightWindow window = new InFlightWindow(Math.min(publishCommand.getMaxInFlight(), getSendMaximum(clients)));
+        final TopicAliasTable[] topicAliasTables = createTopicAliasTables(clients);
+        final PublishTemplate[] publishTemplates = createPublishTemplates(clients, publishCommand, topics, qos, message);
+
+        final MessageTemplate[] topicTemplates = publishCommand.getTopicTemplates();
+        final StringBuilder topicBuilder = new StringBuilder();
+        final MessageTemplate messageTemplate = publishCommand.getMessageTemplate();
+        final PayloadCodec codec = publishCommand.getCompress();
+        final PayloadBufferPool payloadBufferPool = messageTemplate != null && !messageTemplate.isConstant()
+                ? new PayloadBufferPool(window.getSize(), messageTemplate.getMaxLength())
+                : null;
+
+        final long start = System.nanoTime();
+        long sent = 0;
+        long bytes = 0;
+        try {
+            int c = 0;
+            for (long n = 0; n < count; n++) {
+                for (int i = 0; i < topics.length; i++) {
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire();
+                    }
+                    window.acquire();
+
+                    final String topic = topicTemplates != null ? topicTemplates[i].render(topicBuilder, sent, c) : topics[i];
+                    final ByteBuffer payload = payloadBufferPool != null
+                            ? renderPayload(messageTemplate, payloadBufferPool, codec, sent, c, 0)
+                            : message;
+                    bytes += payload.remaining();
+
+                    useTopicAlias(topicAliasTables[c], topic);
+                    final CompletableFuture<?> future = publish(clients.get(c), publishTemplates[i], topic, payload);
+                    if (payloadBufferPool != null && codec == null) {
+                        future.whenComplete((result, throwable) -> payloadBufferPool.release(payload));
+                    }
+                    window.track(future);
+                    sent++;
+                    c = (c + 1) % clients.size();
+                }
+            }
+            window.awaitEmpty();
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.warn("Publishing was interrupted after {} messages", sent);
+        }
+
+        printThroughput(clients.get(0), sent, bytes, System.nanoTime() - start, window);
+        printTopicAliasSavings(topicAliasTables);
+    }
+
+    // Renders the payload of a message into a pooled buffer. A compressed payload is a copy, so the rendered buffer is
+    // returned to the pool right away, otherwise it has to be released once the publish completed.
+    private static @NotNull ByteBuffer renderPayload(
+            final @NotNull MessageTemplate messageTemplate,
+            final @NotNull PayloadBufferPool payloadBufferPool,
+            final @Nullable PayloadCodec codec,
+            final long sequenceNumber,
+            final int clientIndex,
+            final int scheduleIndex) throws InterruptedException {
+        final ByteBuffer payload = payloadBufferPool.acquire();
+        messageTemplate.render(payload, sequenceNumber, clientIndex, scheduleIndex);
+        payload.flip();
+        if (codec == null) {
+            return payload;
+        }
+        final ByteBuffer compressed = codec.encode(payload);
+        payloadBufferPool.release(payload);
+        return compressed;
+    }
+
+    // Publishes to every topic periodically from a single thread. Every schedule is a timer on a hashed timer wheel
+    // and is rescheduled relative to its previous deadline instead of the time it actually fired, so the schedules do
+    // not drift. The lag between the deadline and the publish reveals when the publisher itself falls behind.
+    void publishPeriodically(final @NotNull List<MqttClient> clients, final @NotNull PublishCommand publishCommand, final long intervalMillis) {
+        final String[] topics = publishCommand.getTopics();
+        final MqttQos[] qos = publishCommand.getQos();
+        final int schedulesPerTopic = publishCommand.getSchedules();
+        final int scheduleCount = topics.length * schedulesPerTopic;
+        final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        final InFlightWindow window = new InFlightWindow(Math.min(publishCommand.getMaxInFlight(), getSendMaximum(clients)));
+        final TopicAliasTable[] topicAliasTables = createTopicAliasTables(clients);
+        final PeriodicPublisher publisher = new PeriodicPublisher(clients, publishCommand, window, topicAliasTables, intervalNanos);
+
+        final long start = System.nanoTime();
+        final TimerWheel<Schedule> wheel = new TimerWheel<>(start, TIMER_WHEEL_TICK_NANOS, TIMER_WHEEL_BUCKETS);
+        publisher.wheel = wheel;
+        for (int i = 0; i < topics.length; i++) {
+            for (int s = 0; s < schedulesPerTopic; s++) {
+                final int n = i * schedulesPerTopic + s;
+                // spread the first deadlines across the interval, so the schedules do not fire in bursts
+                wheel.schedule(new Schedule(i, s, n % clients.size()), start + (long) ((double) intervalNanos * n / scheduleCount));
+            }
+        }
+
+        try {
+            while (!wheel.isEmpty()) {
+                wheel.advance(System.nanoTime(), publisher);
+                final long wait = wheel.getNextTickNanos() - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            window.awaitEmpty();
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.warn("Publishing was interrupted after {} messages", publisher.sent);
+        }
+
+        printThroughput(clients.get(0), publisher.sent, publisher.bytes, System.nanoTime() - start, window);
+        printTopicAliasSavings(topicAliasTables);
+        final LatencyHistogram lag = publisher.lag;
+        System.out.printf("%d schedules every %d ms, schedule lag (ms): p50=%.3f p99=%.3f p99.9=%.3f max=%.3f%n",
+                scheduleCount,
+                intervalMillis,
+                lag.getValueAtPercentile(50) / 1000D,
+                lag.getValueAtPercentile(99) / 1000D,
+                lag.getValueAtPercentile(99.9) / 1000D,
+                lag.getMax() / 1000D);
+    }
+
+    private static final class Schedule extends TimerWheel.Timer {
+
+        private final int topicIndex;
+        private final int scheduleIndex;
+        private final int clientIndex;
+        private long published;
+
+        Schedule(final int topicIndex, final int scheduleIndex, final int clientIndex) {
+            this.topicIndex = topicIndex;
+            this.scheduleIndex = scheduleIndex;
+            this.clientIndex = clientIndex;
+        }
+    }
+
+    // Publishes the message of an expired schedule and schedules its next publish one interval after its deadline.
+    private final class PeriodicPublisher implements TimerWheel.Handler<Schedule> {
+
+        private final @NotNull List<MqttClient> clients;
+        private final @NotNull String[] topics;
+        private final @NotNull ByteBuffer message;
+        private final long count;
+        private final long intervalNanos;
+        private final @NotNull InFlightWindow window;
+        private final @NotNull TopicAliasTable[] topicAliasTables;
+        private final @NotNull PublishTemplate[] publishTemplates;
+        private final @Nullable MessageTemplate[] topicTemplates;
+        private final @Nullable MessageTemplate messageTemplate;
+        private final @Nullable PayloadCodec codec;
+        private final @Nullable PayloadBufferPool payloadBufferPool;
+        private final @NotNull StringBuilder topicBuilder = new StringBuilder();
+        private final @NotNull LatencyHistogram lag = new LatencyHistogram(TimeUnit.HOURS.toMicros(1));
+        private @Nullable TimerWheel<Schedule> wheel;
+        private long sent;
+        private long bytes;
+
+        PeriodicPublisher(
+                final @NotNull List<MqttClient> clients,
+                final @NotNull PublishCommand publishCommand,
+                final @NotNull InFlightWindow window,
+                final @NotNull TopicAliasTable[] topicAliasTables,
+                final long intervalNanos) {
+            this.clients = clients;
+            this.topics = publishCommand.getTopics();
+            this.message = publishCommand.getMessage();
+            this.count = publishCommand.getCount();
+            this.intervalNanos = intervalNanos;
+            this.window = window;
+            this.topicAliasTables = topicAliasTables;
+            this.publishTemplates = createPublishTemplates(clients, publishCommand, topics, publishCommand.getQos(), message);
+            this.topicTemplates = publishCommand.getTopicTemplates();
+            this.messageTemplate = publishCommand.getMessageTemplate();
+            this.codec = publishCommand.getCompress();
+            this.payloadBufferPool = messageTemplate != null && !messageTemplate.isConstant()
+                    ? new PayloadBufferPool(window.getSize(), messageTemplate.getMaxLength())
+                    : null;
+        }
+
+        @Override
+        public void expired(final @NotNull Schedule schedule) throws InterruptedException {
+            lag.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - schedule.getDeadline()));
+            window.acquire();
+
+            final int c = schedule.clientIndex;
+            final int i = schedule.topicIndex;
+            final String topic = topicTemplates != null
+                    ? topicTemplates[i].render(topicBuilder, sent, c, schedule.scheduleIndex)
+                    : topics[i];
+            final ByteBuffer payload = payloadBufferPool != null
+                    ? renderPayload(messageTemplate, payloadBufferPool, codec, sent, c, schedule.scheduleIndex)
+                    : message;
+            bytes += payload.remaining();
+
+            useTopicAlias(topicAliasTables[c], topic);
+            final CompletableFuture<?> future = publish(clients.get(c), publishTemplates[i], topic, payload);
+            if (payloadBufferPool != null && codec == null) {
+                future.whenComplete((result, throwable) -> payloadBufferPool.release(payload));
+            }
+            window.track(future);
+            sent++;
+
+            if (++schedule.published < count) {
+                wheel.schedule(schedule, schedule.getDeadline() + intervalNanos);
+            }
+        }
+    }
+
+    // Publishes every record read from stdin to every topic as soon as it arrived. Reading stops while the in-flight
+    // window is full, so a fast producer is slowed down to the pace of the broker's acknowledgements.
+    private void publishFromStdin(final @NotNull List<MqttClient> clients, final @NotNull PublishCommand publishCommand) {
+        final String[] topics = publishCommand.getTopics();
+        final MqttQos[] qos = publishCommand.getQos();
+        final RateLimiter rateLimiter = createRateLimiter(publishCommand.getRate());
+        final InFlightWindow window = new InFlightWindow(Math.min(publishCommand.getMaxInFlight(), getSendMaximum(clients)));
+        final TopicAliasTable[] topicAliasTables = createTopicAliasTables(clients);
+        final PublishTemplate[] publishTemplates = createPublishTemplates(clients, publishCommand, topics, qos, EMPTY_PAYLOAD);
+
+        final long start = System.nanoTime();
+        long sent = 0;
+        long bytes = 0;
+        final MessageTemplate[] topicTemplates = publishCommand.getTopicTemplates();
+        final StringBuilder topicBuilder = new StringBuilder();
+        final PayloadCodec codec = publishCommand.getCompress();
+
+        try (final DelimitedRecordReader reader = new DelimitedRecordReader(System.in, publishCommand.getStdinFormat())) {
+            int c = 0;
+            ByteBuffer record;
+            while ((record = reader.next()) != null) {
+                if (codec != null) {
+                    record = codec.encode(record);
+                }
+                for (int i = 0; i < topics.length; i++) {
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire();
+                    }
+                    window.acquire();
+                    final String topic = topicTemplates != null ? topicTemplates[i].render(topicBuilder, sent, c) : topics[i];
+                    useTopicAlias(topicAliasTables[c], topic);
+                    window.track(publish(clients.get(c), publishTemplates[i], topic, record));
+                    sent++;
+                    bytes += record.remaining();
+                    c = (c + 1) % clients.size();
+                }
+            }
+            window.awaitEmpty();
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.warn("Publishing was interrupted after {} messages", sent);
+        }
+        catch (final IOException ex) {
+            Logger.error(ex, "Could not read from stdin after {} messages: {}", sent, ex.getMessage());
+        }
+
+        printThroughput(clients.get(0), sent, bytes, System.nanoTime() - start, window);
+        printTopicAliasSavings(topicAliasTables);
+    }
+
+    // Publishes every record of a dataset to the topics, extended by the values of the topic fields of the record.
+    // Records which lack a topic field or whose value is no valid topic level are skipped.
+    private void publishFromFile(final @NotNull List<MqttClient> clients, final @NotNull PublishCommand publishCommand, final @NotNull File file) {
+        final String[] topics = publishCommand.getTopics();
+        final MqttQos[] qos = publishCommand.getQos();
+        final String[] topicFields = publishCommand.getTopicFields() != null ? publishCommand.getTopicFields() : new String[0];
+        final RateLimiter rateLimiter = createRateLimiter(publishCommand.getRate());
+        final InFlightWindow window = new InFlightWindow(Math.min(publishCommand.getMaxInFlight(), getSendMaximum(clients)));
+        final TopicAliasTable[] topicAliasTables = createTopicAliasTables(clients);
+        final PublishTemplate[] publishTemplates = createPublishTemplates(clients, publishCommand, topics, qos, EMPTY_PAYLOAD);
+
+        final long start = System.nanoTime();
+        long records = 0;
+        long skipped = 0;
+        long sent = 0;
+        long bytes = 0;
+        final MessageTemplate[] topicTemplates = publishCommand.getTopicTemplates();
+        final StringBuilder topicBuilder = new StringBuilder();
+        final PayloadCodec codec = publishCommand.getCompress();
+
+        try (final DatasetReader reader = new DatasetReader(new FileInputStream(file), DatasetReader.Format.forFile(file), topicFields)) {
+            int c = 0;
+            ByteBuffer record;
+            while ((record = reader.next()) != null) {
+                records++;
+                final String topicLevels = topicLevels(reader, topicFields);
+                if (topicLevels == null) {
+                    Logger.debug("Skipping record {} of {} as it lacks a valid value for the topic fields {}",
+                            records,
+                            file.getName(),
+                            Arrays.toString(topicFields));
+                    skipped++;
+                    continue;
+                }
+                if (codec != null) {
+                    record = codec.encode(record);
+                }
+                for (int i = 0; i < topics.length; i++) {
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire();
+                    }
+                    window.acquire();
+                    final String topic = (topicTemplates != null ? topicTemplates[i].render(topicBuilder, sent, c) : topics[i]) + topicLevels;
+                    useTopicAlias(topicAliasTables[c], topic);
+                    window.track(publish(clients.get(c), publishTemplates[i], topic, record));
+                    sent++;
+                    bytes += record.remaining();
+                    c = (c + 1) % clients.size();
+                }
+            }
+            window.awaitEmpty();
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.warn("Publishing was interrupted after {} messages", sent);
+        }
+        catch (final IOException ex) {
+            Logger.error(ex, "Could not read record {} from {}: {}", records + 1, file.getAbsolutePath(), ex.getMessage());
+        }
+
+        if (skipped > 0) {
+            Logger.warn("Skipped {} of {} records which lack a valid value for the topic fields {}", skipped, records, Arrays.toString(topicFields));
+        }
+        printThroughput(clients.get(0), sent, bytes, System.nanoTime() - start, window);
+        printTopicAliasSavings(topicAliasTables);
+    }
+
+    // Returns the topic levels which are appended to the topics for the current record or null if a value is missing
+    // or cannot be a topic level.
+    private static @Nullable String topicLevels(final @NotNull DatasetReader reader, final @NotNull String[] topicFields) {
+        if (topicFields.length == 0) {
+            return "";
+        }
+        final StringBuilder topicLevels = new StringBuilder();
+        for (int i = 0; i < topicFields.length; i++) {
+            final String value = reader.getValue(i);
+            if (value == null || value.isEmpty() || value.indexOf('+') >= 0 || value.indexOf('#') >= 0) {
+                return null;
             }
+            topicLevels.append('/').append(value);
+        }
+        return topicLevels.toString();
+    }
 
+    // A message which does not fit into the maximum packet size of the broker is chunked without '--chunkSize' if it is
+    // published once in a way chunks support.
+    private static boolean exceedsMaximumPacketSize(final @NotNull List<MqttClient> clients, final @NotNull PublishCommand publishCommand) {
+        if (!publishCommand.isChunkable() || getMqttVersion(clients.get(0)) != MqttVersion.MQTT_5_0) {
+            return false;
+        }
+        final String[] topics = publishCommand.getTopics();
+        final ByteBuffer message = publishCommand.getMessage();
+        final PublishTemplate[] publishTemplates = createPublishTemplates(clients, publishCommand, topics, publishCommand.getQos(), EMPTY_PAYLOAD);
+        return message.remaining() + (long) getChunkOverhead(publishTemplates, topics, message.remaining()) > getSendMaximumPacketSize(clients);
+    }
+
+    // Splits the message into chunks and publishes them to every topic without waiting for the acknowledgement of a
+    // chunk before sending the next one. The chunks are slices of the message, so a message mapped from a file is read
+    // chunk by chunk and never copied into memory as a whole. The chunks of every topic form a transfer which is
+    // identified by random correlation data. Without a chunk size, the chunks fill the maximum packet size of the
+    // broker. A chunk size whose chunks do not fit into the maximum packet size is rejected before anything is sent.
+    private void publishChunked(final @NotNull List<MqttClient> clients, final @NotNull PublishCommand publishCommand, final @Nullable Integer requestedChunkSize) {
+        final String[] topics = publishCommand.getTopics();
+        final MqttQos[] qos = publishCommand.getQos();
+        final ByteBuffer message = publishCommand.getMessage();
+        final RateLimiter rateLimiter = createRateLimiter(publishCommand.getRate());
+        final InFlightWindow window = new InFlightWindow(Math.min(publishCommand.getMaxInFlight(), getSendMaximum(clients)));
+        final TopicAliasTable[] topicAliasTables = createTopicAliasTables(clients);
+        final PublishTemplate[] publishTemplates = createPublishTemplates(clients, publishCommand, topics, qos, EMPTY_PAYLOAD);
+
+        final int maximumPacketSize = getSendMaximumPacketSize(clients);
+        final int overhead = getChunkOverhead(publishTemplates, topics, message.remaining());
+        if (overhead >= maximumPacketSize) {
+            Logger.error("The topic and properties of a chunk ({} bytes) leave no room for a payload in the maximum packet size of {} bytes",
+                    overhead,
+                    maximumPacketSize);
+            return;
+        }
+        final int chunkSize = requestedChunkSize != null ? requestedChunkSize : maximumPacketSize - overhead;
+        if ((long) chunkSize + overhead > maximumPacketSize) {
+            Logger.error("Chunks of {} bytes plus up to {} bytes of topic and properties exceed the maximum packet size of {} bytes, use a chunk size of at most {} bytes",
+                    chunkSize,
+                    overhead,
+                    maximumPacketSize,
+                    maximumPacketSize - overhead);
+            return;
+        }
+        final int chunkCount = (int) Math.max(1, (message.remaining() + (long) chunkSize - 1) / chunkSize);
+
+        for (int i = 0; i < topics.length; i++) {
+            if (qos[i] == MqttQos.AT_MOST_ONCE) {
+                Logger.warn("Chunks are published to TOPIC '{}' with QoS 0, lost chunks prevent the reassembly", topics[i]);
+            }
+        }
+        System.out.printf("Splitting the message of %d bytes into %d chunks of at most %d bytes%n",
+                message.remaining(),
+                chunkCount,
+                chunkSize);
+
+        final long start = System.nanoTime();
+        long sent = 0;
+        long bytes = 0;
+        try {
+            int c = 0;
+            for (int i = 0; i < topics.length; i++) {
+                final byte[] transferId = new byte[Chunk.TRANSFER_ID_LENGTH];
+                ThreadLocalRandom.current().nextBytes(transferId);
+                final Mqtt5Publish publish = publishTemplates[i].toMqtt5Publish(topics[i], EMPTY_PAYLOAD);
+
+                for (int index = 0; index < chunkCount; index++) {
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire();
+                    }
+                    window.acquire();
+
+                    final int offset = index * chunkSize;
+                    final ByteBuffer chunk = message.duplicate();
+                    chunk.position(message.position() + offset);
+                    chunk.limit(message.position() + Math.min(offset + chunkSize, message.remaining()));
+
+                    final Mqtt5Publish chunkPublish = publish.extend()
+                            .payload(chunk.slice())
+                            .correlationData(transferId)
+                            .userProperties(Chunk.userProperties(publishCommand.getUserProperties(), index, chunkCount, offset))
+                            .build();
+                    useTopicAlias(topicAliasTables[c], topics[i]);
+                    window.track(mqtt5Publish((Mqtt5Client) clients.get(c), chunkPublish));
+                    sent++;
+                    bytes += chunk.remaining();
+                    c = (c + 1) % clients.size();
+                }
+            }
+            window.awaitEmpty();
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.warn("Publishing was interrupted after {} chunks", sent);
+        }
+
+        printThroughput(clients.get(0), sent, bytes, System.nanoTime() - start, window);
+        printTopicAliasSavings(topicAliasTables);
+    }
+
+    public void benchmarkPublish(final @NotNull BenchPublishCommand benchCommand) {
+
+        final List<MqttClient> clients = connect(benchCommand, benchCommand.getConnections());
+
+        final String[] topics = benchCommand.getTopics();
+        final MqttQos[] qos = benchCommand.getQos();
+        final ByteBuffer message = benchCommand.getMessage();
+        final RateLimiter rateLimiter = createRateLimiter(benchCommand.getRate());
+        final InFlightWindow window = new InFlightWindow(Math.min(benchCommand.getMaxInFlight(), getSendMaximum(clients)));
+        final TopicAliasTable[] topicAliasTables = createTopicAliasTables(clients);
+        final PublishTemplate[] publishTemplates = createPublishTemplates(clients, benchCommand, topics, qos, message);
+        final LatencyHistogram latencies = new LatencyHistogram(TimeUnit.HOURS.toMicros(1));
+
+        final long start = System.nanoTime();
+        final long end = start + TimeUnit.SECONDS.toNanos(benchCommand.getDuration());
+        long sent = 0;
+        try {
+            int i = 0;
+            int c = 0;
+            while (System.nanoTime() < end) {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire();
+                }
+                window.acquire();
+                useTopicAlias(topicAliasTables[c], topics[i]);
+                final long sendTime = System.nanoTime();
+                final CompletableFuture<?> future = publish(clients.get(c), publishTemplates[i], topics[i], message);
+                future.whenComplete((result, throwable) -> {
+                    if (throwable == null) {
+                        latencies.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sendTime));
+                    }
+                });
+                window.track(future);
+                sent++;
+                i = (i + 1) % topics.length;
+                c = (c + 1) % clients.size();
+            }
+            window.awaitEmpty();
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.warn("Benchmark was interrupted after {} messages", sent);
+        }
+
+        printThroughput(clients.get(0), sent, sent * message.remaining(), System.nanoTime() - start, window);
+        printTopicAliasSavings(topicAliasTables);
+        System.out.printf("Latency (ms): p50=%.3f p99=%.3f p99.9=%.3f max=%.3f%n",
+                latencies.getValueAtPercentile(50) / 1000D,
+                latencies.getValueAtPercentile(99) / 1000D,
+                latencies.getValueAtPercentile(99.9) / 1000D,
+                latencies.getMax() / 1000D);
+    }
+
+    // Publishes the captured messages at the offsets they were received at, divided by the speed. Every publish is
+    // scheduled relative to the start of the replay, so a publish which is sent late does not delay the following ones.
+    // The lateness of every publish is reported as timing drift.
+    public void replay(final @NotNull ReplayCommand replayCommand) throws IOException {
+
+        final MqttClient client = connect(replayCommand, 1).get(0);
+
+        final double speed = replayCommand.getSpeed();
+        final boolean timed = !Double.isInfinite(speed);
+        final InFlightWindow window = new InFlightWindow(Math.min(replayCommand.getMaxInFlight(), getSendMaximum(client)));
+        final LatencyHistogram drift = new LatencyHistogram(TimeUnit.HOURS.toMicros(1));
+
+        final long start = System.nanoTime();
+        long firstReceiveNanos = -1;
+        long lastReceiveNanos = 0;
+        long sent = 0;
+        long bytes = 0;
+        try (final CaptureReader captureReader = new CaptureReader(replayCommand.getFile())) {
+            CapturedPublish captured;
+            while ((captured = captureReader.next()) != null) {
+                if (firstReceiveNanos == -1) {
+                    firstReceiveNanos = captured.getReceiveNanos();
+                }
+                lastReceiveNanos = captured.getReceiveNanos();
+                final long due = start + (long) ((captured.getReceiveNanos() - firstReceiveNanos) / speed);
+                if (timed) {
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException();
+                        }
+                    }
+                }
+                window.acquire();
+                if (timed) {
+                    drift.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+                }
+                window.track(publish(client, captured));
+                sent++;
+                bytes += captured.getPublish().getPayload().map(ByteBuffer::remaining).orElse(0);
+            }
+            window.awaitEmpty();
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            Logger.warn("Replay was interrupted after {} messages", sent);
+        }
+
+        final long durationNanos = System.nanoTime() - start;
+        printThroughput(client, sent, bytes, durationNanos, window);
+        if (timed && sent > 0) {
+            System.out.printf("Captured %.2fs replayed in %.2fs at speed %s, drift (ms): p50=%.3f p99=%.3f max=%.3f%n",
+                    (lastReceiveNanos - firstReceiveNanos) / 1_000_000_000D,
+                    durationNanos / 1_000_000_000D,
+                    speed,
+                    drift.getValueAtPercentile(50) / 1000D,
+                    drift.getValueAtPercentile(99) / 1000D,
+                    drift.getMax() / 1000D);
+        }
+    }
+
+    private @Nullable RateLimiter createRateLimiter(final @Nullable Double rate) {
+        return rate != null ? RateLimiter.create(rate) : null;
+    }
+
+    private void printThroughput(final @NotNull MqttClient client, final long sent, final long bytes, final long durationNanos, final @NotNull InFlightWindow window) {
+        final Throwable firstFailure = window.getFirstFailure();
+        if (firstFailure != null) {
+            Logger.error("{} failed {} of {} PUBLISHES, first failure: {}",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    window.getFailed(),
+                    sent,
+                    Throwables.getRootCause(firstFailure).getMessage());
+        }
+
+        final double seconds = Math.max(durationNanos, 1) / 1_000_000_000D;
+        System.out.printf("Published %d messages (%d bytes) in %.2fs (%.1f msg/s, %.1f bytes/s), %d acknowledged, %d failed%n",
+                sent,
+                bytes,
+                seconds,
+                sent / seconds,
+                bytes / seconds,
+                window.getAcknowledged(),
+                window.getFailed());
+    }
+
+    private static @NotNull TopicAliasTable[] createTopicAliasTables(final @NotNull List<MqttClient> clients) {
+        final TopicAliasTable[] topicAliasTables = new TopicAliasTable[clients.size()];
+        for (int i = 0; i < clients.size(); i++) {
+            topicAliasTables[i] = TopicAliasTable.forClient(clients.get(i));
+        }
+        return topicAliasTables;
+    }
+
+    private static void useTopicAlias(final @Nullable TopicAliasTable topicAliasTable, final @NotNull String topic) {
+        if (topicAliasTable != null) {
+            topicAliasTable.use(topic);
+        }
+    }
+
+    private static void printTopicAliasSavings(final @NotNull TopicAliasTable[] topicAliasTables) {
+        long hits = 0;
+        long assignments = 0;
+        long bytesSaved = 0;
+        boolean aliasesUsed = false;
+        boolean estimate = false;
+        for (final TopicAliasTable topicAliasTable : topicAliasTables) {
+            if (topicAliasTable != null) {
+                hits += topicAliasTable.getHits();
+                assignments += topicAliasTable.getAssignments();
+                bytesSaved += topicAliasTable.getBytesSaved();
+                aliasesUsed = true;
+                estimate |= topicAliasTable.isEstimate();
+            }
+        }
+        if (aliasesUsed) {
+            System.out.printf("Topic aliases%s: %d publishes sent with alias, %d aliases assigned, %d bytes saved%n",
+                    estimate ? " (LRU estimate, more topics than the topic alias maximum)" : "",
+                    hits,
+                    assignments,
+                    bytesSaved);
+        }
+    }
+
+    // The number of QoS 1 and 2 publishes the broker accepts concurrently (the receive maximum of the CONNACK),
+    // further limited by the send maximum of the client. MQTT 3 has no such limit.
+    private static int getSendMaximum(final @NotNull MqttClient client) {
+        if (client instanceof Mqtt5Client) {
+            return ((Mqtt5Client) client).getConfig()
+                    .getConnectionConfig()
+                    .map(connectionConfig -> connectionConfig.getRestrictionsConfig().getSendMaximum())
+                    .orElse(DEFAULT_RECEIVE_MAXIMUM);
+        }
+        return DEFAULT_RECEIVE_MAXIMUM;
+    }
+
+    private static int getChunkOverhead(
+            final @NotNull PublishTemplate[] publishTemplates, final @NotNull String[] topics, final long length) {
+        int overhead = 0;
+        for (int i = 0; i < topics.length; i++) {
+            overhead = Math.max(overhead, Chunk.getOverhead(publishTemplates[i].toMqtt5Publish(topics[i], EMPTY_PAYLOAD), length));
+        }
+        return overhead;
+    }
+
+    // The largest packet the broker accepts (the maximum packet size of the CONNACK), further limited by the send
+    // maximum packet size of the client. MQTT 3 has no such limit.
+    private static int getSendMaximumPacketSize(final @NotNull List<MqttClient> clients) {
+        int maximumPacketSize = DEFAULT_MAXIMUM_PACKET_SIZE;
+        for (final MqttClient client : clients) {
+            if (client instanceof Mqtt5Client) {
+                maximumPacketSize = Math.min(maximumPacketSize, ((Mqtt5Client) client).getConfig()
+                        .getConnectionConfig()
+                        .map(connectionConfig -> connectionConfig.getRestrictionsConfig().getSendMaximumPacketSize())
+                        .orElse(DEFAULT_MAXIMUM_PACKET_SIZE));
+            }
+        }
+        return maximumPacketSize;
+    }
+
+    private static int getSendMaximum(final @NotNull List<MqttClient> clients) {
+        long sendMaximum = 0;
+        for (final MqttClient client : clients) {
+            sendMaximum += getSendMaximum(client);
+        }
+        return (int) Math.min(sendMaximum, Integer.MAX_VALUE);
+    }
+
+    private static @NotNull MqttQos[] matchQosToTopics(final @NotNull String[] topics, final @NotNull MqttQos[] qos) {
+        final MqttQos[] matchedQos = new MqttQos[topics.length];
+        for (int i = 0; i < topics.length; i++) {
+            matchedQos[i] = qos[i < qos.length ? i : qos.length - 1];
+        }
+        return matchedQos;
+    }
+
+    // All clients of a command use the same MQTT version, so one template per topic serves every client.
+    private static @NotNull PublishTemplate[] createPublishTemplates(
+            final @NotNull List<MqttClient> clients,
+            final @NotNull Publish publish,
+            final @NotNull String[] topics,
+            final @NotNull MqttQos[] qos,
+            final @NotNull ByteBuffer payload) {
+        final MqttVersion version = getMqttVersion(clients.get(0));
+        final PublishTemplate[] publishTemplates = new PublishTemplate[topics.length];
+        for (int i = 0; i < topics.length; i++) {
+            publishTemplates[i] = PublishTemplate.of(version, publish, topics[i], qos[i], payload);
+        }
+        return publishTemplates;
+    }
+
+    private static @NotNull MqttVersion getMqttVersion(final @NotNull MqttClient client) {
+        return client.getConfig().getMqttVersion();
+    }
+
+    @NotNull CompletableFuture<?> publish(final @NotNull MqttClient client, final @NotNull PublishTemplate publishTemplate, final @NotNull String topic, final @NotNull ByteBuffer payload) {
+        switch (client.getConfig().getMqttVersion()) {
+            case MQTT_5_0:
+                return mqtt5Publish((Mqtt5Client) client, publishTemplate.toMqtt5Publish(topic, payload));
+            case MQTT_3_1_1:
+                return mqtt3Publish((Mqtt3Client) client, publishTemplate.toMqtt3Publish(topic, payload));
+        }
+        throw new IllegalStateException("The MQTT Version specified is not supported. Version was " + client.getConfig().getMqttVersion());
+    }
+
+    private @NotNull CompletableFuture<?> publish(final @NotNull MqttClient client, final @NotNull CapturedPublish captured) {
+        switch (client.getConfig().getMqttVersion()) {
+            case MQTT_5_0:
+                return mqtt5Publish((Mqtt5Client) client, captured.getPublish());
+            case MQTT_3_1_1:
+                return mqtt3Publish((Mqtt3Client) client, captured.toMqtt3Publish());
+        }
+        throw new IllegalStateException("The MQTT Version specified is not supported. Version was " + client.getConfig().getMqttVersion());
+    }
+
+    // Appends the publishes to the outbox of the client and drains the outbox if the client is connected, otherwise
+    // the outbox is drained once the client reconnected.
+    private void queue(
+            final @NotNull MqttClient client,
+            final @NotNull OutboxJournal outbox,
+            final @NotNull Publish publish,
+            final @NotNull String[] topics,
+            final @NotNull MqttQos[] qos) {
+        try {
+            for (int i = 0; i < topics.length; i++) {
+                final PublishTemplate publishTemplate = PublishTemplate.of(MqttVersion.MQTT_5_0, publish, topics[i], qos[i], publish.getMessage());
+                outbox.append(publishTemplate.toMqtt5Publish(topics[i], publish.getMessage()));
+            }
+        } catch (final IOException e) {
+            Logger.error(e, "{} could not queue PUBLISH in outbox {}: {}",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    outbox.getFile().getAbsolutePath(),
+                    e.getMessage());
+            return;
+        }
+
+        if (client.getState().isConnected()) {
+            drainOutboxAsync(client, outbox);
+        }
+        else {
+            Logger.warn("{} is not connected, queued PUBLISH to {} TOPICS in outbox ({} pending)",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    topics.length,
+                    outbox.getPending());
+        }
+    }
+
+    private void drainOutboxAsync(final @NotNull MqttClient client, final @NotNull OutboxJournal outbox) {
+        OUTBOX_EXECUTOR.execute(() -> drainOutbox(client, outbox));
+    }
+
+    // The outbox is closed on the thread which drains the outboxes, so it is closed after every drain which is
+    // running or waiting to run.
+    static void closeOutboxAsync(final @NotNull ClientData clientData) {
+        OUTBOX_EXECUTOR.execute(clientData::closeOutbox);
+    }
+
+    // Sends the publishes of the outbox with a bounded in-flight window. An entry is marked as acknowledged once its
+    // publish completed, entries whose publish failed stay in the outbox and are sent again by the next drain.
+    private void drainOutbox(final @NotNull MqttClient client, final @NotNull OutboxJournal outbox) {
+        final InFlightWindow window = new InFlightWindow(getSendMaximum(client));
+        long sent = 0;
+        outbox.rewind();
+        try {
+            OutboxJournal.Entry entry;
+            while (client.getState().isConnected() && (entry = outbox.next()) != null) {
+                try {
+                    window.acquire();
+                }
+                catch (final InterruptedException ex) {
+                    outbox.failed(entry);
+                    throw ex;
+                }
+                final OutboxJournal.Entry sentEntry = entry;
+                window.track(publish(client, entry.getPublish()).whenComplete((result, throwable) -> {
+                    if (throwable == null) {
+                        outbox.acknowledge(sentEntry);
+                    }
+                    else {
+                        outbox.failed(sentEntry);
+                    }
+                }));
+                sent++;
+            }
+            window.awaitEmpty();
+        }
+        catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch (final IOException ex) {
+            Logger.error(ex, "{} could not read outbox {}: {}",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    outbox.getFile().getAbsolutePath(),
+                    ex.getMessage());
+        }
+
+        if (sent > 0) {
+            Logger.info("{} sent {} PUBLISHES from outbox, {} failed, {} pending",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    sent,
+                    window.getFailed(),
+                    outbox.getPending());
         }
     }
 
@@ -150,7 +1067,10 @@ abstract class AbstractMqttClientExecutor {
                     mqtt3Disconnect((Mqtt3Client) client, disconnect);
                     break;
             }
-            clientKeyToClientData.remove(clientKey);
+            final ClientData clientData = clientKeyToClientData.remove(clientKey);
+            if (clientData != null) {
+                closeOutboxAsync(clientData);
+            }
         }
         else {
             Logger.error("client to disconnect is not connected ({}) ", clientKey);
@@ -168,6 +1088,7 @@ abstract class AbstractMqttClientExecutor {
                     mqtt3Disconnect((Mqtt3Client) client, disconnect);
                     break;
             }
+            closeOutboxAsync(entry.getValue());
         }
         clientKeyToClientData.clear();
     }
@@ -202,19 +1123,84 @@ abstract class AbstractMqttClientExecutor {
             return clientKeyToClientData.get(connect.getKey()).getClient();
         }
 
+        return connect(connect, connect.getIdentifier());
+    }
+
+    // Connects the given number of clients with the options of the command. A single connection uses the identifier
+    // of the command, several connections use the identifiers derived from it.
+    public @NotNull List<MqttClient> connect(final @NotNull AbstractConnectFlags connect, final int connections) {
+        if (connections == 1) {
+            return Collections.singletonList(connect(connect));
+        }
+
+        final List<MqttClient> clients = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            clients.add(connect(connect, connect.getConnectionIdentifier(i)));
+        }
+        return clients;
+    }
+
+    private @NotNull MqttClient connect(final @NotNull Connect connect, final @NotNull String identifier) {
+        final OutboxJournal outbox = openOutbox(connect);
+        final MqttClient client;
+        try {
+            client = connectClient(connect, identifier);
+        }
+        catch (final RuntimeException ex) {
+            if (outbox != null) {
+                try {
+                    outbox.close();
+                }
+                catch (final IOException ignored) {
+                }
+            }
+            throw ex;
+        }
+
+        final ClientData clientData = new ClientData(client);
+        clientData.setOutbox(outbox);
+        clientKeyToClientData.put(getKey(client), clientData);
+
+        if (outbox != null && outbox.getPending() > 0) {
+            Logger.info("{} sending {} PUBLISHES queued in outbox {}",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    outbox.getPending(),
+                    outbox.getFile().getAbsolutePath());
+            drainOutboxAsync(client, outbox);
+        }
+        return client;
+    }
+
+    private @NotNull MqttClient connectClient(final @NotNull Connect connect, final @NotNull String identifier) {
         switch (connect.getVersion()) {
             case MQTT_5_0:
-                return connectMqtt5Client(connect);
+                return connectMqtt5Client(connect, identifier);
             case MQTT_3_1_1:
-                return connectMqtt3Client(connect);
+                return connectMqtt3Client(connect, identifier);
         }
 
         throw new IllegalStateException("The MQTT Version specified is not supported. Version was " + connect.getVersion());
     }
 
-    private @NotNull Mqtt5Client connectMqtt5Client(final @NotNull Connect connect) {
+    private static @Nullable OutboxJournal openOutbox(final @NotNull Connect connect) {
+        if (connect.getOutboxFile() == null) {
+            return null;
+        }
+        try {
+            return new OutboxJournal(connect.getOutboxFile());
+        }
+        catch (final IOException ex) {
+            throw new IllegalStateException("Could not open outbox " + connect.getOutboxFile().getAbsolutePath() + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private static @NotNull String getKey(final @NotNull MqttClient client) {
+        return MqttUtils.buildKey(client.getConfig().getClientIdentifier().get().toString(), client.getConfig().getServerHost());
+    }
+
+    private @NotNull Mqtt5Client connectMqtt5Client(final @NotNull Connect connect, final @NotNull String identifier) {
 
-        final MqttClientBuilder clientBuilder = createBuilder(connect);
+        final MqttClientBuilder clientBuilder = createBuilder(connect, identifier);
         final Mqtt5Client client = clientBuilder.useMqttVersion5().build();
         final @Nullable Mqtt5Publish willPublish = createMqtt5WillPublish(connect);
         final @NotNull Mqtt5ConnectRestrictions connectRestrictions = createMqtt5ConnectRestrictions(connect);
@@ -239,17 +1225,11 @@ abstract class AbstractMqttClientExecutor {
 
         mqtt5Connect(client, connectBuilder.build(), connect);
 
-        final ClientData clientData = new ClientData(client);
-
-        final String key = MqttUtils.buildKey(client.getConfig().getClientIdentifier().get().toString(), client.getConfig().getServerHost());
-
-        clientKeyToClientData.put(key, clientData);
-
         return client;
     }
 
-    private @NotNull Mqtt3Client connectMqtt3Client(final @NotNull Connect connect) {
-        final MqttClientBuilder clientBuilder = createBuilder(connect);
+    private @NotNull Mqtt3Client connectMqtt3Client(final @NotNull Connect connect, final @NotNull String identifier) {
+        final MqttClientBuilder clientBuilder = createBuilder(connect, identifier);
         final Mqtt3Client client = clientBuilder.useMqttVersion3().build();
 
         final @Nullable Mqtt3Publish willPublish = createMqtt3WillPublish(connect);
@@ -271,12 +1251,6 @@ abstract class AbstractMqttClientExecutor {
 
         mqtt3Connect(client, connectBuilder.build(), connect);
 
-        final ClientData clientData = new ClientData(client);
-
-        final String key = MqttUtils.buildKey(client.getConfig().getClientIdentifier().get().toString(), client.getConfig().getServerHost());
-
-        clientKeyToClientData.put(key, clientData);
-
         return client;
     }
 
@@ -374,15 +1348,28 @@ abstract class AbstractMqttClientExecutor {
         return restrictionsBuilder.build();
     }
 
-    private @NotNull MqttClientBuilder createBuilder(final @NotNull Connect connect) {
+    private @NotNull MqttClientBuilder createBuilder(final @NotNull Connect connect, final @NotNull String identifier) {
 
-        return MqttClient.builder()
+        final MqttClientBuilder clientBuilder = MqttClient.builder()
                 .addDisconnectedListener(new ContextClientDisconnectListener())
+                .executorConfig(EXECUTOR_CONFIG)
                 .webSocketConfig(connect.getWebSocketConfig())
                 .serverHost(connect.getHost())
                 .serverPort(connect.getPort())
                 .sslConfig(connect.getSslConfig())
-                .identifier(connect.getIdentifier());
+                .identifier(identifier);
+
+        if (connect.getOutboxFile() != null) {
+            // the outbox is drained whenever the client reconnected, the initial connect is handled by connect()
+            final String key = MqttUtils.buildKey(identifier, connect.getHost());
+            clientBuilder.addConnectedListener(context -> {
+                final ClientData clientData = clientKeyToClientData.get(key);
+                if (clientData != null && clientData.getOutbox() != null) {
+                    drainOutboxAsync(clientData.getClient(), clientData.getOutbox());
+                }
+            });
+        }
+        return clientBuilder;
     }
 
     private @Nullable Mqtt5SimpleAuth buildMqtt5Authentication(final @NotNull Connect connect) {
@@ -15,10 +15,14 @@
  */
 package com.hivemq.cli.mqtt;
 
+import com.hivemq.cli.mqtt.outbox.OutboxJournal;
 import com.hivemq.client.mqtt.MqttClient;
 import com.hivemq.client.mqtt.datatypes.MqttTopicFilter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tinylog.Logger;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -28,6 +32,7 @@ public class ClientData {
     @NotNull private final MqttClient mqttClient;
     @NotNull private final LocalDateTime creationTime;
     @NotNull private final Set<MqttTopicFilter> subscribedTopics;
+    @Nullable private OutboxJournal outbox;
 
 
     public ClientData(final @NotNull MqttClient mqttClient) {
@@ -72,5 +77,23 @@ public class ClientData {
         return this.mqttClient;
     }
 
+    @Nullable public OutboxJournal getOutbox() {
+        return outbox;
+    }
+
+    public void setOutbox(final @Nullable OutboxJournal outbox) {
+        this.outbox = outbox;
+    }
+
+    public void closeOutbox() {
+        if (outbox != null) {
+            try {
+                outbox.close();
+            } catch (final IOException e) {
+                Logger.error(e, "Could not close outbox {}", outbox.getFile().getAbsolutePath());
+            }
+        }
+    }
+
 
 }
@@ -27,11 +27,30 @@ import com.hivemq.client.mqtt.lifecycle.MqttDisconnectSource;
 import org.jetbrains.annotations.NotNull;
 import org.tinylog.Logger;
 
+import java.util.concurrent.TimeUnit;
+
 public class ContextClientDisconnectListener implements MqttClientDisconnectedListener {
 
+    private static final long MAX_RECONNECT_DELAY_SECONDS = 60;
+
     @Override
     public void onDisconnected(final @NotNull MqttClientDisconnectedContext context) {
 
+        final String key = getKeyFromConfig(context.getClientConfig());
+        final ClientData clientData = MqttClientExecutor.getClientDataMap().get(key);
+
+        if (context.getSource() != MqttDisconnectSource.USER && clientData != null && clientData.getOutbox() != null) {
+            // a client with an outbox stays in its context and reconnects, publishes are queued until it is connected
+            final long delay = Math.min(1L << Math.min(context.getReconnector().getAttempts(), 6), MAX_RECONNECT_DELAY_SECONDS);
+            Logger.warn("{} DISCONNECTED ({}), reconnecting in {} s while publishes are queued in outbox {}",
+                    LoggerUtils.getClientPrefix(context.getClientConfig()),
+                    Throwables.getRootCause(context.getCause()).getMessage(),
+                    delay,
+                    clientData.getOutbox().getFile().getAbsolutePath());
+            context.getReconnector().reconnect(true).delay(delay, TimeUnit.SECONDS);
+            return;
+        }
+
         if (context.getSource() != MqttDisconnectSource.USER) {
             final Throwable cause = context.getCause();
 
@@ -50,7 +69,10 @@ public class ContextClientDisconnectListener implements MqttClientDisconnectedLi
             ShellContextCommand.removeContext();
         }
 
-        MqttClientExecutor.getClientDataMap().remove(getKeyFromConfig(context.getClientConfig()));
+        if (clientData != null) {
+            MqttClientExecutor.getClientDataMap().remove(key);
+            MqttClientExecutor.closeOutboxAsync(clientData);
+        }
     }
 
     private String getKeyFromConfig(final @NotNull MqttClientConfig clientConfig) {
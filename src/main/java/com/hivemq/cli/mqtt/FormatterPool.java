@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import com.hivemq.cli.utils.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+import org.tinylog.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Formats and outputs the received publishes on a small pool of worker threads instead of the callback thread of the
+ * MQTT client, so slow formatting or output does not throttle the connection. The publishes of a topic are always
+ * handed to the same worker, which keeps them in order. The formatted lines are drained by the single writer thread
+ * of the console and output file writers. Every worker has a bounded queue; once it is full, the callback thread
+ * either blocks or the publish is dropped.
+ */
+public class FormatterPool implements Closeable {
+
+    public enum QueueFullPolicy {
+        block, drop
+    }
+
+    // longer queue lags are recorded as one hour
+    private static final long HIGHEST_QUEUE_LAG_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final @NotNull Task END_OF_TASKS = new Task(() -> {}, 0);
+    private static final @NotNull Set<FormatterPool> OPEN = ConcurrentHashMap.newKeySet();
+
+    private final @NotNull Worker[] workers;
+    private final @NotNull QueueFullPolicy queueFullPolicy;
+    private final @NotNull LatencyHistogram queueLag = new LatencyHistogram(HIGHEST_QUEUE_LAG_MICROS);
+    private final @NotNull AtomicReference<LatencyHistogram> intervalQueueLag =
+            new AtomicReference<>(new LatencyHistogram(HIGHEST_QUEUE_LAG_MICROS));
+    private final @NotNull LongAdder dropped = new LongAdder();
+    private final @NotNull AtomicInteger maxQueueDepth = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * @param threads       the number of worker threads
+     * @param queueCapacity the number of publishes queued per worker
+     */
+    public FormatterPool(final int threads, final int queueCapacity, final @NotNull QueueFullPolicy queueFullPolicy) {
+        this.queueFullPolicy = queueFullPolicy;
+        workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker("mqtt-cli-formatter-" + i, queueCapacity);
+        }
+        OPEN.add(this);
+        for (final Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Formats and outputs the publishes which are still queued in any pool.
+     */
+    public static void closeAll() {
+        for (final FormatterPool pool : OPEN) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Queues the task on the worker of the key. After the pool was closed the task is run directly.
+     *
+     * @param key the key whose tasks are run in order, the topic of the publish
+     */
+    public void execute(final @NotNull Object key, final @NotNull Runnable task) {
+        if (!closed) {
+            final int hash = key.hashCode();
+            final Worker worker = workers[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % workers.length];
+            final Task queued = new Task(task, System.nanoTime());
+            if (queueFullPolicy == QueueFullPolicy.drop) {
+                if (!worker.queue.offer(queued)) {
+                    dropped.increment();
+                }
+                return;
+            }
+            try {
+                worker.queue.put(queued);
+                return;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        task.run();
+    }
+
+    /**
+     * @return the queue lags since the last call, measured from queueing a publish until its formatting started
+     */
+    public @NotNull LatencyHistogram takeIntervalQueueLag() {
+        return intervalQueueLag.getAndSet(new LatencyHistogram(HIGHEST_QUEUE_LAG_MICROS));
+    }
+
+    public @NotNull LatencyHistogram getQueueLag() {
+        return queueLag;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Formats and outputs the queued publishes and stops the workers.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        OPEN.remove(this);
+        try {
+            for (final Worker worker : workers) {
+                worker.queue.put(END_OF_TASKS);
+            }
+            for (final Worker worker : workers) {
+                worker.thread.join();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final String summary = String.format("%d publishes formatted on %d threads, queue lag (ms): p50=%.3f p99=%.3f max=%.3f, max queue depth: %d, dropped: %d",
+                queueLag.getCount(),
+                workers.length,
+                queueLag.getValueAtPercentile(50) / 1000D,
+                queueLag.getValueAtPercentile(99) / 1000D,
+                queueLag.getMax() / 1000D,
+                maxQueueDepth.get(),
+                dropped.sum());
+        if (dropped.sum() > 0) {
+            Logger.warn("Dropped publishes as the formatting queue was full: {}", summary);
+        } else {
+            Logger.debug(summary);
+        }
+    }
+
+    private static class Task {
+
+        private final @NotNull Runnable action;
+        private final long queuedNanos;
+
+        private Task(final @NotNull Runnable action, final long queuedNanos) {
+            this.action = action;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+
+    private class Worker {
+
+        private final @NotNull ArrayBlockingQueue<Task> queue;
+        private final @NotNull Thread thread;
+
+        private Worker(final @NotNull String name, final int queueCapacity) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+        }
+
+        private void run() {
+            final List<Task> tasks = new ArrayList<>();
+            boolean ending = false;
+            while (!ending) {
+                try {
+                    tasks.add(queue.take());
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                queue.drainTo(tasks);
+                // the drained tasks are the depth of the queue when the worker caught up with it
+                final int depth = tasks.size();
+                int max;
+                while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)) { }
+
+                final LatencyHistogram interval = intervalQueueLag.get();
+                for (final Task task : tasks) {
+                    if (task == END_OF_TASKS) {
+                        ending = true;
+                    } else {
+                        run(task, interval);
+                    }
+                }
+                tasks.clear();
+            }
+            // tasks which were queued while the pool was closing
+            queue.drainTo(tasks);
+            for (final Task task : tasks) {
+                run(task, intervalQueueLag.get());
+            }
+        }
+
+        private void run(final @NotNull Task task, final @NotNull LatencyHistogram interval) {
+            final long lag = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - task.queuedNanos);
+            queueLag.record(lag);
+            interval.record(lag);
+            try {
+                task.action.run();
+            } catch (final RuntimeException e) {
+                Logger.error(e, "Could not format PUBLISH: {}", e.getMessage());
+            }
+        }
+    }
+}
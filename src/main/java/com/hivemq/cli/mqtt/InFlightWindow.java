@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounds the amount of publishes which were sent but are not yet acknowledged.
+ * A sender blocks in {@link #acquire()} as soon as the window is full and continues once an acknowledgement arrived.
+ */
+public class InFlightWindow implements BiConsumer<Object, Throwable> {
+
+    private final int size;
+    private final @NotNull Semaphore permits;
+    private final @NotNull AtomicLong acknowledged = new AtomicLong();
+    private final @NotNull AtomicLong failed = new AtomicLong();
+    private final @NotNull AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    public InFlightWindow(final int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The in-flight window size has to be at least 1 but was " + size);
+        }
+        this.size = size;
+        this.permits = new Semaphore(size);
+    }
+
+    public void acquire() throws InterruptedException {
+        permits.acquire();
+    }
+
+    public void release(final boolean success) {
+        if (success) {
+            acknowledged.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+        permits.release();
+    }
+
+    /**
+     * Releases a previously acquired slot of the window once the given publish future completes.
+     * The window itself is the completion callback, so tracking a publish does not allocate a callback.
+     */
+    public void track(final @NotNull CompletableFuture<?> future) {
+        future.whenComplete(this);
+    }
+
+    @Override
+    public void accept(final @Nullable Object result, final @Nullable Throwable throwable) {
+        if (throwable != null) {
+            firstFailure.compareAndSet(null, throwable);
+        }
+        release(throwable == null);
+    }
+
+    /**
+     * Blocks until every publish that entered the window was acknowledged or failed.
+     */
+    public void awaitEmpty() throws InterruptedException {
+        permits.acquire(size);
+        permits.release(size);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getInFlight() {
+        return size - permits.availablePermits();
+    }
+
+    public long getAcknowledged() {
+        return acknowledged.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public @Nullable Throwable getFirstFailure() {
+        return firstFailure.get();
+    }
+}
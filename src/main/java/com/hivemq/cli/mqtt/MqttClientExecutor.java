@@ -18,10 +18,10 @@ package com.hivemq.cli.mqtt;
 import com.google.common.base.Throwables;
 import com.hivemq.cli.commands.Connect;
 import com.hivemq.cli.commands.Disconnect;
-import com.hivemq.cli.commands.Publish;
 import com.hivemq.cli.commands.Subscribe;
 import com.hivemq.cli.commands.Unsubscribe;
 import com.hivemq.cli.utils.LoggerUtils;
+import com.hivemq.cli.utils.MqttPublishUtils;
 import com.hivemq.cli.utils.MqttUtils;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
 import com.hivemq.client.mqtt.datatypes.MqttTopicFilter;
@@ -29,9 +29,9 @@ import com.hivemq.client.mqtt.mqtt3.Mqtt3Client;
 import com.hivemq.client.mqtt.mqtt3.message.connect.Mqtt3Connect;
 import com.hivemq.client.mqtt.mqtt3.message.connect.connack.Mqtt3ConnAck;
 import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
-import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3PublishBuilder;
 import com.hivemq.client.mqtt.mqtt3.message.subscribe.Mqtt3Subscribe;
-import com.hivemq.client.mqtt.mqtt3.message.subscribe.Mqtt3SubscribeBuilder;
+import com.hivemq.client.mqtt.mqtt3.message.subscribe.Mqtt3Subscription;
+import com.hivemq.client.mqtt.mqtt3.message.subscribe.suback.Mqtt3SubAckReturnCode;
 import com.hivemq.client.mqtt.mqtt3.message.unsubscribe.Mqtt3Unsubscribe;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
 import com.hivemq.client.mqtt.mqtt5.message.connect.Mqtt5Connect;
@@ -39,22 +39,29 @@ import com.hivemq.client.mqtt.mqtt5.message.connect.connack.Mqtt5ConnAck;
 import com.hivemq.client.mqtt.mqtt5.message.disconnect.Mqtt5Disconnect;
 import com.hivemq.client.mqtt.mqtt5.message.disconnect.Mqtt5DisconnectBuilder;
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
-import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PublishBuilder;
 import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe;
 import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5SubscribeBuilder;
+import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscription;
+import com.hivemq.client.mqtt.mqtt5.message.subscribe.suback.Mqtt5SubAckReasonCode;
 import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.Mqtt5Unsubscribe;
 import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.unsuback.Mqtt5UnsubAck;
+import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.unsuback.Mqtt5UnsubAckReasonCode;
 import org.jetbrains.annotations.NotNull;
 import org.tinylog.Logger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Singleton
 public class MqttClientExecutor extends AbstractMqttClientExecutor {
 
+    private static final @NotNull ByteBuffer EMPTY_PAYLOAD = ByteBuffer.allocate(0);
+
     @Inject
     MqttClientExecutor() {}
 
@@ -85,13 +92,20 @@ public class MqttClientExecutor extends AbstractMqttClientExecutor {
         Logger.debug("{} received CONNACK {} ", clientLogPrefix, connAck);
     }
 
-    void mqtt5Subscribe(final @NotNull Mqtt5Client client, final @NotNull Subscribe subscribe, final @NotNull String topic, final @NotNull MqttQos qos) {
+    void mqtt5Subscribe(final @NotNull Mqtt5Client client, final @NotNull Subscribe subscribe, final @NotNull String[] topics, final @NotNull MqttQos[] qos) {
 
         final String clientLogPrefix = LoggerUtils.getClientPrefix(client.getConfig());
 
-        final Mqtt5SubscribeBuilder.Start.Complete builder = Mqtt5Subscribe.builder()
-                .topicFilter(topic)
-                .qos(qos);
+        final List<Mqtt5Subscription> subscriptions = new ArrayList<>(topics.length);
+        for (int i = 0; i < topics.length; i++) {
+            subscriptions.add(Mqtt5Subscription.builder()
+                    .topicFilter(topics[i])
+                    .qos(qos[i])
+                    .build());
+        }
+
+        final Mqtt5SubscribeBuilder.Complete builder = Mqtt5Subscribe.builder()
+                .addSubscriptions(subscriptions);
 
         if (subscribe.getUserProperties() != null) {
             builder.userProperties(subscribe.getUserProperties());
@@ -107,9 +121,9 @@ public class MqttClientExecutor extends AbstractMqttClientExecutor {
                 .whenComplete((subAck, throwable) -> {
 
                     if (throwable != null) {
-                        Logger.error(throwable,"{} failed SUBSCRIBE to TOPIC '{}': {}",
+                        Logger.error(throwable,"{} failed SUBSCRIBE to TOPICS {}: {}",
                                 clientLogPrefix,
-                                topic,
+                                Arrays.toString(topics),
                                 Throwables.getRootCause(throwable).getMessage());
                     } else {
 
@@ -117,7 +131,20 @@ public class MqttClientExecutor extends AbstractMqttClientExecutor {
                                 client.getConfig().getClientIdentifier().get().toString(),
                                 client.getConfig().getServerHost());
 
-                        getClientDataMap().get(clientKey).addSubscription(MqttTopicFilter.of(topic));
+                        final ClientData clientData = getClientDataMap().get(clientKey);
+                        final List<String> failedTopics = new ArrayList<>();
+                        final List<Mqtt5SubAckReasonCode> reasonCodes = subAck.getReasonCodes();
+                        for (int i = 0; i < reasonCodes.size(); i++) {
+                            if (reasonCodes.get(i).isError()) {
+                                failedTopics.add("'" + topics[i] + "' (" + reasonCodes.get(i) + ")");
+                            } else {
+                                clientData.addSubscription(MqttTopicFilter.of(topics[i]));
+                            }
+                        }
+
+                        if (!failedTopics.isEmpty()) {
+                            Logger.error("{} failed SUBSCRIBE to TOPICS {}", clientLogPrefix, String.join(", ", failedTopics));
+                        }
 
                         Logger.debug("{} received SUBACK {}", clientLogPrefix, subAck);
                     }
@@ -126,16 +153,21 @@ public class MqttClientExecutor extends AbstractMqttClientExecutor {
 
     }
 
-    void mqtt3Subscribe(final @NotNull Mqtt3Client client, final @NotNull Subscribe subscribe, final @NotNull String topic, final @NotNull MqttQos qos) {
+    void mqtt3Subscribe(final @NotNull Mqtt3Client client, final @NotNull Subscribe subscribe, final @NotNull String[] topics, final @NotNull MqttQos[] qos) {
 
         final String clientLogPrefix = LoggerUtils.getClientPrefix(client.getConfig());
 
-        final Mqtt3SubscribeBuilder.Start.Complete builder = Mqtt3Subscribe.builder()
-                .topicFilter(topic)
-                .qos(qos);
-
+        final List<Mqtt3Subscription> subscriptions = new ArrayList<>(topics.length);
+        for (int i = 0; i < topics.length; i++) {
+            subscriptions.add(Mqtt3Subscription.builder()
+                    .topicFilter(topics[i])
+                    .qos(qos[i])
+                    .build());
+        }
 
-        final Mqtt3Subscribe subscribeMessage = builder.build();
+        final Mqtt3Subscribe subscribeMessage = Mqtt3Subscribe.builder()
+                .addSubscriptions(subscriptions)
+                .build();
 
         Logger.debug("{} sending SUBSCRIBE {}", clientLogPrefix, subscribeMessage);
 
@@ -143,16 +175,29 @@ public class MqttClientExecutor extends AbstractMqttClientExecutor {
                 .subscribe(subscribeMessage, new SubscribeMqtt3PublishCallback(subscribe, client))
                 .whenComplete((subAck, throwable) -> {
                     if (throwable != null) {
-                        Logger.error(throwable, "{} failed SUBSCRIBE to TOPIC '{}': {}",
+                        Logger.error(throwable, "{} failed SUBSCRIBE to TOPICS {}: {}",
                                 clientLogPrefix,
-                                topic,
+                                Arrays.toString(topics),
                                 Throwables.getRootCause(throwable).getMessage());
                     } else {
 
                         final String clientKey = MqttUtils.buildKey(client.getConfig().getClientIdentifier().get().toString(),
                                 client.getConfig().getServerHost());
 
-                        getClientDataMap().get(clientKey).addSubscription(MqttTopicFilter.of(topic));
+                        final ClientData clientData = getClientDataMap().get(clientKey);
+                        final List<String> failedTopics = new ArrayList<>();
+                        final List<Mqtt3SubAckReturnCode> returnCodes = subAck.getReturnCodes();
+                        for (int i = 0; i < returnCodes.size(); i++) {
+                            if (returnCodes.get(i).isError()) {
+                                failedTopics.add("'" + topics[i] + "' (" + returnCodes.get(i) + ")");
+                            } else {
+                                clientData.addSubscription(MqttTopicFilter.of(topics[i]));
+                            }
+                        }
+
+                        if (!failedTopics.isEmpty()) {
+                            Logger.error("{} failed SUBSCRIBE to TOPICS {}", clientLogPrefix, String.join(", ", failedTopics));
+                        }
 
                         Logger.debug("{} received SUBACK {}", clientLogPrefix, subAck);
                     }
@@ -160,42 +205,28 @@ public class MqttClientExecutor extends AbstractMqttClientExecutor {
         .join();
     }
 
-    void mqtt5Publish(final @NotNull Mqtt5Client client, final @NotNull Publish publish, final @NotNull String topic, final @NotNull MqttQos qos) {
-
-        final String clientLogPrefix = LoggerUtils.getClientPrefix(client.getConfig());
+    // Debug logging is guarded, so publishing with debug logging disabled neither formats the client prefix and the
+    // payload nor registers a completion callback.
+    @Override
+    @NotNull CompletableFuture<?> mqtt5Publish(final @NotNull Mqtt5Client client, final @NotNull Mqtt5Publish publishMessage) {
 
-        final Mqtt5PublishBuilder.Complete publishBuilder = Mqtt5Publish.builder()
-                .topic(topic)
-                .qos(qos)
-                .payload(publish.getMessage())
-                .payloadFormatIndicator(publish.getPayloadFormatIndicator())
-                .contentType(publish.getContentType())
-                .responseTopic(publish.getResponseTopic())
-                .correlationData(publish.getCorrelationData());
-
-        if (publish.getRetain() != null) {
-            publishBuilder.retain(publish.getRetain());
-        }
-        if (publish.getMessageExpiryInterval() != null) {
-            publishBuilder.messageExpiryInterval(publish.getMessageExpiryInterval());
-        }
-        if (publish.getUserProperties() != null) {
-            publishBuilder.userProperties(publish.getUserProperties());
+        if (!Logger.isDebugEnabled()) {
+            return client.toAsync().publish(publishMessage);
         }
 
-        final Mqtt5Publish publishMessage = publishBuilder.build();
+        final String clientLogPrefix = LoggerUtils.getClientPrefix(client.getConfig());
 
         Logger.debug("{} sending PUBLISH ('{}') {}", clientLogPrefix,
-                bufferToString(publish.getMessage()),
+                MqttPublishUtils.payloadPreview(publishMessage.getPayload().orElse(EMPTY_PAYLOAD)),
                 publishMessage);
 
-        client.toAsync()
+        return client.toAsync()
             .publish(publishMessage)
             .whenComplete((publishResult, throwable) -> {
                 if (throwable != null) {
-                    Logger.error(throwable,"{} failed PUBLISH to TOPIC '{}': {}",
+                    Logger.debug("{} failed PUBLISH to TOPIC '{}': {}",
                             clientLogPrefix,
-                            topic,
+                            publishMessage.getTopic(),
                             Throwables.getRootCause(throwable).getMessage());
                 }
                 else {
@@ -203,35 +234,30 @@ public class MqttClientExecutor extends AbstractMqttClientExecutor {
                         clientLogPrefix,
                         publishResult);
                 }
-            })
-        .join();
+            });
 
     }
 
+    @Override
+    @NotNull CompletableFuture<?> mqtt3Publish(final @NotNull Mqtt3Client client, final @NotNull Mqtt3Publish publishMessage) {
 
-    void mqtt3Publish(final @NotNull Mqtt3Client client, final @NotNull Publish publish, final @NotNull String topic, final @NotNull MqttQos qos) {
-        final String clientLogPrefix = LoggerUtils.getClientPrefix(client.getConfig());
-
-        final Mqtt3PublishBuilder.Complete publishBuilder = Mqtt3Publish.builder()
-                .topic(topic)
-                .qos(qos)
-                .payload(publish.getMessage());
-
-        if (publish.getRetain() != null) {
-            publishBuilder.retain(publish.getRetain());
+        if (!Logger.isDebugEnabled()) {
+            return client.toAsync().publish(publishMessage);
         }
 
-        final Mqtt3Publish publishMessage = publishBuilder.build();
+        final String clientLogPrefix = LoggerUtils.getClientPrefix(client.getConfig());
 
-        Logger.debug("{} sending PUBLISH ('{}') {}", clientLogPrefix, bufferToString(publish.getMessage()), publishMessage);
+        Logger.debug("{} sending PUBLISH ('{}') {}", clientLogPrefix,
+                MqttPublishUtils.payloadPreview(publishMessage.getPayload().orElse(EMPTY_PAYLOAD)),
+                publishMessage);
 
-        client.toAsync().publish(publishMessage)
+        return client.toAsync().publish(publishMessage)
                 .whenComplete((publishResult, throwable) -> {
                     if (throwable != null) {
 
-                        Logger.error(throwable, "{} failed PUBLISH to TOPIC '{}': {}",
+                        Logger.debug("{} failed PUBLISH to TOPIC '{}': {}",
                                 clientLogPrefix,
-                                topic,
+                                publishMessage.getTopic(),
                                 Throwables.getRootCause(throwable).getMessage());
                     } else {
 
@@ -239,77 +265,88 @@ public class MqttClientExecutor extends AbstractMqttClientExecutor {
                                 clientLogPrefix,
                                 publishResult);
                     }
-                })
-        .join();
+                });
     }
 
     @Override
     void mqtt5Unsubscribe(@NotNull final Mqtt5Client client, @NotNull final Unsubscribe unsubscribe) {
         final String clientLogPrefix = LoggerUtils.getClientPrefix(client.getConfig());
+        final String[] topics = unsubscribe.getTopics();
 
-        for (String topic : unsubscribe.getTopics()) {
-
-            final Mqtt5Unsubscribe unsubscribeMessage = Mqtt5Unsubscribe.builder()
-                    .topicFilter(topic)
-                    .build();
+        final Mqtt5Unsubscribe unsubscribeMessage = Mqtt5Unsubscribe.builder()
+                .addTopicFilters(toTopicFilters(topics))
+                .build();
 
-            Logger.debug("{} sending UNSUBSCRIBE {}",
-                        clientLogPrefix,
-                        unsubscribeMessage);
+        Logger.debug("{} sending UNSUBSCRIBE {}",
+                    clientLogPrefix,
+                    unsubscribeMessage);
 
-            client.toAsync()
-                    .unsubscribe(unsubscribeMessage)
-                    .whenComplete((Mqtt5UnsubAck unsubAck, Throwable throwable) -> {
+        client.toAsync()
+                .unsubscribe(unsubscribeMessage)
+                .whenComplete((Mqtt5UnsubAck unsubAck, Throwable throwable) -> {
 
-                        if (throwable != null) {
+                    if (throwable != null) {
 
-                            Logger.error(throwable,"{} failed UNSUBSCRIBE from TOPIC '{}': {}",
-                                    clientLogPrefix,
-                                    topic,
-                                    Throwables.getRootCause(throwable).getMessage());
-                        } else {
+                        Logger.error(throwable,"{} failed UNSUBSCRIBE from TOPICS {}: {}",
+                                clientLogPrefix,
+                                Arrays.toString(topics),
+                                Throwables.getRootCause(throwable).getMessage());
+                    } else {
 
-                            getClientDataMap().get(unsubscribe.getKey()).removeSubscription(MqttTopicFilter.of(topic));
+                        final ClientData clientData = getClientDataMap().get(unsubscribe.getKey());
+                        final List<String> failedTopics = new ArrayList<>();
+                        final List<Mqtt5UnsubAckReasonCode> reasonCodes = unsubAck.getReasonCodes();
+                        for (int i = 0; i < reasonCodes.size(); i++) {
+                            if (reasonCodes.get(i).isError()) {
+                                failedTopics.add("'" + topics[i] + "' (" + reasonCodes.get(i) + ")");
+                            } else {
+                                clientData.removeSubscription(MqttTopicFilter.of(topics[i]));
+                            }
+                        }
 
-                            Logger.debug("{} received UNSUBACK {}",
-                                    clientLogPrefix,
-                                    unsubAck);
+                        if (!failedTopics.isEmpty()) {
+                            Logger.error("{} failed UNSUBSCRIBE from TOPICS {}", clientLogPrefix, String.join(", ", failedTopics));
                         }
-                    })
-            .join();
-        }
+
+                        Logger.debug("{} received UNSUBACK {}",
+                                clientLogPrefix,
+                                unsubAck);
+                    }
+                })
+        .join();
     }
 
     @Override
     void mqtt3Unsubscribe(@NotNull final Mqtt3Client client, @NotNull final Unsubscribe unsubscribe) {
         final String clientLogPrefix = LoggerUtils.getClientPrefix(client.getConfig());
+        final String[] topics = unsubscribe.getTopics();
 
-        for (String topic : unsubscribe.getTopics()) {
+        final Mqtt3Unsubscribe unsubscribeMessage = Mqtt3Unsubscribe.builder()
+                .addTopicFilters(toTopicFilters(topics))
+                .build();
 
-            final Mqtt3Unsubscribe unsubscribeMessage = Mqtt3Unsubscribe.builder()
-                    .topicFilter(topic)
-                    .build();
+        Logger.debug("{} Sending UNSUBSCRIBE {}",
+                clientLogPrefix,
+                unsubscribeMessage);
 
-                Logger.debug("{} Sending UNSUBSCRIBE {}",
-                        clientLogPrefix,
-                        unsubscribeMessage);
-
-                client.toAsync()
-                    .unsubscribe(unsubscribeMessage)
-                    .whenComplete((Void unsubAck, Throwable throwable) -> {
-
-                        if (throwable != null) {
-                            Logger.error(throwable, "{} failed UNSUBSCRIBE from TOPIC '{}': {}",
-                                    clientLogPrefix,
-                                    topic,
-                                    Throwables.getRootCause(throwable).getMessage());
-                        } else {
-                            getClientDataMap().get(unsubscribe.getKey()).removeSubscription(MqttTopicFilter.of(topic));
-                            Logger.debug("{} received UNSUBACK", clientLogPrefix );
+        client.toAsync()
+                .unsubscribe(unsubscribeMessage)
+                .whenComplete((Void unsubAck, Throwable throwable) -> {
+
+                    if (throwable != null) {
+                        Logger.error(throwable, "{} failed UNSUBSCRIBE from TOPICS {}: {}",
+                                clientLogPrefix,
+                                Arrays.toString(topics),
+                                Throwables.getRootCause(throwable).getMessage());
+                    } else {
+                        final ClientData clientData = getClientDataMap().get(unsubscribe.getKey());
+                        for (final String topic : topics) {
+                            clientData.removeSubscription(MqttTopicFilter.of(topic));
                         }
-                    })
-            .join();
-        }
+                        Logger.debug("{} received UNSUBACK", clientLogPrefix );
+                    }
+                })
+        .join();
     }
 
     @Override
@@ -347,7 +384,11 @@ public class MqttClientExecutor extends AbstractMqttClientExecutor {
         client.toBlocking().disconnect();
     }
 
-    private @NotNull String bufferToString(ByteBuffer b) {
-        return new String(b.array(), StandardCharsets.UTF_8);
+    private @NotNull List<MqttTopicFilter> toTopicFilters(final @NotNull String[] topics) {
+        final List<MqttTopicFilter> topicFilters = new ArrayList<>(topics.length);
+        for (final String topic : topics) {
+            topicFilters.add(MqttTopicFilter.of(topic));
+        }
+        return topicFilters;
     }
 }
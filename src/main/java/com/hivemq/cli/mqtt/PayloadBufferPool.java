@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Direct buffers for rendered payloads which are reused once the publish they were sent with completed. The MQTT client
+ * keeps a reference to the payload until the publish was acknowledged, so a buffer must not be reused earlier.
+ * Buffers are allocated on demand up to the capacity of the pool.
+ */
+public class PayloadBufferPool {
+
+    private final int bufferSize;
+    private final int capacity;
+    private final @NotNull BlockingQueue<ByteBuffer> available;
+    private int allocated;
+
+    public PayloadBufferPool(final int capacity, final int bufferSize) {
+        this.capacity = capacity;
+        this.bufferSize = bufferSize;
+        this.available = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @return a cleared buffer, blocks if all buffers are in use. Must only be called by a single thread.
+     */
+    public @NotNull ByteBuffer acquire() throws InterruptedException {
+        final ByteBuffer buffer = available.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (allocated < capacity) {
+            allocated++;
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        return available.take();
+    }
+
+    public void release(final @NotNull ByteBuffer buffer) {
+        buffer.clear();
+        available.offer(buffer);
+    }
+}
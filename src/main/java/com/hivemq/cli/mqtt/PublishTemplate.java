@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import com.hivemq.cli.commands.Publish;
+import com.hivemq.cli.mqtt.probe.ProbeStream;
+import com.hivemq.client.mqtt.MqttVersion;
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3PublishBuilder;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PublishBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A publish message which is built once and sent repeatedly. The messages of the client library are immutable, so
+ * repeated publishes of the same topic and payload send the same message instance. Only a publish with a different
+ * topic or payload derives a new message from the prepared one. A probed publish is derived with a new stamp every
+ * time it is sent.
+ */
+class PublishTemplate {
+
+    private final @NotNull String topic;
+    private final @NotNull ByteBuffer payload;
+    private final @Nullable Mqtt5Publish mqtt5Publish;
+    private final @Nullable Mqtt3Publish mqtt3Publish;
+    private final @Nullable ProbeStream probe;
+
+    private PublishTemplate(
+            final @NotNull String topic,
+            final @NotNull ByteBuffer payload,
+            final @Nullable Mqtt5Publish mqtt5Publish,
+            final @Nullable Mqtt3Publish mqtt3Publish,
+            final @Nullable ProbeStream probe) {
+        this.topic = topic;
+        this.payload = payload;
+        this.mqtt5Publish = mqtt5Publish;
+        this.mqtt3Publish = mqtt3Publish;
+        this.probe = probe;
+    }
+
+    static @NotNull PublishTemplate of(
+            final @NotNull MqttVersion version,
+            final @NotNull Publish publish,
+            final @NotNull String topic,
+            final @NotNull MqttQos qos,
+            final @NotNull ByteBuffer payload) {
+
+        final ProbeStream probe = publish.getProbe() != null ? new ProbeStream(publish.getProbe()) : null;
+        if (version == MqttVersion.MQTT_3_1_1) {
+            final Mqtt3PublishBuilder.Complete publishBuilder = Mqtt3Publish.builder()
+                    .topic(topic)
+                    .qos(qos)
+                    .payload(payload);
+            if (publish.getRetain() != null) {
+                publishBuilder.retain(publish.getRetain());
+            }
+            return new PublishTemplate(topic, payload, null, publishBuilder.build(), probe);
+        }
+
+        final Mqtt5PublishBuilder.Complete publishBuilder = Mqtt5Publish.builder()
+                .topic(topic)
+                .qos(qos)
+                .payload(payload)
+                .payloadFormatIndicator(publish.getPayloadFormatIndicator())
+                .contentType(publish.getContentType())
+                .responseTopic(publish.getResponseTopic())
+                .correlationData(publish.getCorrelationData());
+        if (publish.getRetain() != null) {
+            publishBuilder.retain(publish.getRetain());
+        }
+        if (publish.getMessageExpiryInterval() != null) {
+            publishBuilder.messageExpiryInterval(publish.getMessageExpiryInterval());
+        }
+        if (publish.getUserProperties() != null) {
+            publishBuilder.userProperties(publish.getUserProperties());
+        }
+        return new PublishTemplate(topic, payload, publishBuilder.build(), null, probe);
+    }
+
+    @NotNull Mqtt5Publish toMqtt5Publish(final @NotNull String topic, final @NotNull ByteBuffer payload) {
+        if (mqtt5Publish == null) {
+            throw new IllegalStateException("The publish template was prepared for MQTT 3");
+        }
+        if (probe != null) {
+            return probe.stamp(mqtt5Publish.extend().topic(topic), mqtt5Publish.getUserProperties(), payload).build();
+        }
+        if (topic == this.topic && payload == this.payload) {
+            return mqtt5Publish;
+        }
+        return mqtt5Publish.extend().topic(topic).payload(payload).build();
+    }
+
+    @NotNull Mqtt3Publish toMqtt3Publish(final @NotNull String topic, final @NotNull ByteBuffer payload) {
+        if (mqtt3Publish == null) {
+            throw new IllegalStateException("The publish template was prepared for MQTT 5");
+        }
+        if (probe != null) {
+            return probe.stamp(mqtt3Publish.extend().topic(topic), payload).build();
+        }
+        if (topic == this.topic && payload == this.payload) {
+            return mqtt3Publish;
+        }
+        return mqtt3Publish.extend().topic(topic).payload(payload).build();
+    }
+}
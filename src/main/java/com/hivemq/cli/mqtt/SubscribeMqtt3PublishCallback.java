@@ -16,8 +16,14 @@
 package com.hivemq.cli.mqtt;
 
 import com.hivemq.cli.commands.Subscribe;
+import com.hivemq.cli.mqtt.capture.CaptureWriter;
+import com.hivemq.cli.mqtt.probe.ProbeStamp;
+import com.hivemq.cli.mqtt.probe.ProbeStatistics;
+import com.hivemq.cli.mqtt.store.StoreWriter;
+import com.hivemq.cli.utils.ConsoleWriter;
 import com.hivemq.cli.utils.LoggerUtils;
 import com.hivemq.cli.utils.MqttPublishUtils;
+import com.hivemq.cli.utils.TimestampFormatter;
 import com.hivemq.cli.utils.json.JsonMqttPublish;
 import com.hivemq.client.mqtt.mqtt3.Mqtt3Client;
 import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
@@ -26,44 +32,107 @@ import org.jetbrains.annotations.Nullable;
 import org.tinylog.Logger;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
 public class SubscribeMqtt3PublishCallback implements Consumer<Mqtt3Publish> {
 
     private final @Nullable File outputFile;
+    private final @Nullable CaptureWriter captureWriter;
+    private final @Nullable StoreWriter storeWriter;
+    private final @Nullable ConsoleWriter consoleWriter;
+    private final @Nullable SubscribeStatistics statistics;
+    private final @Nullable ProbeStatistics probeStatistics;
+    private final @Nullable FormatterPool formatterPool;
     private final @NotNull Mqtt3Client client;
+    private final @NotNull String consumer;
     private final boolean printToStdout;
     private final boolean isBase64;
     private final boolean isJsonOutput;
+    private final boolean isPrettyJson;
     private final boolean showTopics;
 
     SubscribeMqtt3PublishCallback(final @NotNull Subscribe subscribe, final @NotNull Mqtt3Client client) {
-        printToStdout = subscribe.isPrintToSTDOUT();
         outputFile = subscribe.getOutputFile();
+        captureWriter = subscribe.getCaptureWriter();
+        storeWriter = subscribe.getStoreWriter();
+        consoleWriter = subscribe.getConsoleWriter();
+        statistics = subscribe.getStatistics();
+        probeStatistics = subscribe.getProbeStatistics();
+        formatterPool = subscribe.getFormatterPool();
+        // the statistics replace the output of the publishes on the console
+        printToStdout = subscribe.isPrintToSTDOUT() && statistics == null && probeStatistics == null;
         isBase64 = subscribe.isBase64();
         isJsonOutput = subscribe.isJsonOutput();
+        isPrettyJson = !subscribe.isCompactJson();
         showTopics = subscribe.showTopics();
         this.client = client;
+        consumer = client.getConfig().getClientIdentifier().map(Object::toString).orElse("");
     }
 
     @Override
     public void accept(final @NotNull Mqtt3Publish mqtt3Publish) {
 
+        if (captureWriter != null) {
+            try {
+                captureWriter.write(mqtt3Publish);
+            } catch (final IOException e) {
+                Logger.error(e, "Could not write PUBLISH to capture file: {}", e.getMessage());
+            }
+        }
+
+        if (storeWriter != null) {
+            try {
+                storeWriter.write(mqtt3Publish);
+            } catch (final IOException e) {
+                Logger.error(e, "Could not write PUBLISH to store: {}", e.getMessage());
+            }
+        }
+
+        if (statistics != null) {
+            statistics.record(consumer, mqtt3Publish.getTopic().toString(), mqtt3Publish.getPayload(), mqtt3Publish.getQos(), mqtt3Publish.isRetain());
+        }
+
+        if (probeStatistics != null) {
+            probeStatistics.record(ProbeStamp.read(mqtt3Publish.getPayload()));
+        }
+
+        if (outputFile != null || printToStdout) {
+            final long receivedAt = System.currentTimeMillis();
+            if (formatterPool != null) {
+                formatterPool.execute(mqtt3Publish.getTopic(), () -> output(mqtt3Publish, receivedAt));
+            } else {
+                output(mqtt3Publish, receivedAt);
+            }
+        }
+
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("{} received PUBLISH ('{}') {}",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    new String(mqtt3Publish.getPayloadAsBytes(), StandardCharsets.UTF_8),
+                    mqtt3Publish);
+        }
+    }
+
+    // Formats the publish and writes it to the outputs, on the callback thread or on a worker of the formatter pool.
+    private void output(final @NotNull Mqtt3Publish mqtt3Publish, final long receivedAt) {
         String message;
 
-        if (isJsonOutput) { message = new JsonMqttPublish(mqtt3Publish, isBase64).toString(); }
+        if (isJsonOutput) { message = new JsonMqttPublish(mqtt3Publish, isBase64, TimestampFormatter.formatSeconds(receivedAt)).toString(isPrettyJson); }
         else { message = MqttPublishUtils.formatPayload(mqtt3Publish.getPayloadAsBytes(), isBase64); }
 
         if (showTopics) { message = mqtt3Publish.getTopic() + ": " + message; }
 
         if (outputFile != null) { MqttPublishUtils.printToFile(outputFile, message); }
-        if (printToStdout) { System.out.println(message); }
-
-        Logger.debug("{} received PUBLISH ('{}') {}",
-                LoggerUtils.getClientPrefix(client.getConfig()),
-                new String(mqtt3Publish.getPayloadAsBytes(), StandardCharsets.UTF_8),
-                mqtt3Publish);
+        if (printToStdout) { printToConsole(message); }
     }
 
+    private void printToConsole(final @NotNull String message) {
+        if (consoleWriter != null) {
+            consoleWriter.write(message);
+        } else {
+            System.out.println(message);
+        }
+    }
 }
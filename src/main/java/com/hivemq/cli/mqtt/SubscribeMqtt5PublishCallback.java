@@ -16,56 +16,210 @@
 package com.hivemq.cli.mqtt;
 
 import com.hivemq.cli.commands.Subscribe;
+import com.hivemq.cli.mqtt.capture.CaptureWriter;
+import com.hivemq.cli.mqtt.chunk.Chunk;
+import com.hivemq.cli.mqtt.chunk.ChunkAssembler;
+import com.hivemq.cli.mqtt.probe.ProbeStamp;
+import com.hivemq.cli.mqtt.probe.ProbeStatistics;
+import com.hivemq.cli.mqtt.store.StoreWriter;
+import com.hivemq.cli.utils.ConsoleWriter;
 import com.hivemq.cli.utils.LoggerUtils;
 import com.hivemq.cli.utils.MqttPublishUtils;
+import com.hivemq.cli.utils.PayloadCodec;
+import com.hivemq.cli.utils.TimestampFormatter;
 import com.hivemq.cli.utils.json.JsonMqttPublish;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperty;
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.tinylog.Logger;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
 public class SubscribeMqtt5PublishCallback implements Consumer<Mqtt5Publish> {
 
     private final @Nullable File outputFile;
+    private final @Nullable CaptureWriter captureWriter;
+    private final @Nullable StoreWriter storeWriter;
+    private final @Nullable ConsoleWriter consoleWriter;
+    private final @Nullable SubscribeStatistics statistics;
+    private final @Nullable ProbeStatistics probeStatistics;
+    private final @Nullable FormatterPool formatterPool;
+    private final @Nullable ChunkAssembler chunkAssembler;
     private final @NotNull Mqtt5Client client;
+    private final @NotNull String consumer;
     private final boolean printToStdout;
     private final boolean isBase64;
     private final boolean isJsonOutput;
+    private final boolean isPrettyJson;
     private final boolean showTopics;
 
     SubscribeMqtt5PublishCallback(final @NotNull Subscribe subscribe, final @NotNull Mqtt5Client client) {
-        printToStdout = subscribe.isPrintToSTDOUT();
         outputFile = subscribe.getOutputFile();
+        captureWriter = subscribe.getCaptureWriter();
+        storeWriter = subscribe.getStoreWriter();
+        consoleWriter = subscribe.getConsoleWriter();
+        statistics = subscribe.getStatistics();
+        probeStatistics = subscribe.getProbeStatistics();
+        formatterPool = subscribe.getFormatterPool();
+        // the statistics replace the output of the publishes on the console
+        printToStdout = subscribe.isPrintToSTDOUT() && statistics == null && probeStatistics == null;
+        chunkAssembler = subscribe.getChunkAssembler();
         isBase64 = subscribe.isBase64();
         isJsonOutput = subscribe.isJsonOutput();
+        isPrettyJson = !subscribe.isCompactJson();
         showTopics = subscribe.showTopics();
         this.client  = client;
+        consumer = client.getConfig().getClientIdentifier().map(Object::toString).orElse("");
     }
 
     @Override
-    public void accept(final @NotNull Mqtt5Publish mqtt5Publish) {
+    public void accept(final @NotNull Mqtt5Publish receivedPublish) {
+
+        if (captureWriter != null) {
+            try {
+                captureWriter.write(receivedPublish);
+            } catch (final IOException e) {
+                Logger.error(e, "Could not write PUBLISH to capture file: {}", e.getMessage());
+            }
+        }
+
+        if (storeWriter != null) {
+            try {
+                storeWriter.write(receivedPublish);
+            } catch (final IOException e) {
+                Logger.error(e, "Could not write PUBLISH to store: {}", e.getMessage());
+            }
+        }
+
+        if (statistics != null) {
+            statistics.record(consumer, receivedPublish.getTopic().toString(), receivedPublish.getPayload(), receivedPublish.getQos(), receivedPublish.isRetain());
+        }
+
+        if (probeStatistics != null) {
+            probeStatistics.record(ProbeStamp.read(receivedPublish));
+        }
+
+        if (chunkAssembler != null && reassemble(receivedPublish)) {
+            return;
+        }
+
+        if (outputFile != null || printToStdout) {
+            final long receivedAt = System.currentTimeMillis();
+            if (formatterPool != null) {
+                formatterPool.execute(receivedPublish.getTopic(), () -> output(receivedPublish, receivedAt));
+            } else {
+                output(receivedPublish, receivedAt);
+            }
+        }
+
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("{} received PUBLISH ('{}') {}",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    new String(receivedPublish.getPayloadAsBytes(), StandardCharsets.UTF_8),
+                    receivedPublish);
+        }
+
+    }
+
+    // Decompresses and formats the publish and writes it to the outputs, on the callback thread or on a worker of the
+    // formatter pool.
+    private void output(final @NotNull Mqtt5Publish receivedPublish, final long receivedAt) {
+        final Mqtt5Publish mqtt5Publish = decompress(receivedPublish);
 
         String message;
 
-        if (isJsonOutput) { message = new JsonMqttPublish(mqtt5Publish, isBase64).toString(); }
+        if (isJsonOutput) { message = new JsonMqttPublish(mqtt5Publish, isBase64, TimestampFormatter.formatSeconds(receivedAt)).toString(isPrettyJson); }
         else { message = MqttPublishUtils.formatPayload(mqtt5Publish.getPayloadAsBytes(), isBase64); }
 
         if (showTopics) { message = mqtt5Publish.getTopic() + ": " + message; }
 
         if (outputFile != null) { MqttPublishUtils.printToFile(outputFile, message); }
-        if (printToStdout) { System.out.println(message); }
+        if (printToStdout) { printToConsole(message); }
+    }
 
-        Logger.debug("{} received PUBLISH ('{}') {}",
-                LoggerUtils.getClientPrefix(client.getConfig()),
-                new String(mqtt5Publish.getPayloadAsBytes(), StandardCharsets.UTF_8),
-                mqtt5Publish);
+    // Writes the chunk of a chunked payload to its file and outputs the file once the payload is complete instead of
+    // outputting every chunk. Returns false for publishes which are no chunks.
+    private boolean reassemble(final @NotNull Mqtt5Publish publish) {
+        final Chunk chunk;
+        try {
+            chunk = Chunk.of(publish);
+        } catch (final IllegalArgumentException e) {
+            Logger.error("{} received invalid chunk on TOPIC '{}': {}",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    publish.getTopic(),
+                    e.getMessage());
+            return true;
+        }
+        if (chunk == null) {
+            return false;
+        }
 
+        final File file;
+        try {
+            file = chunkAssembler.accept(chunk);
+        } catch (final IOException e) {
+            Logger.error(e, "{} could not write chunk {} of {} on TOPIC '{}': {}",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    chunk.getIndex(),
+                    chunk.getCount(),
+                    publish.getTopic(),
+                    e.getMessage());
+            return true;
+        }
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("{} received chunk {} of {} on TOPIC '{}'",
+                    LoggerUtils.getClientPrefix(client.getConfig()),
+                    chunk.getIndex(),
+                    chunk.getCount(),
+                    publish.getTopic());
+        }
+
+        if (file != null) {
+            final String message = String.format("Reassembled %d bytes from %d chunks of TOPIC '%s' to %s",
+                    file.length(),
+                    chunk.getCount(),
+                    publish.getTopic(),
+                    file.getAbsolutePath());
+            if (outputFile != null) { MqttPublishUtils.printToFile(outputFile, message); }
+            if (printToStdout) { printToConsole(message); }
+        }
+        return true;
     }
 
+    // Decompresses the payload if its codec is signalled by a user property. Payloads of unknown codecs and
+    // payloads which cannot be decompressed or decompress beyond the limit of the codec are output as received.
+    private @NotNull Mqtt5Publish decompress(final @NotNull Mqtt5Publish publish) {
+        for (final Mqtt5UserProperty userProperty : publish.getUserProperties().asList()) {
+            if (PayloadCodec.USER_PROPERTY.equals(userProperty.getName().toString())) {
+                final PayloadCodec codec = PayloadCodec.forName(userProperty.getValue().toString());
+                if (codec == null) {
+                    return publish;
+                }
+                try {
+                    return publish.extend().payload(codec.decodeReceived(publish.getPayloadAsBytes())).build();
+                } catch (final IOException e) {
+                    Logger.error("{} could not decompress {} payload of PUBLISH to TOPIC '{}': {}",
+                            LoggerUtils.getClientPrefix(client.getConfig()),
+                            codec,
+                            publish.getTopic(),
+                            e.getMessage());
+                    return publish;
+                }
+            }
+        }
+        return publish;
+    }
 
+    private void printToConsole(final @NotNull String message) {
+        if (consoleWriter != null) {
+            consoleWriter.write(message);
+        } else {
+            System.out.println(message);
+        }
+    }
 }
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import com.hivemq.cli.utils.LatencyHistogram;
+import com.hivemq.cli.utils.TimestampFormatter;
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the received publishes per topic instead of outputting them and periodically prints their rates, the topics
+ * with the highest message rate and the inter-arrival times of the publishes. Recording is lock-free, so publishes
+ * can be recorded concurrently from the callback threads of the MQTT client, the report is printed from a dedicated
+ * thread. The totals are printed once more when the statistics are closed or the JVM shuts down. If the publishes are
+ * formatted by a {@link FormatterPool}, the report includes the lag of its queues. If the publishes are received by
+ * more than one consumer of a shared subscription, the report includes the rate and share of every consumer.
+ */
+public class SubscribeStatistics implements Closeable {
+
+    // longer inter-arrival times are recorded as one minute
+    private static final long HIGHEST_INTER_ARRIVAL_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final int topTopics;
+    private final @NotNull PrintStream out;
+    private final @Nullable FormatterPool formatterPool;
+    private final @NotNull Counters total = new Counters();
+    private final @NotNull Map<String, Counters> topics = new ConcurrentHashMap<>();
+    private final @NotNull Map<String, Counters> consumers = new ConcurrentHashMap<>();
+    private final @NotNull AtomicLong lastArrivalNanos = new AtomicLong();
+    private final @NotNull AtomicReference<InterArrivals> interArrivals = new AtomicReference<>(new InterArrivals());
+    private final @NotNull ScheduledExecutorService reporter;
+    private final @NotNull AtomicBoolean closed = new AtomicBoolean();
+    private final long startNanos = System.nanoTime();
+    // only accessed by the reporting thread
+    private long lastReportNanos = startNanos;
+
+    /**
+     * @param intervalMillis the interval in which the rates are printed
+     * @param topTopics      the amount of topics with the highest message rate which are printed
+     * @param formatterPool  the pool formatting the publishes or <code>null</code> if they are formatted on receipt
+     */
+    public SubscribeStatistics(final long intervalMillis, final int topTopics, final @Nullable FormatterPool formatterPool) {
+        this(System.out, intervalMillis, topTopics, formatterPool);
+    }
+
+    SubscribeStatistics(
+            final @NotNull PrintStream out,
+            final long intervalMillis,
+            final int topTopics,
+            final @Nullable FormatterPool formatterPool) {
+
+        this.out = out;
+        this.topTopics = topTopics;
+        this.formatterPool = formatterPool;
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mqtt-cli-subscribe-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "mqtt-cli-subscribe-statistics-summary"));
+    }
+
+    /**
+     * @param consumer the identifier of the client which received the publish
+     */
+    public void record(
+            final @NotNull String consumer,
+            final @NotNull String topic,
+            final @NotNull Optional<ByteBuffer> payload,
+            final @NotNull MqttQos qos,
+            final boolean retain) {
+
+        final long now = System.nanoTime();
+        final int bytes = payload.isPresent() ? payload.get().remaining() : 0;
+        total.add(bytes, qos, retain);
+        Counters counters = topics.get(topic);
+        if (counters == null) {
+            counters = topics.computeIfAbsent(topic, t -> new Counters());
+        }
+        counters.add(bytes, qos, retain);
+        Counters consumerCounters = consumers.get(consumer);
+        if (consumerCounters == null) {
+            consumerCounters = consumers.computeIfAbsent(consumer, c -> new Counters());
+        }
+        consumerCounters.add(bytes, qos, retain);
+        final long previousArrival = lastArrivalNanos.getAndSet(now);
+        if (previousArrival != 0) {
+            interArrivals.get().record(TimeUnit.NANOSECONDS.toMicros(now - previousArrival));
+        }
+    }
+
+    /**
+     * Prints the rates since the last report, the totals, the rates of the consumers and the topics with the highest
+     * message rate.
+     */
+    synchronized void report() {
+        final long now = System.nanoTime();
+        final double seconds = Math.max(now - lastReportNanos, 1) / 1_000_000_000.0;
+        lastReportNanos = now;
+        final InterArrivals intervalInterArrivals = interArrivals.getAndSet(new InterArrivals());
+
+        final long messages = total.messages.sum();
+        final long bytes = total.bytes.sum();
+        final StringBuilder report = new StringBuilder();
+        report.append(String.format("%s %.1f msg/s, %.1f bytes/s, total: %d messages (%d bytes) on %d topics, QoS 0/1/2: %s, retained: %d%n",
+                TimestampFormatter.formatSeconds(System.currentTimeMillis()),
+                (messages - total.reportedMessages) / seconds,
+                (bytes - total.reportedBytes) / seconds,
+                messages,
+                bytes,
+                topics.size(),
+                total.getQosMix(),
+                total.retained.sum()));
+        total.reportedMessages = messages;
+        total.reportedBytes = bytes;
+
+        final LatencyHistogram histogram = intervalInterArrivals.histogram;
+        if (histogram.getCount() > 0) {
+            report.append(String.format("  inter-arrival (ms): p50=%.3f p99=%.3f max=%.3f jitter=%.3f%n",
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getMax() / 1000.0,
+                    intervalInterArrivals.getStandardDeviation() / 1000.0));
+        }
+
+        if (formatterPool != null) {
+            final LatencyHistogram queueLag = formatterPool.takeIntervalQueueLag();
+            report.append(String.format("  formatting queue lag (ms): p50=%.3f p99=%.3f max=%.3f, max queue depth: %d, dropped: %d%n",
+                    queueLag.getValueAtPercentile(50) / 1000.0,
+                    queueLag.getValueAtPercentile(99) / 1000.0,
+                    queueLag.getMax() / 1000.0,
+                    formatterPool.getMaxQueueDepth(),
+                    formatterPool.getDropped()));
+        }
+
+        if (consumers.size() > 1) {
+            report.append(String.format("  %12s %14s %12s %7s  %s%n", "msg/s", "bytes/s", "messages", "share", "consumer"));
+            for (final Map.Entry<String, Counters> entry : new TreeMap<>(consumers).entrySet()) {
+                final Counters counters = entry.getValue();
+                final long consumerMessages = counters.messages.sum();
+                final long consumerBytes = counters.bytes.sum();
+                report.append(String.format("  %12.1f %14.1f %12d %6.1f%%  %s%n",
+                        (consumerMessages - counters.reportedMessages) / seconds,
+                        (consumerBytes - counters.reportedBytes) / seconds,
+                        consumerMessages,
+                        getShare(consumerMessages, messages),
+                        entry.getKey()));
+                counters.reportedMessages = consumerMessages;
+                counters.reportedBytes = consumerBytes;
+            }
+        }
+
+        final List<TopicRate> rates = new ArrayList<>();
+        for (final Map.Entry<String, Counters> entry : topics.entrySet()) {
+            final Counters counters = entry.getValue();
+            final long topicMessages = counters.messages.sum();
+            final long topicBytes = counters.bytes.sum();
+            if (topicMessages > counters.reportedMessages) {
+                rates.add(new TopicRate(entry.getKey(),
+                        (topicMessages - counters.reportedMessages) / seconds,
+                        (topicBytes - counters.reportedBytes) / seconds,
+                        topicMessages));
+            }
+            counters.reportedMessages = topicMessages;
+            counters.reportedBytes = topicBytes;
+        }
+        if (topTopics > 0 && !rates.isEmpty()) {
+            rates.sort(Comparator.comparingDouble((TopicRate rate) -> rate.messagesPerSecond).reversed());
+            report.append(String.format("  %12s %14s %12s  %s%n", "msg/s", "bytes/s", "messages", "topic"));
+            for (final TopicRate rate : rates.subList(0, Math.min(topTopics, rates.size()))) {
+                report.append(String.format("  %12.1f %14.1f %12d  %s%n",
+                        rate.messagesPerSecond, rate.bytesPerSecond, rate.messages, rate.topic));
+            }
+        }
+        out.print(report);
+        out.flush();
+    }
+
+    /**
+     * Stops the periodic report and prints the totals since the statistics were created.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        reporter.shutdownNow();
+        final double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1_000_000_000.0;
+        final long messages = total.messages.sum();
+        final long bytes = total.bytes.sum();
+        out.printf("Received %d messages (%d bytes) on %d topics in %.2fs (%.1f msg/s, %.1f bytes/s), QoS 0/1/2: %s, retained: %d%n",
+                messages,
+                bytes,
+                topics.size(),
+                seconds,
+                messages / seconds,
+                bytes / seconds,
+                total.getQosMix(),
+                total.retained.sum());
+        if (consumers.size() > 1) {
+            for (final Map.Entry<String, Counters> entry : new TreeMap<>(consumers).entrySet()) {
+                final long consumerMessages = entry.getValue().messages.sum();
+                out.printf("  %s: %d messages (%d bytes, %.1f msg/s, %.1f%%)%n",
+                        entry.getKey(),
+                        consumerMessages,
+                        entry.getValue().bytes.sum(),
+                        consumerMessages / seconds,
+                        getShare(consumerMessages, messages));
+            }
+        }
+        out.flush();
+    }
+
+    private static double getShare(final long messages, final long totalMessages) {
+        return totalMessages == 0 ? 0 : messages * 100.0 / totalMessages;
+    }
+
+    private static class Counters {
+
+        private final @NotNull LongAdder messages = new LongAdder();
+        private final @NotNull LongAdder bytes = new LongAdder();
+        private final @NotNull LongAdder[] qos = {new LongAdder(), new LongAdder(), new LongAdder()};
+        private final @NotNull LongAdder retained = new LongAdder();
+        // the sums at the last report, only accessed by the reporting thread
+        private long reportedMessages;
+        private long reportedBytes;
+
+        private void add(final int bytes, final @NotNull MqttQos qos, final boolean retain) {
+            messages.increment();
+            this.bytes.add(bytes);
+            this.qos[qos.getCode()].increment();
+            if (retain) {
+                retained.increment();
+            }
+        }
+
+        private @NotNull String getQosMix() {
+            return qos[0].sum() + "/" + qos[1].sum() + "/" + qos[2].sum();
+        }
+    }
+
+    // The inter-arrival times of one report interval, replaced as a whole at every report.
+    private static class InterArrivals {
+
+        private final @NotNull LatencyHistogram histogram = new LatencyHistogram(HIGHEST_INTER_ARRIVAL_MICROS);
+        private final @NotNull DoubleAdder sumOfSquares = new DoubleAdder();
+
+        private void record(final long micros) {
+            histogram.record(micros);
+            final double clamped = Math.min(micros, HIGHEST_INTER_ARRIVAL_MICROS);
+            sumOfSquares.add(clamped * clamped);
+        }
+
+        private double getStandardDeviation() {
+            final long count = histogram.getCount();
+            if (count == 0) {
+                return 0;
+            }
+            final double mean = histogram.getMean();
+            return Math.sqrt(Math.max(sumOfSquares.sum() / count - mean * mean, 0));
+        }
+    }
+
+    private static class TopicRate {
+
+        private final @NotNull String topic;
+        private final double messagesPerSecond;
+        private final double bytesPerSecond;
+        private final long messages;
+
+        private TopicRate(final @NotNull String topic, final double messagesPerSecond, final double bytesPerSecond, final long messages) {
+            this.topic = topic;
+            this.messagesPerSecond = messagesPerSecond;
+            this.bytesPerSecond = bytesPerSecond;
+            this.messages = messages;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import com.hivemq.client.mqtt.MqttClient;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5ClientConnectionConfig;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks the topic aliases of the outgoing publishes of a MQTT 5 connection. Topics get an alias on first use and the
+ * least recently used topic gives up its alias once the topic alias maximum is reached.
+ * <p>
+ * The MQTT client assigns the aliases on the wire itself (if the send topic alias maximum of the connection is greater
+ * than 0), this table estimates the assignment to report how many bytes were saved by sending an alias instead of the
+ * topic name. As long as there are no more topics than the topic alias maximum, every topic keeps its alias and the
+ * estimate matches the wire. Once a topic gave up its alias, the client reassigns aliases with its own policy, so the
+ * reported savings are only an estimate assuming least recently used reassignment (see {@link #isEstimate()}).
+ * Not thread safe, it is meant to be used by the single thread which sends the publishes.
+ */
+public class TopicAliasTable {
+
+    // a topic alias is sent as property identifier (1 byte) and two byte integer
+    static final int ALIAS_PROPERTY_LENGTH = 3;
+
+    private final @NotNull Map<String, Integer> topicToLength;
+    private long hits;
+    private long assignments;
+    private long bytesSaved;
+    private boolean reassigned;
+
+    public TopicAliasTable(final int topicAliasMaximum) {
+        if (topicAliasMaximum < 1) {
+            throw new IllegalArgumentException("The topic alias maximum has to be at least 1 but was " + topicAliasMaximum);
+        }
+        this.topicToLength = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Integer> eldest) {
+                if (size() > topicAliasMaximum) {
+                    reassigned = true;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return a table for the client or <code>null</code> if the client can not send topic aliases
+     */
+    public static @Nullable TopicAliasTable forClient(final @NotNull MqttClient client) {
+        if (!(client instanceof Mqtt5Client)) {
+            return null;
+        }
+        final int sendTopicAliasMaximum = ((Mqtt5Client) client).getConfig()
+                .getConnectionConfig()
+                .map(Mqtt5ClientConnectionConfig::getRestrictionsConfig)
+                .map(Mqtt5ClientConnectionConfig.RestrictionsConfig::getSendTopicAliasMaximum)
+                .orElse(0);
+        return sendTopicAliasMaximum > 0 ? new TopicAliasTable(sendTopicAliasMaximum) : null;
+    }
+
+    /**
+     * Records a publish to the given topic.
+     *
+     * @return <code>true</code> if the topic already had an alias, so the topic name was not sent
+     */
+    public boolean use(final @NotNull String topic) {
+        final Integer length = topicToLength.get(topic);
+        if (length != null) {
+            hits++;
+            bytesSaved += length - ALIAS_PROPERTY_LENGTH;
+            return true;
+        }
+        topicToLength.put(topic, topic.getBytes(StandardCharsets.UTF_8).length);
+        assignments++;
+        bytesSaved -= ALIAS_PROPERTY_LENGTH;
+        return false;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getAssignments() {
+        return assignments;
+    }
+
+    /**
+     * @return whether an alias was reassigned, so the hits and saved bytes are an estimate instead of what was sent
+     */
+    public boolean isEstimate() {
+        return reassigned;
+    }
+
+    /**
+     * @return the number of bytes saved on the wire, negative if assigning aliases cost more than it saved
+     */
+    public long getBytesSaved() {
+        return bytesSaved;
+    }
+}
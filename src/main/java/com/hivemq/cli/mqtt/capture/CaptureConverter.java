@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.capture;
+
+import com.hivemq.cli.utils.MqttPublishUtils;
+import com.hivemq.cli.utils.TimestampFormatter;
+import com.hivemq.cli.utils.json.JsonMqttPublish;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Converts the publishes of a capture file or a message store to the text output of 'mqtt sub', to its JSON output or
+ * to CSV with one line per publish.
+ */
+public class CaptureConverter {
+
+    public enum Format {
+        text,
+        json,
+        csv
+    }
+
+    static final @NotNull String CSV_HEADER = "receivedAt,topic,qos,retain,payload";
+
+    private final @NotNull Format format;
+    private final boolean base64;
+    private final boolean showTopics;
+
+    public CaptureConverter(final @NotNull Format format, final boolean base64, final boolean showTopics) {
+        this.format = format;
+        this.base64 = base64;
+        this.showTopics = showTopics;
+    }
+
+    /**
+     * @return the number of converted publishes
+     */
+    public long convert(final @NotNull CaptureReader reader, final @NotNull Writer out) throws IOException {
+        writeHeader(out);
+        long count = 0;
+        CapturedPublish captured;
+        while ((captured = reader.next()) != null) {
+            out.write(format(captured, reader.getCaptureStartMillis()));
+            out.write(System.lineSeparator());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes the header line of the format, if it has one.
+     */
+    public void writeHeader(final @NotNull Writer out) throws IOException {
+        if (format == Format.csv) {
+            out.write(CSV_HEADER);
+            out.write(System.lineSeparator());
+        }
+    }
+
+    @NotNull String format(final @NotNull CapturedPublish captured, final long captureStartMillis) {
+        return format(captured.getPublish(), captureStartMillis + captured.getReceiveNanos() / 1_000_000);
+    }
+
+    /**
+     * @return the line of the publish received at the given wall clock time in milliseconds
+     */
+    public @NotNull String format(final @NotNull Mqtt5Publish publish, final long receivedAtMillis) {
+        final String receivedAt = TimestampFormatter.formatMillis(receivedAtMillis);
+        switch (format) {
+            case json:
+                return new JsonMqttPublish(publish, base64, receivedAt).toString();
+            case csv:
+                return receivedAt + "," +
+                        csvField(publish.getTopic().toString()) + "," +
+                        publish.getQos().getCode() + "," +
+                        publish.isRetain() + "," +
+                        csvField(MqttPublishUtils.formatPayload(publish.getPayloadAsBytes(), base64));
+            default:
+                final String message = MqttPublishUtils.formatPayload(publish.getPayloadAsBytes(), base64);
+                return showTopics ? publish.getTopic() + ": " + message : message;
+        }
+    }
+
+    // Quotes a field as described in RFC 4180 if it contains a separator, a quote or a line break.
+    private static @NotNull String csvField(final @NotNull String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
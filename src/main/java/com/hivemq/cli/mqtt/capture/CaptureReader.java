@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.capture;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserPropertiesBuilder;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PayloadFormatIndicator;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PublishBuilder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the publishes of a capture file written by {@link CaptureWriter} one by one.
+ */
+public class CaptureReader implements Closeable {
+
+    private final @NotNull DataInputStream in;
+    private final long captureStartMillis;
+
+    public CaptureReader(final @NotNull File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != CaptureWriter.MAGIC) {
+                throw new IOException("File " + file.getAbsolutePath() + " is not a capture file");
+            }
+            final byte version = in.readByte();
+            if (version != CaptureWriter.VERSION) {
+                throw new IOException("Unsupported capture file version " + version);
+            }
+            captureStartMillis = in.readLong();
+        } catch (final IOException e) {
+            in.close();
+            if (e instanceof EOFException) {
+                throw new IOException("File " + file.getAbsolutePath() + " is not a capture file");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the wall clock time in milliseconds at which the capture started
+     */
+    public long getCaptureStartMillis() {
+        return captureStartMillis;
+    }
+
+    /**
+     * @return the next publish or <code>null</code> if the end of the capture was reached. A record which was only
+     *         partially written, because the capturing process was killed, is treated as the end of the capture.
+     */
+    public @Nullable CapturedPublish next() throws IOException {
+        final int first = in.read();
+        if (first == -1) {
+            return null;
+        }
+        try {
+            final int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedShort());
+            if (length < 0) {
+                throw new IOException("Invalid capture record length " + (length & 0xFFFFFFFFL));
+            }
+            final byte[] record = new byte[length];
+            in.readFully(record);
+            return decode(ByteBuffer.wrap(record));
+        } catch (final EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param record the record written by {@link CaptureWriter#encode(Mqtt5Publish, long)} without its length prefix
+     */
+    public static @NotNull CapturedPublish decode(final @NotNull ByteBuffer record) throws IOException {
+        final long receiveNanos = record.getLong();
+        final int flags = record.get() & 0xFF;
+        final MqttQos qos = MqttQos.fromCode(flags & 0b11);
+        if (qos == null) {
+            throw new IOException("Invalid QoS " + (flags & 0b11) + " in capture record");
+        }
+
+        final Mqtt5PublishBuilder.Complete publishBuilder = Mqtt5Publish.builder()
+                .topic(getString(record))
+                .qos(qos)
+                .retain((flags & CaptureWriter.FLAG_RETAIN) != 0);
+        if ((flags & CaptureWriter.FLAG_MESSAGE_EXPIRY) != 0) {
+            publishBuilder.messageExpiryInterval(record.getLong());
+        }
+        if ((flags & CaptureWriter.FLAG_PAYLOAD_FORMAT_INDICATOR) != 0) {
+            publishBuilder.payloadFormatIndicator(Mqtt5PayloadFormatIndicator.values()[record.get()]);
+        }
+        if ((flags & CaptureWriter.FLAG_CONTENT_TYPE) != 0) {
+            publishBuilder.contentType(getString(record));
+        }
+        if ((flags & CaptureWriter.FLAG_RESPONSE_TOPIC) != 0) {
+            publishBuilder.responseTopic(getString(record));
+        }
+        if ((flags & CaptureWriter.FLAG_CORRELATION_DATA) != 0) {
+            publishBuilder.correlationData(getBytes(record));
+        }
+        final int userPropertyCount = record.getShort() & 0xFFFF;
+        if (userPropertyCount > 0) {
+            final Mqtt5UserPropertiesBuilder userProperties = Mqtt5UserProperties.builder();
+            for (int i = 0; i < userPropertyCount; i++) {
+                userProperties.add(getString(record), getString(record));
+            }
+            publishBuilder.userProperties(userProperties.build());
+        }
+        final byte[] payload = new byte[record.getInt()];
+        record.get(payload);
+        publishBuilder.payload(payload);
+
+        return new CapturedPublish(receiveNanos, publishBuilder.build());
+    }
+
+    private static @NotNull byte[] getBytes(final @NotNull ByteBuffer record) {
+        final byte[] bytes = new byte[record.getShort() & 0xFFFF];
+        record.get(bytes);
+        return bytes;
+    }
+
+    private static @NotNull String getString(final @NotNull ByteBuffer record) {
+        return new String(getBytes(record), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
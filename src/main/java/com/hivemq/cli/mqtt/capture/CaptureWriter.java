@@ -0,0 +1,310 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.capture;
+
+import com.hivemq.client.mqtt.datatypes.MqttUtf8String;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperty;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tinylog.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes received publishes to a capture file which can be replayed with their original timing.
+ * <p>
+ * A capture file starts with the header {@link #MAGIC}, {@link #VERSION} and the wall clock time the capture started
+ * at in milliseconds. Every publish is stored as a record prefixed by its length as 4 byte big-endian integer which
+ * contains the monotonic receive time relative to the start of the capture, the QoS, the retain flag, the topic, the
+ * MQTT 5 properties and the raw payload.
+ * <p>
+ * The records are encoded directly into a direct buffer of {@link #BUFFER_SIZE}, so the topic, the properties and the
+ * payload are copied once from the received publish and the buffer is written without another copy. The buffer is
+ * written once it is full and at the latest {@link #FLUSH_INTERVAL_MILLIS} after a record was added. Only complete
+ * records are written, so a capture stays readable up to the last complete record if the process is killed. The
+ * buffered records are written when the writer is closed or the JVM shuts down.
+ */
+public class CaptureWriter implements Closeable {
+
+    public static final int MAGIC = 0x4D514341; // "MQCA"
+    public static final byte VERSION = 1;
+    static final int HEADER_LENGTH = 4 + 1 + 8;
+    static final int BUFFER_SIZE = 256 * 1024;
+    static final long FLUSH_INTERVAL_MILLIS = 100;
+
+    static final int FLAG_RETAIN = 1 << 2;
+    static final int FLAG_MESSAGE_EXPIRY = 1 << 3;
+    static final int FLAG_PAYLOAD_FORMAT_INDICATOR = 1 << 4;
+    static final int FLAG_CONTENT_TYPE = 1 << 5;
+    static final int FLAG_RESPONSE_TOPIC = 1 << 6;
+    static final int FLAG_CORRELATION_DATA = 1 << 7;
+
+    private static final @NotNull ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final @NotNull ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "mqtt-cli-capture-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final @NotNull FileChannel channel;
+    private final @NotNull ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final @NotNull ScheduledFuture<?> flushTask;
+    private final long startNanos;
+    // guarded by the lock of the write buffer
+    private boolean closed;
+
+    public CaptureWriter(final @NotNull File file) throws IOException {
+        channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        startNanos = System.nanoTime();
+
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).put(VERSION).putLong(System.currentTimeMillis()).flip();
+        writeFully(header);
+
+        flushTask = FLUSHER.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (final IOException e) {
+                Logger.error(e, "Could not write to capture file {}: {}", file.getAbsolutePath(), e.getMessage());
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                close();
+            } catch (final IOException e) {
+                Logger.error(e, "Could not close capture file {}: {}", file.getAbsolutePath(), e.getMessage());
+            }
+        }, "mqtt-cli-capture-close"));
+    }
+
+    public void write(final @NotNull Mqtt3Publish publish) throws IOException {
+        final ByteBuffer topic = publish.getTopic().toByteBuffer();
+        final ByteBuffer payload = publish.getPayload().orElse(EMPTY);
+        final int length = 8 + 1 + 2 + topic.remaining() + 2 + 4 + payload.remaining();
+        int flags = publish.getQos().getCode();
+        if (publish.isRetain()) {
+            flags |= FLAG_RETAIN;
+        }
+
+        synchronized (buffer) {
+            if (closed) {
+                return;
+            }
+            final ByteBuffer record = reserve(length);
+            record.putInt(length);
+            record.putLong(System.nanoTime() - startNanos);
+            record.put((byte) flags);
+            putBytes(record, topic);
+            record.putShort((short) 0);
+            record.putInt(payload.remaining());
+            record.put(payload.duplicate());
+            release(record);
+        }
+    }
+
+    public void write(final @NotNull Mqtt5Publish publish) throws IOException {
+        final int length = getLength(publish);
+        synchronized (buffer) {
+            if (closed) {
+                return;
+            }
+            final ByteBuffer record = reserve(length);
+            put(record, publish, System.nanoTime() - startNanos, length);
+            release(record);
+        }
+    }
+
+    /**
+     * @return the record of the publish including its length prefix, positioned for reading
+     */
+    public static @NotNull ByteBuffer encode(final @NotNull Mqtt5Publish publish, final long receiveNanos) {
+        final int length = getLength(publish);
+        final ByteBuffer record = ByteBuffer.allocate(4 + length);
+        put(record, publish, receiveNanos, length);
+        record.flip();
+        return record;
+    }
+
+    private static int getLength(final @NotNull Mqtt5Publish publish) {
+        int length = 8 + 1 + 2 + publish.getTopic().toByteBuffer().remaining();
+        if (publish.getMessageExpiryInterval().isPresent()) {
+            length += 8;
+        }
+        if (publish.getPayloadFormatIndicator().isPresent()) {
+            length += 1;
+        }
+        length += getLength(publish.getContentType().orElse(null));
+        length += getLength(publish.getResponseTopic().orElse(null));
+        if (publish.getCorrelationData().isPresent()) {
+            length += 2 + publish.getCorrelationData().get().remaining();
+        }
+        length += 2;
+        for (final Mqtt5UserProperty userProperty : publish.getUserProperties().asList()) {
+            length += getLength(userProperty.getName()) + getLength(userProperty.getValue());
+        }
+        length += 4 + publish.getPayload().map(ByteBuffer::remaining).orElse(0);
+        return length;
+    }
+
+    private static int getLength(final @Nullable MqttUtf8String string) {
+        return string == null ? 0 : 2 + string.toByteBuffer().remaining();
+    }
+
+    private static void put(
+            final @NotNull ByteBuffer record,
+            final @NotNull Mqtt5Publish publish,
+            final long receiveNanos,
+            final int length) {
+
+        final MqttUtf8String contentType = publish.getContentType().orElse(null);
+        final MqttUtf8String responseTopic = publish.getResponseTopic().orElse(null);
+        final ByteBuffer correlationData = publish.getCorrelationData().orElse(null);
+        final ByteBuffer payload = publish.getPayload().orElse(EMPTY);
+        final List<? extends Mqtt5UserProperty> userProperties = publish.getUserProperties().asList();
+
+        int flags = publish.getQos().getCode();
+        if (publish.isRetain()) {
+            flags |= FLAG_RETAIN;
+        }
+        if (publish.getMessageExpiryInterval().isPresent()) {
+            flags |= FLAG_MESSAGE_EXPIRY;
+        }
+        if (publish.getPayloadFormatIndicator().isPresent()) {
+            flags |= FLAG_PAYLOAD_FORMAT_INDICATOR;
+        }
+        if (contentType != null) {
+            flags |= FLAG_CONTENT_TYPE;
+        }
+        if (responseTopic != null) {
+            flags |= FLAG_RESPONSE_TOPIC;
+        }
+        if (correlationData != null) {
+            flags |= FLAG_CORRELATION_DATA;
+        }
+
+        record.putInt(length);
+        record.putLong(receiveNanos);
+        record.put((byte) flags);
+        putBytes(record, publish.getTopic().toByteBuffer());
+        if (publish.getMessageExpiryInterval().isPresent()) {
+            record.putLong(publish.getMessageExpiryInterval().getAsLong());
+        }
+        publish.getPayloadFormatIndicator().ifPresent(indicator -> record.put((byte) indicator.ordinal()));
+        if (contentType != null) {
+            putBytes(record, contentType.toByteBuffer());
+        }
+        if (responseTopic != null) {
+            putBytes(record, responseTopic.toByteBuffer());
+        }
+        if (correlationData != null) {
+            putBytes(record, correlationData);
+        }
+        record.putShort((short) userProperties.size());
+        for (final Mqtt5UserProperty userProperty : userProperties) {
+            putBytes(record, userProperty.getName().toByteBuffer());
+            putBytes(record, userProperty.getValue().toByteBuffer());
+        }
+        record.putInt(payload.remaining());
+        record.put(payload.duplicate());
+    }
+
+    // Returns the buffer to encode a record of the given length into, which is the write buffer unless the record is
+    // larger than the write buffer. Has to be called while holding the lock of the write buffer.
+    private @NotNull ByteBuffer reserve(final int length) throws IOException {
+        if (4 + length > buffer.remaining()) {
+            flushBuffer();
+        }
+        if (4 + length > buffer.capacity()) {
+            return ByteBuffer.allocate(4 + length);
+        }
+        return buffer;
+    }
+
+    private void release(final @NotNull ByteBuffer record) throws IOException {
+        if (record != buffer) {
+            record.flip();
+            writeFully(record);
+        }
+    }
+
+    /**
+     * Writes the buffered records to the capture file.
+     */
+    public void flush() throws IOException {
+        synchronized (buffer) {
+            if (!closed) {
+                flushBuffer();
+            }
+        }
+    }
+
+    // Has to be called while holding the lock of the write buffer.
+    private void flushBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void writeFully(final @NotNull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void putBytes(final @NotNull ByteBuffer buffer, final @NotNull ByteBuffer bytes) {
+        buffer.putShort((short) bytes.remaining());
+        buffer.put(bytes.duplicate());
+    }
+
+    /**
+     * Writes the buffered records and closes the capture file. Publishes written after the writer was closed are
+     * ignored.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (buffer) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushTask.cancel(false);
+            try {
+                flushBuffer();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.capture;
+
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3PublishBuilder;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A publish of a capture file together with the time it was received, relative to the start of the capture.
+ * Publishes received by MQTT 3 clients are captured as MQTT 5 publishes without properties.
+ */
+public class CapturedPublish {
+
+    private final long receiveNanos;
+    private final @NotNull Mqtt5Publish publish;
+
+    public CapturedPublish(final long receiveNanos, final @NotNull Mqtt5Publish publish) {
+        this.receiveNanos = receiveNanos;
+        this.publish = publish;
+    }
+
+    public long getReceiveNanos() {
+        return receiveNanos;
+    }
+
+    public @NotNull Mqtt5Publish getPublish() {
+        return publish;
+    }
+
+    public @NotNull Mqtt3Publish toMqtt3Publish() {
+        final Mqtt3PublishBuilder.Complete publishBuilder = Mqtt3Publish.builder()
+                .topic(publish.getTopic())
+                .qos(publish.getQos())
+                .retain(publish.isRetain());
+        publish.getPayload().ifPresent(publishBuilder::payload);
+        return publishBuilder.build();
+    }
+}
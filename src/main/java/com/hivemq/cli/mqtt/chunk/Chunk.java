@@ -0,0 +1,185 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.chunk;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperty;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A fragment of a payload which was split because it exceeds the maximum packet size of the broker.
+ * <p>
+ * All chunks of a payload share the correlation data which identifies the transfer. The user properties
+ * {@link #INDEX_PROPERTY}, {@link #COUNT_PROPERTY} and {@link #OFFSET_PROPERTY} tell where a chunk belongs, so the
+ * payload can be reassembled regardless of the order the chunks arrive in.
+ */
+public class Chunk {
+
+    public static final @NotNull String INDEX_PROPERTY = "chunk-index";
+    public static final @NotNull String COUNT_PROPERTY = "chunk-count";
+    public static final @NotNull String OFFSET_PROPERTY = "chunk-offset";
+    public static final int TRANSFER_ID_LENGTH = 16;
+
+    // the fixed header with the longest remaining length and the longest property length
+    private static final int HEADER_OVERHEAD = 1 + 4 + 4;
+    private static final int TOPIC_ALIAS_OVERHEAD = 1 + 2;
+
+    private final @NotNull String transferId;
+    private final int index;
+    private final int count;
+    private final long offset;
+    private final @NotNull ByteBuffer payload;
+
+    private Chunk(
+            final @NotNull String transferId,
+            final int index,
+            final int count,
+            final long offset,
+            final @NotNull ByteBuffer payload) {
+        this.transferId = transferId;
+        this.index = index;
+        this.count = count;
+        this.offset = offset;
+        this.payload = payload;
+    }
+
+    /**
+     * @return the chunk carried by the publish or <code>null</code> if the publish is not a chunk
+     * @throws IllegalArgumentException if the publish carries invalid chunk properties
+     */
+    public static @Nullable Chunk of(final @NotNull Mqtt5Publish publish) {
+        String index = null;
+        String count = null;
+        String offset = null;
+        for (final Mqtt5UserProperty userProperty : publish.getUserProperties().asList()) {
+            final String name = userProperty.getName().toString();
+            if (INDEX_PROPERTY.equals(name)) {
+                index = userProperty.getValue().toString();
+            } else if (COUNT_PROPERTY.equals(name)) {
+                count = userProperty.getValue().toString();
+            } else if (OFFSET_PROPERTY.equals(name)) {
+                offset = userProperty.getValue().toString();
+            }
+        }
+        if (index == null || count == null || offset == null) {
+            return null;
+        }
+
+        final ByteBuffer correlationData = publish.getCorrelationData()
+                .orElseThrow(() -> new IllegalArgumentException("Chunk without correlation data"));
+        try {
+            final Chunk chunk = new Chunk(toHex(correlationData),
+                    Integer.parseInt(index),
+                    Integer.parseInt(count),
+                    Long.parseLong(offset),
+                    publish.getPayload().orElse(ByteBuffer.allocate(0)));
+            if (chunk.index < 0 || chunk.index >= chunk.count || chunk.offset < 0) {
+                throw new IllegalArgumentException("Invalid chunk " + index + " of " + count + " at offset " + offset);
+            }
+            return chunk;
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid chunk " + index + " of " + count + " at offset " + offset);
+        }
+    }
+
+    /**
+     * @return the given user properties extended by the properties which describe a chunk
+     */
+    public static @NotNull Mqtt5UserProperties userProperties(
+            final @Nullable Mqtt5UserProperties userProperties, final int index, final int count, final long offset) {
+        return (userProperties != null ? userProperties.extend() : Mqtt5UserProperties.builder())
+                .add(INDEX_PROPERTY, Integer.toString(index))
+                .add(COUNT_PROPERTY, Integer.toString(count))
+                .add(OFFSET_PROPERTY, Long.toString(offset))
+                .build();
+    }
+
+    /**
+     * @return an upper bound of the bytes which a chunk of a payload of the given length adds to its payload when it is
+     *         sent as the given publish: the header, the topic, the packet identifier and the properties including the
+     *         transfer id and the chunk properties
+     */
+    public static int getOverhead(final @NotNull Mqtt5Publish publish, final long length) {
+        int overhead = HEADER_OVERHEAD + TOPIC_ALIAS_OVERHEAD + stringLength(publish.getTopic().toString()) + 1 + 2 + TRANSFER_ID_LENGTH;
+        if (publish.getQos() != MqttQos.AT_MOST_ONCE) {
+            overhead += 2;
+        }
+        if (publish.getPayloadFormatIndicator().isPresent()) {
+            overhead += 1 + 1;
+        }
+        if (publish.getMessageExpiryInterval().isPresent()) {
+            overhead += 1 + 4;
+        }
+        if (publish.getContentType().isPresent()) {
+            overhead += 1 + stringLength(publish.getContentType().get().toString());
+        }
+        if (publish.getResponseTopic().isPresent()) {
+            overhead += 1 + stringLength(publish.getResponseTopic().get().toString());
+        }
+        for (final Mqtt5UserProperty userProperty : publish.getUserProperties().asList()) {
+            overhead += 1 + stringLength(userProperty.getName().toString()) + stringLength(userProperty.getValue().toString());
+        }
+        // index, count and offset of a chunk never have more digits than the length of the payload
+        final int digits = Long.toString(Math.max(length, 1)).length();
+        overhead += 1 + stringLength(INDEX_PROPERTY) + 2 + digits;
+        overhead += 1 + stringLength(COUNT_PROPERTY) + 2 + digits;
+        overhead += 1 + stringLength(OFFSET_PROPERTY) + 2 + digits;
+        return overhead;
+    }
+
+    private static int stringLength(final @NotNull String string) {
+        return 2 + string.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static @NotNull String toHex(final @NotNull ByteBuffer bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.remaining() * 2);
+        final ByteBuffer duplicate = bytes.duplicate();
+        while (duplicate.hasRemaining()) {
+            final int b = duplicate.get() & 0xFF;
+            hex.append(Character.forDigit(b >> 4, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @return the correlation data of the chunk in hexadecimal, shared by all chunks of a payload
+     */
+    public @NotNull String getTransferId() {
+        return transferId;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public @NotNull ByteBuffer getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.chunk;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reassembles chunked payloads in a directory. Every chunk is written to its offset in the file
+ * <code>&lt;transferId&gt;.part</code> as soon as it arrives, so a payload is never held in memory as a whole. Once
+ * all chunks of a payload arrived the file is renamed to <code>&lt;transferId&gt;</code>.
+ */
+public class ChunkAssembler implements Closeable {
+
+    static final @NotNull String PART_SUFFIX = ".part";
+
+    private final @NotNull File directory;
+    private final @NotNull Map<String, Transfer> transfers = new HashMap<>();
+
+    public ChunkAssembler(final @NotNull File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the reassembled file if the chunk completed its payload, otherwise <code>null</code>
+     */
+    public synchronized @Nullable File accept(final @NotNull Chunk chunk) throws IOException {
+        Transfer transfer = transfers.get(chunk.getTransferId());
+        if (transfer == null) {
+            transfer = new Transfer(new File(directory, chunk.getTransferId() + PART_SUFFIX), chunk.getCount());
+            transfers.put(chunk.getTransferId(), transfer);
+        } else if (transfer.count != chunk.getCount()) {
+            throw new IOException("Chunk " + chunk.getIndex() + " of transfer " + chunk.getTransferId() +
+                    " announces " + chunk.getCount() + " chunks instead of " + transfer.count);
+        }
+
+        if (transfer.received.get(chunk.getIndex())) {
+            // a QoS 1 duplicate, the chunk was already written
+            return null;
+        }
+        final ByteBuffer payload = chunk.getPayload().duplicate();
+        long position = chunk.getOffset();
+        while (payload.hasRemaining()) {
+            position += transfer.channel.write(payload, position);
+        }
+        transfer.received.set(chunk.getIndex());
+
+        if (transfer.received.cardinality() < transfer.count) {
+            return null;
+        }
+        transfers.remove(chunk.getTransferId());
+        transfer.channel.close();
+        final File file = new File(directory, chunk.getTransferId());
+        Files.move(transfer.file.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+
+    /**
+     * Closes the files of incomplete payloads. Their chunks received so far stay in the <code>.part</code> files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (final Transfer transfer : transfers.values()) {
+            try {
+                transfer.channel.close();
+            } catch (final IOException e) {
+                failure = e;
+            }
+        }
+        transfers.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static class Transfer {
+
+        private final @NotNull File file;
+        private final @NotNull FileChannel channel;
+        private final @NotNull BitSet received;
+        private final int count;
+
+        Transfer(final @NotNull File file, final int count) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.received = new BitSet(count);
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.outbox;
+
+import com.hivemq.cli.mqtt.capture.CaptureReader;
+import com.hivemq.cli.mqtt.capture.CaptureWriter;
+import com.hivemq.cli.mqtt.capture.CapturedPublish;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An append-only journal of publishes which are waiting to be sent, memory-mapped so a backlog of any size stays on
+ * disk instead of the heap and survives a restart of the shell.
+ * <p>
+ * The journal starts with the header {@link #MAGIC}, {@link #VERSION} and the offset of the first entry which was not
+ * yet acknowledged. Every entry consists of the length of its record as 4 byte big-endian integer, a state byte and
+ * the publish encoded as capture record (see {@link CaptureWriter}). A length of 0 marks the end of the journal. The
+ * length of an entry is written last, so an entry is only visible once it is complete.
+ * <p>
+ * Acknowledged entries are marked in place and skipped. They are compacted away once the acknowledged prefix of the
+ * journal is larger than the rest, by moving the remaining entries to the start of the journal. Source and target of
+ * the move do not overlap, so the journal stays consistent if the process is killed while compacting.
+ * <p>
+ * Once the journal is closed, publishes which are still in flight are neither acknowledged nor released anymore, so
+ * their entries stay pending and are sent again after the journal is reopened.
+ */
+public class OutboxJournal implements Closeable {
+
+    public static final int MAGIC = 0x4D514F42; // "MQOB"
+    public static final byte VERSION = 1;
+    static final int HEADER_LENGTH = 16;
+    private static final int HEAD_OFFSET = 8;
+    private static final int ENTRY_HEADER_LENGTH = 4 + 1;
+    private static final byte STATE_PENDING = 0;
+    private static final byte STATE_ACKNOWLEDGED = 1;
+    static final int INITIAL_CAPACITY = 1 << 20;
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    private final @NotNull File file;
+    private final @NotNull FileChannel channel;
+    private @NotNull MappedByteBuffer buffer;
+    private long head;
+    private long tail;
+    private long sendPosition;
+    private int pending;
+    private int inFlight;
+    private boolean closed;
+
+    public OutboxJournal(final @NotNull File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final boolean created = channel.size() == 0;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_CAPACITY, channel.size()));
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.put(4, VERSION);
+                writeHead(HEADER_LENGTH);
+                buffer.putInt(HEADER_LENGTH, 0);
+            } else {
+                if (buffer.getInt(0) != MAGIC) {
+                    throw new IOException("File " + file.getAbsolutePath() + " is not an outbox journal");
+                }
+                if (buffer.get(4) != VERSION) {
+                    throw new IOException("Unsupported outbox journal version " + buffer.get(4));
+                }
+            }
+            head = buffer.getLong(HEAD_OFFSET);
+            if (head < HEADER_LENGTH || head > buffer.capacity() - 4) {
+                throw new IOException("Invalid head " + head + " of outbox journal " + file.getAbsolutePath());
+            }
+            recover();
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // finds the end of the journal and counts the entries which were not yet acknowledged
+    private void recover() {
+        long position = head;
+        while (position + ENTRY_HEADER_LENGTH <= buffer.capacity()) {
+            final int length = buffer.getInt((int) position);
+            if (length <= 0 || position + ENTRY_HEADER_LENGTH + length > buffer.capacity()) {
+                break;
+            }
+            if (buffer.get((int) position + 4) == STATE_PENDING) {
+                pending++;
+            }
+            position += ENTRY_HEADER_LENGTH + length;
+        }
+        tail = position;
+        sendPosition = head;
+    }
+
+    /**
+     * Appends the publish to the end of the journal.
+     */
+    public synchronized void append(final @NotNull Mqtt5Publish publish) throws IOException {
+        if (closed) {
+            throw new IOException("Outbox journal " + file.getAbsolutePath() + " is closed");
+        }
+        final ByteBuffer record = CaptureWriter.encode(publish, 0);
+        final int length = record.getInt();
+        final long entryLength = ENTRY_HEADER_LENGTH + length;
+        ensureCapacity(entryLength);
+
+        final int position = (int) tail;
+        buffer.putInt((int) (tail + entryLength), 0);
+        buffer.put(position + 4, STATE_PENDING);
+        final ByteBuffer target = buffer.duplicate();
+        target.position(position + ENTRY_HEADER_LENGTH);
+        target.put(record);
+        buffer.putInt(position, length);
+        tail += entryLength;
+        pending++;
+    }
+
+    /**
+     * @return the next entry which was not yet sent or <code>null</code> if all entries were sent or the journal is
+     *         closed
+     */
+    public synchronized @Nullable Entry next() throws IOException {
+        if (closed) {
+            return null;
+        }
+        while (sendPosition < tail) {
+            final int position = (int) sendPosition;
+            final int length = buffer.getInt(position);
+            sendPosition += ENTRY_HEADER_LENGTH + length;
+            if (buffer.get(position + 4) == STATE_PENDING) {
+                final ByteBuffer record = buffer.duplicate();
+                record.position(position + ENTRY_HEADER_LENGTH).limit(position + ENTRY_HEADER_LENGTH + length);
+                final CapturedPublish publish = CaptureReader.decode(record.slice());
+                inFlight++;
+                return new Entry(position, publish);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks the entry as acknowledged, so it is never sent again.
+     */
+    public synchronized void acknowledge(final @NotNull Entry entry) {
+        if (closed) {
+            return;
+        }
+        buffer.put((int) entry.position + 4, STATE_ACKNOWLEDGED);
+        pending--;
+        inFlight--;
+        while (head < tail && buffer.get((int) head + 4) == STATE_ACKNOWLEDGED) {
+            head += ENTRY_HEADER_LENGTH + buffer.getInt((int) head);
+        }
+        writeHead(head);
+        compact();
+    }
+
+    /**
+     * Releases an entry whose publish failed. It is sent again by the next drain after {@link #rewind()}.
+     */
+    public synchronized void failed(final @NotNull Entry entry) {
+        if (closed) {
+            return;
+        }
+        inFlight--;
+        compact();
+    }
+
+    /**
+     * Starts sending again from the first entry which was not acknowledged, so entries whose publish failed or was
+     * lost with the connection are sent again. Only rewinds if no entry is in flight.
+     */
+    public synchronized void rewind() {
+        if (inFlight == 0) {
+            sendPosition = head;
+        }
+    }
+
+    // makes room for an entry and its end marker, compacting the journal before growing it
+    private void ensureCapacity(final long entryLength) throws IOException {
+        if (tail + entryLength + 4 <= buffer.capacity()) {
+            return;
+        }
+        compact();
+        final long required = tail + entryLength + 4;
+        if (required > buffer.capacity()) {
+            final long capacity = Math.max((long) buffer.capacity() * 2, required);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Outbox journal " + file.getAbsolutePath() + " is full");
+            }
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+
+    // Moves the entries which were not acknowledged to the start of the journal. Entries in flight keep their
+    // position, so nothing is moved while entries are in flight. The move is skipped unless the moved entries and
+    // their end marker fit into the acknowledged prefix, so the source stays intact until the head points to the copy.
+    private void compact() {
+        if (inFlight > 0 || head == HEADER_LENGTH || head - HEADER_LENGTH < tail - head + 4) {
+            return;
+        }
+        final long shift = head - HEADER_LENGTH;
+        final byte[] copyBuffer = new byte[(int) Math.min(COPY_BUFFER_SIZE, Math.max(1, tail - head))];
+        for (long position = head; position < tail; position += copyBuffer.length) {
+            final int length = (int) Math.min(copyBuffer.length, tail - position);
+            final ByteBuffer source = buffer.duplicate();
+            source.position((int) position);
+            source.get(copyBuffer, 0, length);
+            final ByteBuffer target = buffer.duplicate();
+            target.position((int) (position - shift));
+            target.put(copyBuffer, 0, length);
+        }
+        tail -= shift;
+        sendPosition -= shift;
+        buffer.putInt((int) tail, 0);
+        head = HEADER_LENGTH;
+        writeHead(head);
+    }
+
+    private void writeHead(final long head) {
+        buffer.putLong(HEAD_OFFSET, head);
+    }
+
+    /**
+     * @return the number of entries which were not yet acknowledged
+     */
+    public synchronized int getPending() {
+        return pending;
+    }
+
+    public @NotNull File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+        channel.close();
+    }
+
+    public static final class Entry {
+
+        private final long position;
+        private final @NotNull CapturedPublish publish;
+
+        private Entry(final long position, final @NotNull CapturedPublish publish) {
+            this.position = position;
+            this.publish = publish;
+        }
+
+        public @NotNull CapturedPublish getPublish() {
+            return publish;
+        }
+    }
+}
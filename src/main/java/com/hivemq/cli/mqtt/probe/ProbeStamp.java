@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.probe;
+
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperty;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * The stream, sequence number and send time a publish of 'mqtt pub --probe' is stamped with, so 'mqtt sub --probe'
+ * measures the one-way latency, the loss and the reordering of the publishes. The stamp is either sent as the MQTT 5
+ * user property {@link #USER_PROPERTY} or as binary header in front of the payload, which also works in MQTT 3.
+ */
+public class ProbeStamp {
+
+    public enum Encoding {
+        property, header
+    }
+
+    public static final @NotNull String USER_PROPERTY = "mqtt-cli-probe";
+
+    // the header consists of the magic number, the stream, the sequence number and the send time
+    static final int HEADER_MAGIC = 0x4D514C50;
+    public static final int HEADER_LENGTH = 4 + 8 + 8 + 8;
+
+    private final long stream;
+    private final long sequence;
+    private final long sendTimeMicros;
+
+    ProbeStamp(final long stream, final long sequence, final long sendTimeMicros) {
+        this.stream = stream;
+        this.sequence = sequence;
+        this.sendTimeMicros = sendTimeMicros;
+    }
+
+    /**
+     * @return the stamp of the user property or the payload header of the publish or <code>null</code> if the
+     * publish is not stamped
+     */
+    public static @Nullable ProbeStamp read(final @NotNull Mqtt5Publish publish) {
+        for (final Mqtt5UserProperty userProperty : publish.getUserProperties().asList()) {
+            if (USER_PROPERTY.equals(userProperty.getName().toString())) {
+                return parse(userProperty.getValue().toString());
+            }
+        }
+        return read(publish.getPayload());
+    }
+
+    /**
+     * @return the stamp of the payload header or <code>null</code> if the payload has no header
+     */
+    public static @Nullable ProbeStamp read(final @NotNull Optional<ByteBuffer> payload) {
+        if (!payload.isPresent()) {
+            return null;
+        }
+        final ByteBuffer buffer = payload.get();
+        final int position = buffer.position();
+        if (buffer.remaining() < HEADER_LENGTH || buffer.getInt(position) != HEADER_MAGIC) {
+            return null;
+        }
+        return new ProbeStamp(buffer.getLong(position + 4), buffer.getLong(position + 12), buffer.getLong(position + 20));
+    }
+
+    static @Nullable ProbeStamp parse(final @NotNull String value) {
+        final String[] fields = value.split(":");
+        if (fields.length != 3) {
+            return null;
+        }
+        try {
+            return new ProbeStamp(Long.parseUnsignedLong(fields[0], 16), Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @NotNull String toUserPropertyValue() {
+        return Long.toHexString(stream) + ":" + sequence + ":" + sendTimeMicros;
+    }
+
+    /**
+     * @return a copy of the payload with the header of this stamp in front
+     */
+    @NotNull ByteBuffer prependHeader(final @NotNull ByteBuffer payload) {
+        final ByteBuffer stamped = ByteBuffer.allocate(HEADER_LENGTH + payload.remaining());
+        stamped.putInt(HEADER_MAGIC).putLong(stream).putLong(sequence).putLong(sendTimeMicros);
+        stamped.put(payload.duplicate());
+        stamped.flip();
+        return stamped;
+    }
+
+    /**
+     * @return the wall clock time in microseconds since the epoch, as precise as the clock of the JVM
+     */
+    static long currentTimeMicros() {
+        final Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    public long getStream() {
+        return stream;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getSendTimeMicros() {
+        return sendTimeMicros;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.probe;
+
+import com.hivemq.cli.utils.LatencyHistogram;
+import com.hivemq.cli.utils.TimestampFormatter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the one-way latency, the loss and the reordering of the publishes stamped by 'mqtt pub --probe'. The
+ * latency is the difference between the receive time and the send time of the stamp, corrected by the offset of the
+ * clock of the publisher, so publisher and subscriber on different hosts either need synchronized clocks or a known
+ * offset. The latencies since the last report are printed periodically, all latencies once the statistics are closed
+ * or the JVM shuts down.
+ */
+public class ProbeStatistics implements Closeable {
+
+    // longer latencies are recorded as one hour
+    private static final long HIGHEST_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final long clockOffsetMicros;
+    private final @NotNull PrintStream out;
+    private final @NotNull LatencyHistogram latencies = new LatencyHistogram(HIGHEST_LATENCY_MICROS);
+    private final @NotNull AtomicReference<LatencyHistogram> intervalLatencies =
+            new AtomicReference<>(new LatencyHistogram(HIGHEST_LATENCY_MICROS));
+    private final @NotNull Map<Long, Stream> streams = new ConcurrentHashMap<>();
+    private final @NotNull LongAdder unstamped = new LongAdder();
+    private final @NotNull LongAdder negative = new LongAdder();
+    private final @NotNull ScheduledExecutorService reporter;
+    private final @NotNull AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * @param intervalMillis    the interval in which the latencies are printed
+     * @param clockOffsetMillis the amount of milliseconds the clock of the publisher is ahead of the clock of the
+     *                          subscriber
+     */
+    public ProbeStatistics(final long intervalMillis, final double clockOffsetMillis) {
+        this(System.out, intervalMillis, clockOffsetMillis);
+    }
+
+    ProbeStatistics(final @NotNull PrintStream out, final long intervalMillis, final double clockOffsetMillis) {
+        this.out = out;
+        this.clockOffsetMicros = (long) (clockOffsetMillis * 1000);
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "mqtt-cli-probe-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "mqtt-cli-probe-statistics-summary"));
+    }
+
+    /**
+     * @param stamp the stamp of the received publish or <code>null</code> if it was not stamped
+     */
+    public void record(final @Nullable ProbeStamp stamp) {
+        record(stamp, ProbeStamp.currentTimeMicros());
+    }
+
+    void record(final @Nullable ProbeStamp stamp, final long receiveTimeMicros) {
+        if (stamp == null) {
+            unstamped.increment();
+            return;
+        }
+        final long latency = receiveTimeMicros - stamp.getSendTimeMicros() + clockOffsetMicros;
+        if (latency < 0) {
+            negative.increment();
+        }
+        latencies.record(latency);
+        intervalLatencies.get().record(latency);
+
+        Stream stream = streams.get(stamp.getStream());
+        if (stream == null) {
+            stream = streams.computeIfAbsent(stamp.getStream(), id -> new Stream());
+        }
+        stream.receive(stamp.getSequence());
+    }
+
+    /**
+     * Prints the latencies since the last report and the loss and reordering since the start.
+     */
+    synchronized void report() {
+        final LatencyHistogram interval = intervalLatencies.getAndSet(new LatencyHistogram(HIGHEST_LATENCY_MICROS));
+        out.printf("%s %d probes, %s, %s%n",
+                TimestampFormatter.formatSeconds(System.currentTimeMillis()),
+                interval.getCount(),
+                formatLatencies(interval),
+                formatLossAndReordering());
+        out.flush();
+    }
+
+    /**
+     * Stops the periodic report and prints the latencies, the loss and the reordering since the start.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        reporter.shutdownNow();
+        out.printf("Received %d probes from %d streams, %s, %s%n",
+                latencies.getCount(),
+                streams.size(),
+                formatLatencies(latencies),
+                formatLossAndReordering());
+        if (unstamped.sum() > 0) {
+            out.printf("%d publishes were not stamped by 'mqtt pub --probe'%n", unstamped.sum());
+        }
+        if (negative.sum() > 0) {
+            out.printf("%d latencies were negative as the clocks of publisher and subscriber differ, correct them with '--probeClockOffset'%n",
+                    negative.sum());
+        }
+        out.flush();
+    }
+
+    private static @NotNull String formatLatencies(final @NotNull LatencyHistogram histogram) {
+        return String.format("latency (ms): p50=%.3f p99=%.3f p99.9=%.3f max=%.3f",
+                histogram.getValueAtPercentile(50) / 1000D,
+                histogram.getValueAtPercentile(99) / 1000D,
+                histogram.getValueAtPercentile(99.9) / 1000D,
+                histogram.getMax() / 1000D);
+    }
+
+    private @NotNull String formatLossAndReordering() {
+        long expected = 0;
+        long lost = 0;
+        long reordered = 0;
+        for (final Stream stream : streams.values()) {
+            synchronized (stream) {
+                final long streamExpected = stream.highest - stream.lowest + 1;
+                expected += streamExpected;
+                lost += Math.max(streamExpected - stream.received, 0);
+                reordered += stream.reordered;
+            }
+        }
+        return String.format("lost: %d of %d (%.2f%%), reordered: %d",
+                lost, expected, expected == 0 ? 0D : 100D * lost / expected, reordered);
+    }
+
+    // The sequence numbers received from one publisher stream. The stream is expected from the lowest received sequence
+    // number on, so a subscriber which starts after the publisher does not count the earlier publishes as lost.
+    private static class Stream {
+
+        private long lowest = Long.MAX_VALUE;
+        private long highest = Long.MIN_VALUE;
+        private long received;
+        private long reordered;
+
+        private synchronized void receive(final long sequence) {
+            if (sequence < highest) {
+                reordered++;
+            }
+            lowest = Math.min(lowest, sequence);
+            highest = Math.max(highest, sequence);
+            received++;
+        }
+    }
+}
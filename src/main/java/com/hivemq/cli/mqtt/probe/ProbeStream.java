@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.probe;
+
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3PublishBuilder;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PublishBuilder;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stamps the publishes of one topic of a publisher with consecutive sequence numbers and their send time. Every
+ * stream has a random identifier, so a subscriber tells the streams of several topics and publishers apart.
+ */
+public class ProbeStream {
+
+    private final @NotNull ProbeStamp.Encoding encoding;
+    private final long id = ThreadLocalRandom.current().nextLong();
+    private final @NotNull AtomicLong nextSequence = new AtomicLong();
+
+    public ProbeStream(final @NotNull ProbeStamp.Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * Completes the publish with the payload and the next stamp, as user property or in front of the payload.
+     */
+    public @NotNull Mqtt5PublishBuilder.Complete stamp(
+            final @NotNull Mqtt5PublishBuilder.Complete publishBuilder,
+            final @NotNull Mqtt5UserProperties userProperties,
+            final @NotNull ByteBuffer payload) {
+
+        final ProbeStamp stamp = next();
+        if (encoding == ProbeStamp.Encoding.property) {
+            return publishBuilder.payload(payload)
+                    .userProperties(userProperties.extend().add(ProbeStamp.USER_PROPERTY, stamp.toUserPropertyValue()).build());
+        }
+        return publishBuilder.payload(stamp.prependHeader(payload));
+    }
+
+    /**
+     * Completes the publish with the payload and the next stamp in front of it, MQTT 3 has no user properties.
+     */
+    public @NotNull Mqtt3PublishBuilder.Complete stamp(final @NotNull Mqtt3PublishBuilder.Complete publishBuilder, final @NotNull ByteBuffer payload) {
+        if (encoding != ProbeStamp.Encoding.header) {
+            throw new IllegalStateException("Probes can only be stamped as payload header in MQTT 3");
+        }
+        return publishBuilder.payload(next().prependHeader(payload));
+    }
+
+    private @NotNull ProbeStamp next() {
+        return new ProbeStamp(id, nextSequence.getAndIncrement(), ProbeStamp.currentTimeMicros());
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.store;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
+import com.hivemq.client.mqtt.datatypes.MqttTopicFilter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the publishes of a message store written by {@link StoreWriter} which match topic filters and were received
+ * within a time range, one by one in the order of the segments.
+ * <p>
+ * Segments whose summary shows that they contain none of the matching topics or no publish of the time range are
+ * skipped without reading them. The other segments are memory-mapped and read from the last index entry before the
+ * start of the time range up to the first record after its end. Records of other topics are skipped by their topic id
+ * without copying their payload.
+ */
+public class StoreQuery {
+
+    private final @NotNull File directory;
+    private final long fromMillis;
+    private final long toMillis;
+    private final @NotNull TopicDictionary topics;
+    private final @NotNull boolean[] matchingTopics;
+    private final int segmentCount;
+    private final @NotNull Iterator<Long> segments;
+    private int readSegments;
+    private @Nullable ByteBuffer segment;
+
+    /**
+     * @param directory    the directory of the store
+     * @param topicFilters the topic filters of the publishes to read, all publishes are read if there are none
+     * @param fromMillis   the earliest receive time of the publishes to read
+     * @param toMillis     the latest receive time of the publishes to read
+     * @throws IllegalArgumentException if a topic filter is invalid
+     */
+    public StoreQuery(
+            final @NotNull File directory,
+            final @NotNull List<String> topicFilters,
+            final long fromMillis,
+            final long toMillis) throws IOException {
+
+        if (!directory.isDirectory()) {
+            throw new IOException("Store directory " + directory.getAbsolutePath() + " does not exist");
+        }
+        this.directory = directory;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+
+        final List<MqttTopicFilter> filters = new ArrayList<>();
+        for (final String topicFilter : topicFilters) {
+            filters.add(MqttTopicFilter.of(topicFilter));
+        }
+        topics = TopicDictionary.read(directory);
+        matchingTopics = new boolean[topics.size()];
+        for (int id = 0; id < matchingTopics.length; id++) {
+            final MqttTopic topic = MqttTopic.of(topics.getTopic(id));
+            matchingTopics[id] = filters.isEmpty();
+            for (final MqttTopicFilter filter : filters) {
+                if (filter.matches(topic)) {
+                    matchingTopics[id] = true;
+                    break;
+                }
+            }
+        }
+
+        final List<Long> sequences = StoreWriter.listSegments(directory);
+        segmentCount = sequences.size();
+        segments = sequences.iterator();
+    }
+
+    /**
+     * @return the next matching publish or <code>null</code> if all segments were read. A record which was only
+     *         partially written, because the writing process was killed, is treated as the end of its segment.
+     */
+    public @Nullable StoredPublish next() throws IOException {
+        while (true) {
+            if (segment == null) {
+                if (!segments.hasNext()) {
+                    return null;
+                }
+                segment = open(segments.next());
+                continue;
+            }
+            final int position = segment.position();
+            if (segment.remaining() < 4) {
+                segment = null;
+                continue;
+            }
+            final int length = segment.getInt(position);
+            if (length < StoreWriter.RECORD_HEADER_LENGTH || length > segment.remaining() - 4) {
+                segment = null;
+                continue;
+            }
+            final long receivedAt = segment.getLong(position + 4);
+            // the receive times of a segment never decrease
+            if (receivedAt > toMillis) {
+                segment = null;
+                continue;
+            }
+            segment.position(position + 4 + length);
+            final int topicId = segment.getInt(position + 4 + 8);
+            // the topics written after the dictionary was read do not match
+            if (receivedAt < fromMillis || topicId < 0 || topicId >= matchingTopics.length || !matchingTopics[topicId]) {
+                continue;
+            }
+
+            final int flags = segment.get(position + 4 + 8 + 4) & 0xFF;
+            final MqttQos qos = MqttQos.fromCode(flags & 0b11);
+            if (qos == null) {
+                throw new IOException("Invalid QoS " + (flags & 0b11) + " in store record");
+            }
+            final byte[] payload = new byte[length - StoreWriter.RECORD_HEADER_LENGTH];
+            final ByteBuffer record = segment.duplicate();
+            record.position(position + 4 + StoreWriter.RECORD_HEADER_LENGTH);
+            record.get(payload);
+            return new StoredPublish(receivedAt, topics.getTopic(topicId), qos, (flags & StoreWriter.FLAG_RETAIN) != 0, payload);
+        }
+    }
+
+    // Maps the segment and positions it at the first record which may be in the time range, or returns null if the
+    // summary of the segment shows that it does not contain matching publishes.
+    private @Nullable ByteBuffer open(final long sequence) throws IOException {
+        final File summaryFile = StoreWriter.getFile(directory, sequence, StoreWriter.SUMMARY_SUFFIX);
+        if (summaryFile.isFile() && !isMatching(ByteBuffer.wrap(Files.readAllBytes(summaryFile.toPath())))) {
+            return null;
+        }
+        readSegments++;
+
+        final File segmentFile = StoreWriter.getFile(directory, sequence, StoreWriter.SEGMENT_SUFFIX);
+        final ByteBuffer segment = map(segmentFile);
+        if (segment.remaining() < StoreWriter.HEADER_LENGTH || segment.getInt() != StoreWriter.MAGIC) {
+            throw new IOException("File " + segmentFile.getAbsolutePath() + " is not a store segment");
+        }
+        final byte version = segment.get();
+        if (version != StoreWriter.VERSION) {
+            throw new IOException("Unsupported store segment version " + version);
+        }
+
+        final File indexFile = StoreWriter.getFile(directory, sequence, StoreWriter.INDEX_SUFFIX);
+        if (indexFile.isFile()) {
+            final ByteBuffer index = map(indexFile);
+            // binary search for the last entry before the time range, the records before it are all earlier
+            long start = StoreWriter.HEADER_LENGTH;
+            int low = 0;
+            int high = index.remaining() / StoreWriter.INDEX_ENTRY_LENGTH - 1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int entry = middle * StoreWriter.INDEX_ENTRY_LENGTH;
+                if (index.getLong(entry) < fromMillis) {
+                    start = index.getLong(entry + 8);
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            segment.position((int) Math.max(StoreWriter.HEADER_LENGTH, Math.min(start, segment.limit())));
+        }
+        return segment;
+    }
+
+    private boolean isMatching(final @NotNull ByteBuffer summary) {
+        // an incomplete summary does not rule out any publish
+        if (summary.remaining() < 8 + 8 + 8 + 4) {
+            return true;
+        }
+        final long firstReceivedAt = summary.getLong();
+        final long lastReceivedAt = summary.getLong();
+        final long records = summary.getLong();
+        final int topicCount = summary.getInt();
+        if (records == 0 || lastReceivedAt < fromMillis || firstReceivedAt > toMillis) {
+            return false;
+        }
+        if (summary.remaining() < 4L * topicCount) {
+            return true;
+        }
+        for (int i = 0; i < topicCount; i++) {
+            final int topicId = summary.getInt();
+            if (topicId >= 0 && topicId < matchingTopics.length && matchingTopics[topicId]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static @NotNull ByteBuffer map(final @NotNull File file) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * @return the number of segments in the store
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return the number of segments which were read so far, the others were skipped by their summary
+     */
+    public int getReadSegments() {
+        return readSegments;
+    }
+}
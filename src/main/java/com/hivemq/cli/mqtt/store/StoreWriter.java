@@ -0,0 +1,387 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.store;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tinylog.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends received publishes to the segment files of a message store directory, so they can be queried by topic and
+ * time with 'mqtt store query'.
+ * <p>
+ * A store consists of the {@link TopicDictionary} and numbered segments. A segment file starts with the header
+ * {@link #MAGIC} and {@link #VERSION}. Every publish is stored as a record prefixed by its length as 4 byte big-endian
+ * integer which contains the wall clock receive time in milliseconds, the id of the topic, the QoS, the retain flag and
+ * the raw payload. The receive times never decrease within a segment. Once a segment exceeds the segment size, it is
+ * sealed and the next segment is started.
+ * <p>
+ * Every segment has a sparse index file with an entry of receive time and position for the first record after every
+ * {@link #INDEX_INTERVAL} bytes, so a query can start reading close to the requested time. A sealed segment has a
+ * summary file with its first and last receive time, its record count and the ids of its topics, so a query can skip
+ * segments which contain none of the requested times or topics.
+ * <p>
+ * Like the records of a capture, the records and index entries are encoded into buffers which are written once they
+ * are full and at the latest {@link #FLUSH_INTERVAL_MILLIS} after a record was added. A segment which was not sealed,
+ * because the process was killed, stays readable up to its last complete record. The active segment is sealed when the
+ * writer is closed or the JVM shuts down.
+ */
+public class StoreWriter implements Closeable {
+
+    public static final int MAGIC = 0x4D515354; // "MQST"
+    public static final byte VERSION = 1;
+    public static final long MAX_SEGMENT_SIZE = 1024L * 1024 * 1024;
+    static final int HEADER_LENGTH = 4 + 1;
+    static final int RECORD_HEADER_LENGTH = 8 + 4 + 1;
+    static final int INDEX_ENTRY_LENGTH = 8 + 8;
+    static final int INDEX_INTERVAL = 4096;
+    static final int BUFFER_SIZE = 256 * 1024;
+    static final int INDEX_BUFFER_SIZE = 1024 * INDEX_ENTRY_LENGTH;
+    static final long FLUSH_INTERVAL_MILLIS = 100;
+
+    static final int FLAG_RETAIN = 1 << 2;
+
+    static final @NotNull String SEGMENT_SUFFIX = ".segment";
+    static final @NotNull String INDEX_SUFFIX = ".index";
+    static final @NotNull String SUMMARY_SUFFIX = ".summary";
+    private static final @NotNull String LOCK_FILE_NAME = "lock";
+
+    private static final @NotNull ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final @NotNull ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "mqtt-cli-store-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final @NotNull File directory;
+    private final long segmentSize;
+    private final @NotNull Clock clock;
+    private final @NotNull FileChannel lockChannel;
+    private final @NotNull TopicDictionary topics;
+    private final @NotNull ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final @NotNull ByteBuffer indexBuffer = ByteBuffer.allocate(INDEX_BUFFER_SIZE);
+    private final @NotNull ScheduledFuture<?> flushTask;
+    private long lastTimestamp;
+
+    // the active segment, guarded by the lock of the write buffer
+    private long sequence;
+    private @Nullable FileChannel segmentChannel;
+    private @Nullable FileChannel indexChannel;
+    private long segmentPosition;
+    private long indexedPosition;
+    private long firstTimestamp;
+    private long records;
+    private final @NotNull BitSet segmentTopics = new BitSet();
+    private boolean closed;
+
+    /**
+     * @param directory   the directory of the store, which is created if it does not exist
+     * @param segmentSize the size in bytes after which a segment is sealed and the next segment is started
+     */
+    public StoreWriter(final @NotNull File directory, final long segmentSize) throws IOException {
+        this(directory, segmentSize, Clock.systemUTC());
+    }
+
+    StoreWriter(final @NotNull File directory, final long segmentSize, final @NotNull Clock clock) throws IOException {
+        if (segmentSize < 1 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("The segment size has to be between 1 and " + MAX_SEGMENT_SIZE + " bytes but was " + segmentSize);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create store directory " + directory.getAbsolutePath());
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.clock = clock;
+
+        lockChannel = FileChannel.open(new File(directory, LOCK_FILE_NAME).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            final FileLock lock;
+            try {
+                lock = lockChannel.tryLock();
+            } catch (final OverlappingFileLockException e) {
+                throw new IOException("Store " + directory.getAbsolutePath() + " is already written");
+            }
+            if (lock == null) {
+                throw new IOException("Store " + directory.getAbsolutePath() + " is written by another process");
+            }
+            topics = TopicDictionary.open(directory);
+        } catch (final IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        try {
+            final List<Long> segments = listSegments(directory);
+            openSegment(segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1);
+        } catch (final IOException e) {
+            topics.close();
+            lockChannel.close();
+            throw e;
+        }
+
+        flushTask = FLUSHER.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (final IOException e) {
+                Logger.error(e, "Could not write to store {}: {}", directory.getAbsolutePath(), e.getMessage());
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                close();
+            } catch (final IOException e) {
+                Logger.error(e, "Could not close store {}: {}", directory.getAbsolutePath(), e.getMessage());
+            }
+        }, "mqtt-cli-store-seal"));
+    }
+
+    public void write(final @NotNull Mqtt3Publish publish) throws IOException {
+        write(publish.getTopic().toString(), publish.getPayload().orElse(EMPTY), publish.getQos(), publish.isRetain());
+    }
+
+    public void write(final @NotNull Mqtt5Publish publish) throws IOException {
+        write(publish.getTopic().toString(), publish.getPayload().orElse(EMPTY), publish.getQos(), publish.isRetain());
+    }
+
+    void write(
+            final @NotNull String topic,
+            final @NotNull ByteBuffer payload,
+            final @NotNull MqttQos qos,
+            final boolean retain) throws IOException {
+
+        final int length = RECORD_HEADER_LENGTH + payload.remaining();
+        int flags = qos.getCode();
+        if (retain) {
+            flags |= FLAG_RETAIN;
+        }
+
+        synchronized (buffer) {
+            if (closed) {
+                return;
+            }
+            final long timestamp = Math.max(clock.millis(), lastTimestamp);
+            final int topicId = topics.getId(topic);
+            if (records > 0 && segmentPosition + 4 + length > segmentSize) {
+                flushBuffers();
+                seal();
+                openSegment(sequence + 1);
+            }
+            if (records == 0 || segmentPosition - indexedPosition >= INDEX_INTERVAL) {
+                if (!indexBuffer.hasRemaining()) {
+                    flushBuffers();
+                }
+                indexBuffer.putLong(timestamp).putLong(segmentPosition);
+                indexedPosition = segmentPosition;
+            }
+
+            final ByteBuffer record = reserve(length);
+            record.putInt(length);
+            record.putLong(timestamp);
+            record.putInt(topicId);
+            record.put((byte) flags);
+            record.put(payload.duplicate());
+            release(record);
+
+            segmentPosition += 4 + length;
+            if (records == 0) {
+                firstTimestamp = timestamp;
+            }
+            records++;
+            lastTimestamp = timestamp;
+            segmentTopics.set(topicId);
+        }
+    }
+
+    private void openSegment(final long sequence) throws IOException {
+        final FileChannel segmentChannel = FileChannel.open(getFile(directory, sequence, SEGMENT_SUFFIX).toPath(),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        final FileChannel indexChannel;
+        try {
+            indexChannel = FileChannel.open(getFile(directory, sequence, INDEX_SUFFIX).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC).put(VERSION).flip();
+            writeFully(segmentChannel, header);
+        } catch (final IOException e) {
+            segmentChannel.close();
+            throw e;
+        }
+        this.sequence = sequence;
+        this.segmentChannel = segmentChannel;
+        this.indexChannel = indexChannel;
+        segmentPosition = HEADER_LENGTH;
+        indexedPosition = HEADER_LENGTH;
+        records = 0;
+        segmentTopics.clear();
+    }
+
+    // Writes the summary of the active segment and closes it. Has to be called after the buffers were flushed.
+    private void seal() throws IOException {
+        try {
+            final ByteBuffer summary = ByteBuffer.allocate(8 + 8 + 8 + 4 + 4 * segmentTopics.cardinality());
+            summary.putLong(firstTimestamp).putLong(lastTimestamp).putLong(records).putInt(segmentTopics.cardinality());
+            for (int id = segmentTopics.nextSetBit(0); id >= 0; id = segmentTopics.nextSetBit(id + 1)) {
+                summary.putInt(id);
+            }
+            summary.flip();
+            try (final FileChannel summaryChannel = FileChannel.open(getFile(directory, sequence, SUMMARY_SUFFIX).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(summaryChannel, summary);
+            }
+        } finally {
+            segmentChannel.close();
+            indexChannel.close();
+        }
+    }
+
+    // Returns the buffer to encode a record of the given length into, which is the write buffer unless the record is
+    // larger than the write buffer. Has to be called while holding the lock of the write buffer.
+    private @NotNull ByteBuffer reserve(final int length) throws IOException {
+        if (4 + length > buffer.remaining()) {
+            flushBuffers();
+        }
+        if (4 + length > buffer.capacity()) {
+            return ByteBuffer.allocate(4 + length);
+        }
+        return buffer;
+    }
+
+    private void release(final @NotNull ByteBuffer record) throws IOException {
+        if (record != buffer) {
+            record.flip();
+            writeFully(segmentChannel, record);
+        }
+    }
+
+    /**
+     * Writes the buffered records and index entries to the active segment. The records are written first, so an index
+     * entry never points behind the records of a segment which was killed while writing.
+     */
+    public void flush() throws IOException {
+        synchronized (buffer) {
+            if (!closed) {
+                flushBuffers();
+            }
+        }
+    }
+
+    // Has to be called while holding the lock of the write buffer.
+    private void flushBuffers() throws IOException {
+        if (buffer.position() > 0) {
+            buffer.flip();
+            try {
+                writeFully(segmentChannel, buffer);
+            } finally {
+                buffer.clear();
+            }
+        }
+        if (indexBuffer.position() > 0) {
+            indexBuffer.flip();
+            try {
+                writeFully(indexChannel, indexBuffer);
+            } finally {
+                indexBuffer.clear();
+            }
+        }
+    }
+
+    private static void writeFully(final @NotNull FileChannel channel, final @NotNull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * @return the sequence numbers of the segments in the store directory in ascending order
+     */
+    static @NotNull List<Long> listSegments(final @NotNull File directory) {
+        final List<Long> segments = new ArrayList<>();
+        final String[] names = directory.list();
+        if (names != null) {
+            for (final String name : names) {
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (final NumberFormatException ignored) {
+                        // not a segment of the store
+                    }
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    static @NotNull File getFile(final @NotNull File directory, final long sequence, final @NotNull String suffix) {
+        return new File(directory, String.format("%020d%s", sequence, suffix));
+    }
+
+    /**
+     * Writes the buffered records and seals the active segment. An active segment without records is removed.
+     * Publishes written after the writer was closed are ignored.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (buffer) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flushTask.cancel(false);
+        try {
+            synchronized (buffer) {
+                if (records > 0) {
+                    flushBuffers();
+                    seal();
+                } else {
+                    segmentChannel.close();
+                    indexChannel.close();
+                    Files.deleteIfExists(getFile(directory, sequence, SEGMENT_SUFFIX).toPath());
+                    Files.deleteIfExists(getFile(directory, sequence, INDEX_SUFFIX).toPath());
+                }
+            }
+        } finally {
+            try {
+                topics.close();
+            } finally {
+                lockChannel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.store;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A publish of a message store together with the wall clock time in milliseconds it was received at.
+ */
+public class StoredPublish {
+
+    private final long receivedAtMillis;
+    private final @NotNull String topic;
+    private final @NotNull MqttQos qos;
+    private final boolean retain;
+    private final @NotNull byte[] payload;
+
+    public StoredPublish(
+            final long receivedAtMillis,
+            final @NotNull String topic,
+            final @NotNull MqttQos qos,
+            final boolean retain,
+            final @NotNull byte[] payload) {
+
+        this.receivedAtMillis = receivedAtMillis;
+        this.topic = topic;
+        this.qos = qos;
+        this.retain = retain;
+        this.payload = payload;
+    }
+
+    public long getReceivedAtMillis() {
+        return receivedAtMillis;
+    }
+
+    public @NotNull String getTopic() {
+        return topic;
+    }
+
+    public @NotNull MqttQos getQos() {
+        return qos;
+    }
+
+    public boolean isRetain() {
+        return retain;
+    }
+
+    public @NotNull byte[] getPayload() {
+        return payload;
+    }
+
+    public @NotNull Mqtt5Publish toMqtt5Publish() {
+        return Mqtt5Publish.builder()
+                .topic(topic)
+                .qos(qos)
+                .retain(retain)
+                .payload(payload)
+                .build();
+    }
+}
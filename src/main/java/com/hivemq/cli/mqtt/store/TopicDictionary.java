@@ -0,0 +1,144 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.store;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the topics of a message store to the ids the records of its segments refer to.
+ * <p>
+ * The topics are stored in the file {@link #FILE_NAME} of the store directory in the order of their ids, each prefixed
+ * by its length as 2 byte big-endian integer. A new topic is written to the file before the first record which refers
+ * to it, so every complete record of a segment has its topic in the dictionary.
+ */
+public class TopicDictionary implements Closeable {
+
+    static final @NotNull String FILE_NAME = "topics";
+
+    private final @NotNull List<String> topics = new ArrayList<>();
+    private final @NotNull Map<String, Integer> ids = new HashMap<>();
+    private @Nullable FileChannel channel;
+
+    private TopicDictionary() { }
+
+    /**
+     * Reads the dictionary of the store in the given directory, which is empty if the store has no topics yet.
+     */
+    public static @NotNull TopicDictionary read(final @NotNull File directory) throws IOException {
+        final TopicDictionary dictionary = new TopicDictionary();
+        final File file = new File(directory, FILE_NAME);
+        if (file.isFile()) {
+            dictionary.load(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+        }
+        return dictionary;
+    }
+
+    /**
+     * Opens the dictionary of the store in the given directory for adding topics. A topic which was only partially
+     * written, because the writing process was killed, is removed.
+     */
+    static @NotNull TopicDictionary open(final @NotNull File directory) throws IOException {
+        final TopicDictionary dictionary = new TopicDictionary();
+        final File file = new File(directory, FILE_NAME);
+        final int length = file.isFile() ? dictionary.load(ByteBuffer.wrap(Files.readAllBytes(file.toPath()))) : 0;
+        final FileChannel channel =
+                FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            channel.truncate(length);
+            channel.position(length);
+        } catch (final IOException e) {
+            channel.close();
+            throw e;
+        }
+        dictionary.channel = channel;
+        return dictionary;
+    }
+
+    // Returns the length of the complete entries.
+    private int load(final @NotNull ByteBuffer entries) {
+        while (entries.remaining() >= 2) {
+            final int length = entries.getShort(entries.position()) & 0xFFFF;
+            if (entries.remaining() < 2 + length) {
+                break;
+            }
+            final byte[] topic = new byte[length];
+            entries.position(entries.position() + 2);
+            entries.get(topic);
+            add(new String(topic, StandardCharsets.UTF_8));
+        }
+        return entries.position();
+    }
+
+    private int add(final @NotNull String topic) {
+        final int id = topics.size();
+        topics.add(topic);
+        ids.put(topic, id);
+        return id;
+    }
+
+    /**
+     * Returns the id of the topic and writes the topic to the dictionary file if it is new. Has to be called by one
+     * thread at a time.
+     */
+    int getId(final @NotNull String topic) throws IOException {
+        final Integer id = ids.get(topic);
+        if (id != null) {
+            return id;
+        }
+        if (channel == null) {
+            throw new IllegalStateException("The topic dictionary was opened for reading");
+        }
+        final byte[] bytes = topic.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer entry = ByteBuffer.allocate(2 + bytes.length);
+        entry.putShort((short) bytes.length).put(bytes).flip();
+        while (entry.hasRemaining()) {
+            channel.write(entry);
+        }
+        return add(topic);
+    }
+
+    /**
+     * @return the topic of the id or <code>null</code> if the dictionary does not contain the id
+     */
+    public @Nullable String getTopic(final int id) {
+        return id >= 0 && id < topics.size() ? topics.get(id) : null;
+    }
+
+    public int size() {
+        return topics.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
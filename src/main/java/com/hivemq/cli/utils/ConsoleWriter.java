@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the lines for the console from a dedicated writer thread, see {@link LineWriter}. Instead of printing and
+ * flushing every line through the synchronized {@link System#out}, the lines are written and flushed in blocks, which
+ * trades the latency of the flush interval for throughput when the output is piped to another process or a file.
+ */
+public class ConsoleWriter extends LineWriter {
+
+    private final @NotNull PrintStream out;
+    private final @NotNull WritableByteChannel channel;
+
+    public ConsoleWriter(final long flushIntervalMillis) {
+        this(System.out, RING_CAPACITY, FLUSH_BYTES, flushIntervalMillis);
+    }
+
+    ConsoleWriter(final @NotNull PrintStream out, final int ringCapacity, final int flushBytes, final long flushIntervalMillis) {
+        super("mqtt-cli-console-writer", ringCapacity, flushBytes, flushIntervalMillis);
+        this.out = out;
+        this.channel = Channels.newChannel(out);
+        start();
+    }
+
+    @Override
+    void writeBatch(final @NotNull ByteBuffer bytes) {
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            out.flush();
+        } catch (final IOException e) {
+            Logger.error("Cannot write to the console: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    void writeDirectly(final @NotNull byte[] line) {
+        out.write(line, 0, line.length);
+        out.flush();
+    }
+
+    @Override
+    void closeOutput() {
+        out.flush();
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the records of a CSV or JSON lines dataset one by one, so a dataset of any size can be published without
+ * loading it into memory.
+ * <p>
+ * A JSON lines record is a JSON object which is returned as is. Only the requested fields are extracted with a pull
+ * parser, all other values are skipped without being parsed into objects. A CSV record is converted to a JSON object
+ * whose names are taken from the header row.
+ */
+public class DatasetReader implements Closeable {
+
+    public enum Format {
+        csv, jsonl;
+
+        public static @NotNull Format forFile(final @NotNull File file) {
+            return file.getName().toLowerCase().endsWith(".csv") ? csv : jsonl;
+        }
+    }
+
+    private final @NotNull Format format;
+    private final @NotNull String[] fields;
+    private final @NotNull String[] values;
+    private final @Nullable DelimitedRecordReader lineReader;
+    private final @Nullable BufferedReader csvReader;
+    private @Nullable String[] header;
+    private @Nullable int[] fieldColumns;
+    private final @NotNull List<String> row = new ArrayList<>();
+    private final @NotNull StringBuilder cell = new StringBuilder();
+
+    /**
+     * @param fields the names of the fields whose values are returned by {@link #getValue(int)}
+     */
+    public DatasetReader(final @NotNull InputStream in, final @NotNull Format format, final @NotNull String[] fields) {
+        this.format = format;
+        this.fields = fields;
+        this.values = new String[fields.length];
+        if (format == Format.csv) {
+            lineReader = null;
+            csvReader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        } else {
+            lineReader = new DelimitedRecordReader(in, DelimitedRecordReader.Format.line);
+            csvReader = null;
+        }
+    }
+
+    /**
+     * @return the payload of the next record or <code>null</code> if the end of the dataset was reached
+     */
+    public @Nullable ByteBuffer next() throws IOException {
+        Arrays.fill(values, null);
+        return format == Format.csv ? nextCsv() : nextJsonLine();
+    }
+
+    /**
+     * @return the value of the requested field with the given index in the current record or <code>null</code> if the
+     *         record does not contain the field or the value is not a string, number or boolean
+     */
+    public @Nullable String getValue(final int index) {
+        return values[index];
+    }
+
+    private @Nullable ByteBuffer nextJsonLine() throws IOException {
+        final ByteBuffer record = lineReader.next();
+        if (record == null || fields.length == 0) {
+            return record;
+        }
+        final JsonReader reader = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(record.array(), record.arrayOffset() + record.position(), record.remaining()),
+                StandardCharsets.UTF_8));
+        try {
+            reader.beginObject();
+            int found = 0;
+            while (found < fields.length && reader.hasNext()) {
+                final int index = indexOf(reader.nextName());
+                if (index < 0 || values[index] != null) {
+                    reader.skipValue();
+                    continue;
+                }
+                final JsonToken token = reader.peek();
+                if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                    values[index] = reader.nextString();
+                    found++;
+                } else if (token == JsonToken.BOOLEAN) {
+                    values[index] = Boolean.toString(reader.nextBoolean());
+                    found++;
+                } else {
+                    reader.skipValue();
+                }
+            }
+        } catch (final IOException | IllegalStateException e) {
+            // a malformed record simply lacks the fields which were not found before the error
+        }
+        return record;
+    }
+
+    private @Nullable ByteBuffer nextCsv() throws IOException {
+        if (header == null) {
+            if (!readRow()) {
+                return null;
+            }
+            header = row.toArray(new String[0]);
+            fieldColumns = new int[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                fieldColumns[i] = Arrays.asList(header).indexOf(fields[i]);
+            }
+        }
+        if (!readRow()) {
+            return null;
+        }
+        for (int i = 0; i < fields.length; i++) {
+            final int column = fieldColumns[i];
+            if (column >= 0 && column < row.size()) {
+                values[i] = row.get(column);
+            }
+        }
+
+        final StringWriter json = new StringWriter();
+        final JsonWriter writer = new JsonWriter(json);
+        writer.beginObject();
+        for (int i = 0; i < header.length && i < row.size(); i++) {
+            writer.name(header[i]).value(row.get(i));
+        }
+        writer.endObject();
+        writer.flush();
+        return ByteBuffer.wrap(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Reads the cells of the next non empty row as specified by RFC 4180. Quoted cells may contain commas, line breaks
+    // and quotes which are escaped by doubling them.
+    private boolean readRow() throws IOException {
+        while (true) {
+            row.clear();
+            cell.setLength(0);
+            boolean quoted = false;
+            boolean empty = true;
+            int c;
+            while ((c = csvReader.read()) != -1) {
+                if (quoted) {
+                    if (c != '"') {
+                        cell.append((char) c);
+                        continue;
+                    }
+                    csvReader.mark(1);
+                    if (csvReader.read() == '"') {
+                        cell.append('"');
+                    } else {
+                        csvReader.reset();
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    empty = false;
+                } else if (c == ',') {
+                    row.add(cell.toString());
+                    cell.setLength(0);
+                    empty = false;
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    cell.append((char) c);
+                    empty = false;
+                }
+            }
+            if (!empty) {
+                row.add(cell.toString());
+                return true;
+            }
+            // skip empty lines
+            if (c == -1) {
+                return false;
+            }
+        }
+    }
+
+    private int indexOf(final @NotNull String name) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (lineReader != null) {
+            lineReader.close();
+        }
+        if (csvReader != null) {
+            csvReader.close();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a stream into records which are either terminated by a newline or prefixed by their length as a 4 byte
+ * big-endian integer. Records are read one by one, so a record can be processed as soon as it arrived.
+ */
+public class DelimitedRecordReader implements Closeable {
+
+    public enum Format {
+        line, length
+    }
+
+    // the maximum payload size of a MQTT publish packet
+    static final int MAX_RECORD_LENGTH = 268_435_455;
+
+    private final @NotNull DataInputStream in;
+    private final @NotNull Format format;
+    private final @NotNull ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    public DelimitedRecordReader(final @NotNull InputStream in, final @NotNull Format format) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        this.format = format;
+    }
+
+    /**
+     * @return the next record or <code>null</code> if the end of the stream was reached
+     */
+    public @Nullable ByteBuffer next() throws IOException {
+        return format == Format.line ? nextLine() : nextLengthPrefixed();
+    }
+
+    private @Nullable ByteBuffer nextLine() throws IOException {
+        while (true) {
+            line.reset();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                line.write(b);
+            }
+            final byte[] record = line.toByteArray();
+            int length = record.length;
+            if (length > 0 && record[length - 1] == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                return ByteBuffer.wrap(record, 0, length);
+            }
+            // skip empty lines
+            if (b == -1) {
+                return null;
+            }
+        }
+    }
+
+    private @Nullable ByteBuffer nextLengthPrefixed() throws IOException {
+        final int first = in.read();
+        if (first == -1) {
+            return null;
+        }
+        final int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedShort());
+        if (length < 0 || length > MAX_RECORD_LENGTH) {
+            throw new IOException("Invalid record length " + (length & 0xFFFFFFFFL));
+        }
+        final byte[] record = new byte[length];
+        try {
+            in.readFully(record);
+        } catch (final EOFException e) {
+            throw new EOFException("Stream ended inside a record of length " + length);
+        }
+        return ByteBuffer.wrap(record);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes lines from a dedicated writer thread, so the threads receiving messages only hand the encoded line over to a
+ * bounded ring buffer. The writer thread writes the lines in batches, once a batch reached {@link #FLUSH_BYTES} or its
+ * first line waited for the flush interval. Producers block while the ring buffer is full, so a slow output slows down
+ * the consumption of messages instead of growing the heap.
+ */
+public abstract class LineWriter implements Closeable {
+
+    static final int RING_CAPACITY = 8192;
+    static final int FLUSH_BYTES = 64 * 1024;
+    static final long FLUSH_INTERVAL_MILLIS = 100;
+
+    private static final @NotNull byte[] END_OF_LINES = new byte[0];
+    private static final @NotNull Set<LineWriter> OPEN = ConcurrentHashMap.newKeySet();
+
+    private final @NotNull ArrayBlockingQueue<byte[]> ring;
+    private final @NotNull ByteBuffer batch;
+    private final long flushIntervalNanos;
+    private final @NotNull Thread thread;
+    private volatile boolean closed;
+
+    LineWriter(final @NotNull String threadName, final int ringCapacity, final int flushBytes, final long flushIntervalMillis) {
+        this.ring = new ArrayBlockingQueue<>(ringCapacity);
+        this.batch = ByteBuffer.allocateDirect(flushBytes);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.thread = new Thread(this::run, threadName);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Writes the lines which are still buffered by any writer and closes their outputs.
+     */
+    public static void closeAll() {
+        for (final LineWriter writer : OPEN) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Starts the writer thread, called at the end of the constructor of the subclass.
+     */
+    void start() {
+        OPEN.add(this);
+        thread.start();
+    }
+
+    /**
+     * Queues the message as a line. After the writer was closed the line is written directly.
+     */
+    public void write(final @NotNull String message) {
+        final byte[] line = (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        if (!closed) {
+            try {
+                ring.put(line);
+                return;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        writeDirectly(line);
+    }
+
+    /**
+     * Writes all remaining bytes of a batch to the output, called on the writer thread.
+     */
+    abstract void writeBatch(final @NotNull ByteBuffer bytes);
+
+    /**
+     * Writes a line which was written after the writer was closed.
+     */
+    abstract void writeDirectly(final @NotNull byte[] line);
+
+    /**
+     * Closes the output after the last batch was written, called on the writer thread.
+     */
+    abstract void closeOutput();
+
+    private void run() {
+        final List<byte[]> lines = new ArrayList<>();
+        long flushDeadline = 0;
+        boolean closing = false;
+        while (!closing || !ring.isEmpty()) {
+            final byte[] line;
+            try {
+                final long timeout = batch.position() == 0 ? flushIntervalNanos : flushDeadline - System.nanoTime();
+                line = timeout > 0 ? ring.poll(timeout, TimeUnit.NANOSECONDS) : ring.poll();
+            } catch (final InterruptedException e) {
+                break;
+            }
+
+            if (line != null) {
+                lines.add(line);
+                ring.drainTo(lines);
+                for (final byte[] bufferedLine : lines) {
+                    if (bufferedLine == END_OF_LINES) {
+                        closing = true;
+                        continue;
+                    }
+                    if (batch.position() == 0) {
+                        flushDeadline = System.nanoTime() + flushIntervalNanos;
+                    }
+                    buffer(bufferedLine);
+                }
+                lines.clear();
+            }
+            if (batch.position() >= batch.capacity() || (batch.position() > 0 && System.nanoTime() - flushDeadline >= 0)) {
+                flush();
+            }
+        }
+        flush();
+        closeOutput();
+    }
+
+    private void buffer(final @NotNull byte[] line) {
+        if (line.length > batch.remaining()) {
+            flush();
+        }
+        if (line.length > batch.capacity()) {
+            writeBatch(ByteBuffer.wrap(line));
+        } else {
+            batch.put(line);
+        }
+    }
+
+    private void flush() {
+        if (batch.position() == 0) {
+            return;
+        }
+        batch.flip();
+        writeBatch(batch);
+        batch.clear();
+    }
+
+    /**
+     * Writes the lines which are still buffered and closes the output.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        OPEN.remove(this);
+        try {
+            ring.put(END_OF_LINES);
+            thread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A payload or topic with variables which are replaced for every message. The template is compiled once into literal
+ * segments and variable slots, rendering a message only copies the literals and writes the digits of the variables,
+ * without creating intermediate strings.
+ * <p>
+ * Supported variables are <code>${seq}</code> (sequence number of the message), <code>${nanoTime}</code>,
+ * <code>${timestamp}</code> (milliseconds since the epoch), <code>${random}</code> (non-negative random integer),
+ * <code>${clientIdx}</code> (index of the connection sending the message) and <code>${schedule}</code> (index of the
+ * periodic schedule sending the message, 0 when not publishing periodically).
+ */
+public class MessageTemplate {
+
+    public enum Variable {
+        seq, nanoTime, timestamp, random, clientIdx, schedule
+    }
+
+    // the maximum number of characters of a long including the sign
+    private static final int MAX_LONG_LENGTH = 20;
+
+    private final @NotNull byte[][] literals;
+    private final @NotNull Variable[] variables;
+    private final @NotNull String[] stringLiterals;
+    private final int maxLength;
+    private final byte[] digits = new byte[MAX_LONG_LENGTH];
+
+    private MessageTemplate(final @NotNull List<byte[]> literals, final @NotNull List<Variable> variables) {
+        this.literals = literals.toArray(new byte[0][]);
+        this.variables = variables.toArray(new Variable[0]);
+        this.stringLiterals = new String[this.literals.length];
+        int length = 0;
+        for (int i = 0; i < this.literals.length; i++) {
+            stringLiterals[i] = new String(this.literals[i], StandardCharsets.UTF_8);
+            length += this.literals[i].length;
+        }
+        this.maxLength = length + this.variables.length * MAX_LONG_LENGTH;
+    }
+
+    public static @NotNull MessageTemplate compile(final @NotNull String template) {
+        return compile(template.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the template contains an unknown or unterminated variable
+     */
+    public static @NotNull MessageTemplate compile(final @NotNull byte[] template) {
+        final List<byte[]> literals = new ArrayList<>();
+        final List<Variable> variables = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < template.length - 1) {
+            if (template[i] == '$' && template[i + 1] == '{') {
+                int end = i + 2;
+                while (end < template.length && template[end] != '}') {
+                    end++;
+                }
+                if (end == template.length) {
+                    throw new IllegalArgumentException("Unterminated variable in template at position " + i);
+                }
+                final String name = new String(template, i + 2, end - i - 2, StandardCharsets.UTF_8);
+                final Variable variable;
+                try {
+                    variable = Variable.valueOf(name);
+                } catch (final IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown variable '${" + name + "}' in template");
+                }
+                literals.add(copyOfRange(template, literalStart, i));
+                variables.add(variable);
+                i = end + 1;
+                literalStart = i;
+            } else {
+                i++;
+            }
+        }
+        literals.add(copyOfRange(template, literalStart, template.length));
+        return new MessageTemplate(literals, variables);
+    }
+
+    /**
+     * @return true if the template contains no variables, so every message is the same
+     */
+    public boolean isConstant() {
+        return variables.length == 0;
+    }
+
+    /**
+     * @return the maximum number of bytes of a rendered message
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Renders a message into the given buffer, starting at its position. Not thread safe.
+     *
+     * @throws java.nio.BufferOverflowException if the remaining space of the buffer is less than {@link #getMaxLength()}
+     */
+    public void render(final @NotNull ByteBuffer target, final long sequenceNumber, final int clientIndex) {
+        render(target, sequenceNumber, clientIndex, 0);
+    }
+
+    /**
+     * Renders a message of a periodic schedule into the given buffer, starting at its position. Not thread safe.
+     *
+     * @throws java.nio.BufferOverflowException if the remaining space of the buffer is less than {@link #getMaxLength()}
+     */
+    public void render(final @NotNull ByteBuffer target, final long sequenceNumber, final int clientIndex, final int scheduleIndex) {
+        for (int i = 0; i < variables.length; i++) {
+            target.put(literals[i]);
+            final long value = value(variables[i], sequenceNumber, clientIndex, scheduleIndex);
+            final int start = writeDigits(value);
+            target.put(digits, start, MAX_LONG_LENGTH - start);
+        }
+        target.put(literals[variables.length]);
+    }
+
+    /**
+     * Renders a message as string, reusing the given builder. Not thread safe.
+     */
+    public @NotNull String render(final @NotNull StringBuilder builder, final long sequenceNumber, final int clientIndex) {
+        return render(builder, sequenceNumber, clientIndex, 0);
+    }
+
+    /**
+     * Renders a message of a periodic schedule as string, reusing the given builder. Not thread safe.
+     */
+    public @NotNull String render(final @NotNull StringBuilder builder, final long sequenceNumber, final int clientIndex, final int scheduleIndex) {
+        if (isConstant()) {
+            return stringLiterals[0];
+        }
+        builder.setLength(0);
+        for (int i = 0; i < variables.length; i++) {
+            builder.append(stringLiterals[i]);
+            builder.append(value(variables[i], sequenceNumber, clientIndex, scheduleIndex));
+        }
+        builder.append(stringLiterals[variables.length]);
+        return builder.toString();
+    }
+
+    private static long value(final @NotNull Variable variable, final long sequenceNumber, final int clientIndex, final int scheduleIndex) {
+        switch (variable) {
+            case seq:
+                return sequenceNumber;
+            case nanoTime:
+                return System.nanoTime();
+            case timestamp:
+                return System.currentTimeMillis();
+            case random:
+                return ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+            case clientIdx:
+                return clientIndex;
+            case schedule:
+                return scheduleIndex;
+        }
+        throw new IllegalStateException("Unknown template variable " + variable);
+    }
+
+    // writes the decimal digits of the value right-aligned into the digits array and returns the start index
+    private int writeDigits(final long value) {
+        if (value == Long.MIN_VALUE) {
+            final byte[] minValue = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(minValue, 0, digits, 0, minValue.length);
+            return 0;
+        }
+        long remaining = Math.abs(value);
+        int position = MAX_LONG_LENGTH;
+        do {
+            digits[--position] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            digits[--position] = '-';
+        }
+        return position;
+    }
+
+    private static @NotNull byte[] copyOfRange(final @NotNull byte[] bytes, final int from, final int to) {
+        final byte[] copy = new byte[to - from];
+        System.arraycopy(bytes, from, copy, 0, copy.length);
+        return copy;
+    }
+}
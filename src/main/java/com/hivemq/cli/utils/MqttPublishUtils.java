@@ -18,16 +18,15 @@ package com.hivemq.cli.utils;
 import com.google.common.base.Throwables;
 import org.bouncycastle.util.encoders.Base64;
 import org.jetbrains.annotations.NotNull;
-import org.tinylog.Logger;
 
 import java.io.File;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
 
 public class MqttPublishUtils {
 
+    private static final int PAYLOAD_PREVIEW_LENGTH = 128;
+
     public static String formatPayload(final byte[] payload, final boolean isBase64) {
         if (isBase64) {
             return Base64.toBase64String(payload);
@@ -37,23 +36,24 @@ public class MqttPublishUtils {
         }
     }
 
-    public static void printToFile(final @NotNull File publishFile, final @NotNull String message) {
-
-        // Re-create a deleted output file if it was deleted manually
-        try {
-            if (publishFile.createNewFile()) {
-                Logger.debug("Re-created deleted output file {}", publishFile.getAbsolutePath());
-            }
-        } catch (final @NotNull IOException e) {
-            Logger.error("Cannot re-create deleted output file {}", publishFile.getAbsolutePath(), e.getMessage());
-            return;
+    /**
+     * Decodes at most the first {@value #PAYLOAD_PREVIEW_LENGTH} bytes of the payload, so logging a large payload
+     * does not copy all of it onto the heap. The position of the given buffer is not changed.
+     */
+    public static @NotNull String payloadPreview(final @NotNull ByteBuffer payload) {
+        final ByteBuffer view = payload.duplicate();
+        final int length = view.remaining();
+        final byte[] bytes = new byte[Math.min(length, PAYLOAD_PREVIEW_LENGTH)];
+        view.get(bytes);
+        final String preview = new String(bytes, StandardCharsets.UTF_8);
+        if (length > PAYLOAD_PREVIEW_LENGTH) {
+            return preview + "... (" + length + " bytes)";
         }
+        return preview;
+    }
 
-        try {
-            Files.write(publishFile.toPath(), (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
-        } catch (final @NotNull IOException e) {
-            Logger.error("Cannot write to output file {}", publishFile.getAbsolutePath(), e.getMessage());
-        }
+    public static void printToFile(final @NotNull File publishFile, final @NotNull String message) {
+        OutputFileWriter.of(publishFile).write(message);
     }
 
 }
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Decides when an output file is rotated and handles the rotated segments.
+ * <p>
+ * A segment is rotated by atomically renaming the output file to {@code <name>.<yyyyMMdd'T'HHmmss.SSS>}, after which
+ * the writer continues with a new file under the original name. The rotated segment is compressed to a {@code .gz} file
+ * on a single background thread, and the oldest segments beyond {@link #getKeep()} are deleted afterwards.
+ */
+public class OutputFileRotation {
+
+    static final @NotNull DateTimeFormatter SEGMENT_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSS");
+
+    private static final @NotNull ExecutorService COMPRESSOR = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "mqtt-cli-output-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final int keep;
+
+    /**
+     * @param maxBytes     the size at which a segment is rotated, or 0 for no size limit
+     * @param maxAgeMillis the age at which a segment is rotated, or 0 for no age limit
+     * @param keep         the amount of rotated segments to keep, or 0 to keep all of them
+     */
+    public OutputFileRotation(final long maxBytes, final long maxAgeMillis, final int keep) {
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.keep = keep;
+    }
+
+    /**
+     * @return whether the current segment has to be rotated before the pending bytes are appended to it
+     */
+    public boolean isDue(final long segmentBytes, final long pendingBytes, final long segmentAgeMillis) {
+        if (segmentBytes == 0) {
+            return false;
+        }
+        return (maxBytes > 0 && segmentBytes + pendingBytes > maxBytes) || (maxAgeMillis > 0 && segmentAgeMillis >= maxAgeMillis);
+    }
+
+    /**
+     * Renames the output file to a new segment name. The caller has to close the file before.
+     *
+     * @return the rotated segment
+     */
+    public @NotNull File rotate(final @NotNull File file) throws IOException {
+        final String segmentName = file.getName() + "." + LocalDateTime.now().format(SEGMENT_TIMESTAMP);
+        File segment = new File(file.getParentFile(), segmentName);
+        for (int i = 1; segment.exists() || new File(segment.getPath() + ".gz").exists(); i++) {
+            segment = new File(file.getParentFile(), segmentName + "-" + i);
+        }
+        move(file.toPath(), segment.toPath());
+        return segment;
+    }
+
+    /**
+     * Compresses the rotated segment and deletes the oldest segments of the output file on the background thread.
+     *
+     * @return a future which completes after the segment was compressed and old segments were deleted
+     */
+    public @NotNull Future<?> compress(final @NotNull File file, final @NotNull File segment) {
+        return COMPRESSOR.submit(() -> {
+            compress(segment);
+            if (keep > 0) {
+                deleteOldSegments(file);
+            }
+        });
+    }
+
+    private static void compress(final @NotNull File segment) {
+        final Path compressed = new File(segment.getPath() + ".gz").toPath();
+        final Path temporary = new File(segment.getPath() + ".gz.tmp").toPath();
+        try {
+            try (final OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary))) {
+                Files.copy(segment.toPath(), out);
+            }
+            move(temporary, compressed);
+            Files.delete(segment.toPath());
+        } catch (final IOException e) {
+            Logger.error("Could not compress rotated output file {}: {}", segment.getAbsolutePath(), e.getMessage());
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (final IOException ignored) {
+            }
+        }
+    }
+
+    private void deleteOldSegments(final @NotNull File file) {
+        final List<File> segments = getSegments(file);
+        for (int i = 0; i < segments.size() - keep; i++) {
+            if (!segments.get(i).delete()) {
+                Logger.error("Could not delete old output file {}", segments.get(i).getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * @return the rotated segments of the output file, oldest first
+     */
+    static @NotNull List<File> getSegments(final @NotNull File file) {
+        final Pattern pattern = Pattern.compile(Pattern.quote(file.getName()) + "\\.(\\d{8}T\\d{6}\\.\\d{3})(?:-(\\d+))?(?:\\.gz)?");
+        final File[] files = file.getAbsoluteFile().getParentFile().listFiles();
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        // Segments rotated in the same millisecond have an increasing suffix, so they are ordered by timestamp first
+        final List<Matcher> segments = new ArrayList<>();
+        for (final File segment : files) {
+            final Matcher matcher = pattern.matcher(segment.getName());
+            if (matcher.matches()) {
+                segments.add(matcher);
+            }
+        }
+        segments.sort(Comparator.<Matcher, String>comparing(matcher -> matcher.group(1))
+                .thenComparingInt(matcher -> matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2))));
+        final List<File> sorted = new ArrayList<>(segments.size());
+        for (final Matcher segment : segments) {
+            sorted.add(new File(file.getAbsoluteFile().getParentFile(), segment.group()));
+        }
+        return sorted;
+    }
+
+    private static void move(final @NotNull Path source, final @NotNull Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    public int getKeep() {
+        return keep;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "OutputFileRotation{" +
+                "maxBytes=" + maxBytes +
+                ", maxAgeMillis=" + maxAgeMillis +
+                ", keep=" + keep +
+                '}';
+    }
+}
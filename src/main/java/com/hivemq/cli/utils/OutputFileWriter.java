@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Appends lines to an output file from a dedicated writer thread, see {@link LineWriter}. The writer keeps the file
+ * open while it writes the batches.
+ * <p>
+ * Before every batch the writer checks if the file still exists and re-creates it if it was deleted manually.
+ * With an {@link OutputFileRotation} the writer also rotates the file between two batches, so no line is split across
+ * segments and lines which arrive during a rotation wait in the ring buffer.
+ */
+public class OutputFileWriter extends LineWriter {
+
+    private static final @NotNull Map<File, OutputFileWriter> WRITERS = new ConcurrentHashMap<>();
+
+    private final @NotNull File file;
+    private final @Nullable OutputFileRotation rotation;
+    private @Nullable FileChannel channel;
+    private long segmentBytes;
+    private long segmentStartMillis;
+    private volatile @Nullable Future<?> compression;
+
+    /**
+     * @return the writer of the file, started on first use and shared by all subscriptions writing to the file
+     */
+    public static @NotNull OutputFileWriter of(final @NotNull File file) {
+        return of(file, null);
+    }
+
+    /**
+     * @param rotation the rotation of the file, only used if the writer of the file was not started yet
+     * @return the writer of the file, started on first use and shared by all subscriptions writing to the file
+     */
+    public static @NotNull OutputFileWriter of(final @NotNull File file, final @Nullable OutputFileRotation rotation) {
+        return WRITERS.computeIfAbsent(file.getAbsoluteFile(),
+                key -> new OutputFileWriter(key, rotation, RING_CAPACITY, FLUSH_BYTES, FLUSH_INTERVAL_MILLIS));
+    }
+
+    OutputFileWriter(
+            final @NotNull File file,
+            final @Nullable OutputFileRotation rotation,
+            final int ringCapacity,
+            final int flushBytes,
+            final long flushIntervalMillis) {
+        super("mqtt-cli-output-writer", ringCapacity, flushBytes, flushIntervalMillis);
+        this.file = file;
+        this.rotation = rotation;
+        start();
+    }
+
+    @Override
+    void writeBatch(final @NotNull ByteBuffer bytes) {
+        try {
+            FileChannel channel = openChannel();
+            if (rotation != null &&
+                    rotation.isDue(segmentBytes, bytes.remaining(), System.currentTimeMillis() - segmentStartMillis)) {
+                rotate(rotation);
+                channel = openChannel();
+            }
+            while (bytes.hasRemaining()) {
+                segmentBytes += channel.write(bytes);
+            }
+        } catch (final IOException e) {
+            Logger.error("Cannot write to output file {}: {}", file.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    @Override
+    void writeDirectly(final @NotNull byte[] line) {
+        try {
+            Files.write(file.toPath(), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (final IOException e) {
+            Logger.error("Cannot write to output file {}: {}", file.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    // Opens the file on first use and re-opens it if it was deleted manually, so the lines do not end up in the
+    // deleted file which the open channel still refers to.
+    private @NotNull FileChannel openChannel() throws IOException {
+        if (channel != null && file.exists()) {
+            return channel;
+        }
+        if (channel != null) {
+            closeChannel();
+            Logger.debug("Re-created deleted output file {}", file.getAbsolutePath());
+        }
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentBytes = channel.size();
+        segmentStartMillis = System.currentTimeMillis();
+        this.channel = channel;
+        return channel;
+    }
+
+    private void rotate(final @NotNull OutputFileRotation rotation) throws IOException {
+        closeChannel();
+        final File segment = rotation.rotate(file);
+        Logger.debug("Rotated output file {} to {}", file.getAbsolutePath(), segment.getAbsolutePath());
+        compression = rotation.compress(file, segment);
+    }
+
+    @Override
+    void closeOutput() {
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (final IOException e) {
+            Logger.error("Cannot close output file {}: {}", file.getAbsolutePath(), e.getMessage());
+        }
+        channel = null;
+    }
+
+    /**
+     * Writes the lines which are still buffered, closes the file and waits until the last rotated segment is compressed.
+     */
+    @Override
+    public synchronized void close() {
+        super.close();
+        WRITERS.remove(file, this);
+        final Future<?> compression = this.compression;
+        if (compression == null) {
+            return;
+        }
+        try {
+            compression.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            Logger.error(e, "Could not compress rotated output file of {}", file.getAbsolutePath());
+        }
+    }
+}
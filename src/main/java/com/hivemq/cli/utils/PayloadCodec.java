@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import com.google.common.io.ByteStreams;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compresses and decompresses publish payloads. The codec of a compressed payload is signalled through the MQTT 5
+ * user property {@link #USER_PROPERTY} with the name of the codec as value, so a subscriber detects and decompresses
+ * the payload without being configured for it. A further codec only has to provide its compressing and
+ * decompressing streams.
+ */
+public enum PayloadCodec {
+
+    deflate {
+        @Override
+        @NotNull OutputStream compressing(final @NotNull OutputStream out) {
+            return new DeflaterOutputStream(out);
+        }
+
+        @Override
+        @NotNull InputStream decompressing(final @NotNull InputStream in) {
+            return new InflaterInputStream(in);
+        }
+    },
+
+    gzip {
+        @Override
+        @NotNull OutputStream compressing(final @NotNull OutputStream out) throws IOException {
+            return new GZIPOutputStream(out);
+        }
+
+        @Override
+        @NotNull InputStream decompressing(final @NotNull InputStream in) throws IOException {
+            return new GZIPInputStream(in);
+        }
+    };
+
+    public static final @NotNull String USER_PROPERTY = "content-encoding";
+    // a received payload is decompressed to at most this multiple of its length, but at least to MIN_DECODED_LIMIT
+    // and at most to the maximum MQTT packet size, so a small payload cannot exhaust the memory of the subscriber
+    static final int MAX_COMPRESSION_RATIO = 100;
+    static final int MIN_DECODED_LIMIT = 1024 * 1024;
+    static final int MAX_DECODED_LIMIT = 268_435_455;
+
+    abstract @NotNull OutputStream compressing(final @NotNull OutputStream out) throws IOException;
+
+    abstract @NotNull InputStream decompressing(final @NotNull InputStream in) throws IOException;
+
+    /**
+     * @return the codec with the given name or <code>null</code> if no such codec exists
+     */
+    public static @Nullable PayloadCodec forName(final @NotNull String name) {
+        for (final PayloadCodec codec : values()) {
+            if (codec.name().equalsIgnoreCase(name)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compresses the remaining bytes of the payload without changing its position.
+     */
+    public @NotNull ByteBuffer encode(final @NotNull ByteBuffer payload) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(payload.remaining() / 2 + 32);
+        try (final OutputStream compressing = compressing(out)) {
+            if (payload.hasArray()) {
+                compressing.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+            } else {
+                final byte[] bytes = new byte[payload.remaining()];
+                payload.duplicate().get(bytes);
+                compressing.write(bytes);
+            }
+        } catch (final IOException e) {
+            // in-memory streams do not fail
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    public @NotNull byte[] decode(final @NotNull byte[] payload) throws IOException {
+        try (final InputStream decompressing = decompressing(new ByteArrayInputStream(payload))) {
+            return ByteStreams.toByteArray(decompressing);
+        }
+    }
+
+    /**
+     * Decompresses a received payload, but at most to {@link #getDecodedLimit(int)} bytes.
+     *
+     * @throws IOException if the payload is invalid or decompresses to more bytes than the limit
+     */
+    public @NotNull byte[] decodeReceived(final @NotNull byte[] payload) throws IOException {
+        return decode(payload, getDecodedLimit(payload.length));
+    }
+
+    @NotNull byte[] decode(final @NotNull byte[] payload, final int limit) throws IOException {
+        try (final InputStream decompressing =
+                     ByteStreams.limit(decompressing(new ByteArrayInputStream(payload)), limit + 1L)) {
+            final byte[] decoded = ByteStreams.toByteArray(decompressing);
+            if (decoded.length > limit) {
+                throw new IOException("Decompressed payload exceeds the limit of " + limit + " bytes");
+            }
+            return decoded;
+        }
+    }
+
+    static int getDecodedLimit(final int length) {
+        return (int) Math.min(MAX_DECODED_LIMIT, Math.max(MIN_DECODED_LIMIT, (long) length * MAX_COMPRESSION_RATIO));
+    }
+}
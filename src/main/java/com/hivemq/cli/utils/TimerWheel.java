@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A hashed timer wheel which drives any number of timers from a single thread. Time is divided into ticks and every
+ * timer is linked into the bucket of the tick its deadline falls into, so scheduling and expiring a timer takes
+ * constant time regardless of the number of timers. The buckets are reused for every round of the wheel, timers
+ * further in the future than one round stay in their bucket until their round comes.
+ * <p>
+ * Timers are intrusive: they extend {@link Timer}, so scheduling a timer allocates nothing. Not thread safe.
+ */
+public class TimerWheel<T extends TimerWheel.Timer> {
+
+    public static class Timer {
+
+        private long deadline;
+        private long tick;
+        private @Nullable Timer next;
+
+        /**
+         * @return the time in nanoseconds at which the timer was due, in the time base of {@link System#nanoTime()}
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    public interface Handler<T> {
+
+        void expired(@NotNull T timer) throws InterruptedException;
+    }
+
+    private final long startNanos;
+    private final long tickNanos;
+    private final @Nullable Timer[] buckets;
+    private final int mask;
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param bucketCount the number of buckets, rounded up to a power of two
+     */
+    public TimerWheel(final long startNanos, final long tickNanos, final int bucketCount) {
+        if (tickNanos < 1) {
+            throw new IllegalArgumentException("The tick duration has to be at least 1 nanosecond but was " + tickNanos);
+        }
+        this.startNanos = startNanos;
+        this.tickNanos = tickNanos;
+        final int roundedBucketCount = Integer.highestOneBit(Math.max(1, bucketCount - 1)) << 1;
+        this.buckets = new Timer[roundedBucketCount];
+        this.mask = roundedBucketCount - 1;
+    }
+
+    /**
+     * Schedules the timer to expire at the given deadline. Deadlines in the past expire with the next tick. A timer
+     * must not be scheduled again before it expired.
+     */
+    public void schedule(final @NotNull T scheduled, final long deadlineNanos) {
+        final Timer timer = scheduled;
+        timer.deadline = deadlineNanos;
+        // round up, so a timer never expires before its deadline
+        final long offset = deadlineNanos - startNanos;
+        final long tick = offset <= 0 ? 0 : (offset + tickNanos - 1) / tickNanos;
+        timer.tick = Math.max(tick, currentTick);
+        final int index = (int) (timer.tick & mask);
+        timer.next = buckets[index];
+        buckets[index] = timer;
+        size++;
+    }
+
+    /**
+     * Expires all timers whose tick has passed at the given time, tick by tick. The handler may schedule the expired
+     * timer again.
+     */
+    @SuppressWarnings("unchecked")
+    public void advance(final long nowNanos, final @NotNull Handler<? super T> handler) throws InterruptedException {
+        final long nowTick = Math.floorDiv(nowNanos - startNanos, tickNanos);
+        while (currentTick <= nowTick) {
+            final int index = (int) (currentTick & mask);
+            Timer expired = null;
+            Timer previous = null;
+            Timer timer = buckets[index];
+            while (timer != null) {
+                final Timer next = timer.next;
+                if (timer.tick <= currentTick) {
+                    if (previous == null) {
+                        buckets[index] = next;
+                    } else {
+                        previous.next = next;
+                    }
+                    timer.next = expired;
+                    expired = timer;
+                    size--;
+                } else {
+                    previous = timer;
+                }
+                timer = next;
+            }
+            currentTick++;
+            while (expired != null) {
+                final Timer next = expired.next;
+                expired.next = null;
+                handler.expired((T) expired);
+                expired = next;
+            }
+        }
+    }
+
+    /**
+     * @return the time in nanoseconds at which {@link #advance(long, Handler)} expires the timers of the next tick
+     */
+    public long getNextTickNanos() {
+        return startNanos + currentTick * tickNanos;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats wall clock times as <code>yyyy-MM-dd HH:mm:ss</code> in the local time zone. The last formatted second is
+ * cached, so formatting the receive times of many messages formats the date and time only once per second.
+ * The formatter is thread-safe.
+ */
+public class TimestampFormatter {
+
+    private static final @NotNull DateTimeFormatter SECONDS =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static volatile @NotNull FormattedSecond lastSecond = new FormattedSecond(Long.MIN_VALUE, "");
+
+    /**
+     * @return the time formatted as <code>yyyy-MM-dd HH:mm:ss</code>
+     */
+    public static @NotNull String formatSeconds(final long epochMillis) {
+        final long epochSecond = Math.floorDiv(epochMillis, 1000);
+        final FormattedSecond second = lastSecond;
+        if (second.epochSecond == epochSecond) {
+            return second.formatted;
+        }
+        final FormattedSecond formatted =
+                new FormattedSecond(epochSecond, SECONDS.format(Instant.ofEpochSecond(epochSecond)));
+        lastSecond = formatted;
+        return formatted.formatted;
+    }
+
+    /**
+     * @return the time formatted as <code>yyyy-MM-dd HH:mm:ss.SSS</code>
+     */
+    public static @NotNull String formatMillis(final long epochMillis) {
+        final int millis = (int) Math.floorMod(epochMillis, 1000L);
+        final StringBuilder builder = new StringBuilder(23).append(formatSeconds(epochMillis)).append('.');
+        if (millis < 100) {
+            builder.append('0');
+        }
+        if (millis < 10) {
+            builder.append('0');
+        }
+        return builder.append(millis).toString();
+    }
+
+    // The epoch second and its formatted string are published together, so readers never see a mismatched pair.
+    private static class FormattedSecond {
+
+        private final long epochSecond;
+        private final @NotNull String formatted;
+
+        private FormattedSecond(final long epochSecond, final @NotNull String formatted) {
+            this.epochSecond = epochSecond;
+            this.formatted = formatted;
+        }
+    }
+}
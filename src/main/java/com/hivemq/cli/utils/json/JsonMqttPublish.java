@@ -15,86 +15,210 @@
  */
 package com.hivemq.cli.utils.json;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.hivemq.cli.utils.MqttPublishUtils;
+import com.hivemq.cli.utils.TimestampFormatter;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
 import com.hivemq.client.mqtt.datatypes.MqttTopic;
-import com.hivemq.client.mqtt.datatypes.MqttUtf8String;
 import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
-import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PayloadFormatIndicator;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperty;
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
-public class JsonMqttPublish extends JsonFormatted {
+/**
+ * Formats a received publish as JSON. The publish is written field by field with a streaming {@link JsonWriter}
+ * instead of building and serializing a tree. A payload which is valid JSON is validated and copied token by token
+ * into the output, any other payload is written as string.
+ */
+public class JsonMqttPublish {
 
-    private final @NotNull String topic;
-    private final @NotNull JsonElement payload;
+    private final @NotNull MqttTopic topic;
+    private final @NotNull byte[] payload;
+    private final boolean isBase64;
     private final @NotNull MqttQos qos;
     private final @NotNull String receivedAt;
     private final boolean retain;
-    private @Nullable String contentType;
-    private @Nullable Mqtt5PayloadFormatIndicator payloadFormatIndicator;
-    private @Nullable Long messageExpiryInterval;
-    private @Nullable String responseTopic;
-    private @Nullable String correlationData;
-    private @Nullable Map<String, String> userProperties;
+    private final @Nullable Mqtt5Publish mqtt5Publish;
 
     public JsonMqttPublish(final @NotNull Mqtt3Publish publish, final boolean isBase64) {
-        payload = payloadToJson(publish.getPayloadAsBytes(), isBase64);
-        topic = publish.getTopic().toString();
+        this(publish, isBase64, TimestampFormatter.formatSeconds(System.currentTimeMillis()));
+    }
+
+    /**
+     * @param receivedAt the formatted time the publish was received at, for publishes which are not formatted on receipt
+     */
+    public JsonMqttPublish(final @NotNull Mqtt3Publish publish, final boolean isBase64, final @NotNull String receivedAt) {
+        topic = publish.getTopic();
+        payload = publish.getPayloadAsBytes();
+        this.isBase64 = isBase64;
         qos = publish.getQos();
-        receivedAt = getReceivedAt();
+        this.receivedAt = receivedAt;
         retain = publish.isRetain();
+        mqtt5Publish = null;
     }
 
     public JsonMqttPublish(final @NotNull Mqtt5Publish publish, final boolean isBase64) {
-        payload = payloadToJson(publish.getPayloadAsBytes(), isBase64);
-        topic = publish.getTopic().toString();
+        this(publish, isBase64, TimestampFormatter.formatSeconds(System.currentTimeMillis()));
+    }
+
+    /**
+     * @param receivedAt the formatted time the publish was received at, for publishes which are not formatted on receipt
+     */
+    public JsonMqttPublish(final @NotNull Mqtt5Publish publish, final boolean isBase64, final @NotNull String receivedAt) {
+        topic = publish.getTopic();
+        payload = publish.getPayloadAsBytes();
+        this.isBase64 = isBase64;
         qos = publish.getQos();
-        receivedAt = getReceivedAt();
+        this.receivedAt = receivedAt;
         retain = publish.isRetain();
-        contentType = publish.getContentType().map(MqttUtf8String::toString).orElse(null);
-        payloadFormatIndicator = publish.getPayloadFormatIndicator().orElse(null);
-
-        if (publish.getMessageExpiryInterval().isPresent()) {
-            messageExpiryInterval = publish.getMessageExpiryInterval().getAsLong();
-        }
+        mqtt5Publish = publish;
+    }
 
-        responseTopic = publish.getResponseTopic().map(MqttTopic::toString).orElse(null);
-        correlationData = publish.getCorrelationData()
-                .map(cd -> new String(cd.array(), StandardCharsets.UTF_8))
-                .orElse(null);
+    /**
+     * @return the publish as pretty printed JSON
+     */
+    @Override
+    public @NotNull String toString() {
+        return toString(true);
+    }
 
-        if (publish.getUserProperties().asList().size() > 0) {
-            userProperties = new HashMap<>();
-            publish.getUserProperties().asList()
-                    .forEach(up ->  userProperties.put(up.getName().toString(), up.getValue().toString()));
+    /**
+     * @param pretty whether the JSON is pretty printed over several lines or written compact on a single line
+     */
+    public @NotNull String toString(final boolean pretty) {
+        final StringWriter buffer = new StringWriter(128 + payload.length);
+        final JsonWriter out = new JsonWriter(buffer);
+        if (pretty) {
+            out.setIndent("  ");
+        }
+        // null values of JSON payloads are kept, absent properties of the publish are not written at all
+        out.setSerializeNulls(true);
+        try {
+            write(out);
+        } catch (final IOException e) {
+            // a StringWriter does not throw
+            throw new UncheckedIOException(e);
         }
+        return buffer.toString();
     }
 
-    private JsonElement payloadToJson(final byte[] payload, final boolean isBase64) {
+    private void write(final @NotNull JsonWriter out) throws IOException {
+        out.beginObject();
+        out.name("topic").value(topic.toString());
+        out.name("payload");
+        writePayload(out);
+        out.name("qos").value(qos.name());
+        out.name("receivedAt").value(receivedAt);
+        out.name("retain").value(retain);
+        if (mqtt5Publish != null) {
+            writeProperties(out, mqtt5Publish);
+        }
+        out.endObject();
+    }
 
+    private void writePayload(final @NotNull JsonWriter out) throws IOException {
         final String payloadString = MqttPublishUtils.formatPayload(payload, isBase64);
+        if (!isBase64 && isJson(payloadString)) {
+            copy(new JsonReader(new StringReader(payloadString)), out);
+        } else {
+            out.value(payloadString);
+        }
+    }
 
-        JsonElement payloadJson;
-        try { payloadJson = JsonParser.parseString(payloadString); }
-        catch (JsonSyntaxException ex) { payloadJson = new JsonPrimitive(payloadString); }
+    private static void writeProperties(final @NotNull JsonWriter out, final @NotNull Mqtt5Publish publish) throws IOException {
+        if (publish.getContentType().isPresent()) {
+            out.name("contentType").value(publish.getContentType().get().toString());
+        }
+        if (publish.getPayloadFormatIndicator().isPresent()) {
+            out.name("payloadFormatIndicator").value(publish.getPayloadFormatIndicator().get().name());
+        }
+        if (publish.getMessageExpiryInterval().isPresent()) {
+            out.name("messageExpiryInterval").value(publish.getMessageExpiryInterval().getAsLong());
+        }
+        if (publish.getResponseTopic().isPresent()) {
+            out.name("responseTopic").value(publish.getResponseTopic().get().toString());
+        }
+        if (publish.getCorrelationData().isPresent()) {
+            final ByteBuffer correlationData = publish.getCorrelationData().get();
+            out.name("correlationData").value(StandardCharsets.UTF_8.decode(correlationData.duplicate()).toString());
+        }
+        final List<? extends Mqtt5UserProperty> userProperties = publish.getUserProperties().asList();
+        if (!userProperties.isEmpty()) {
+            out.name("userProperties").beginObject();
+            for (final Mqtt5UserProperty userProperty : userProperties) {
+                out.name(userProperty.getName().toString()).value(userProperty.getValue().toString());
+            }
+            out.endObject();
+        }
+    }
 
-        return payloadJson;
+    // Validates the payload by skipping over it with a streaming reader, so invalid JSON is detected before anything
+    // of the payload was written to the output.
+    static boolean isJson(final @NotNull String payload) {
+        final JsonReader reader = new JsonReader(new StringReader(payload));
+        try {
+            reader.skipValue();
+            return reader.peek() == JsonToken.END_DOCUMENT;
+        } catch (final IOException | IllegalStateException e) {
+            return false;
+        }
     }
 
-    @NotNull
-    private String getReceivedAt() {
-        return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+    private static void copy(final @NotNull JsonReader in, final @NotNull JsonWriter out) throws IOException {
+        int depth = 0;
+        do {
+            switch (in.peek()) {
+                case BEGIN_ARRAY:
+                    in.beginArray();
+                    out.beginArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    in.endArray();
+                    out.endArray();
+                    depth--;
+                    break;
+                case BEGIN_OBJECT:
+                    in.beginObject();
+                    out.beginObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    in.endObject();
+                    out.endObject();
+                    depth--;
+                    break;
+                case NAME:
+                    out.name(in.nextName());
+                    break;
+                case STRING:
+                    out.value(in.nextString());
+                    break;
+                case NUMBER:
+                    // keeps the number exactly as it was written in the payload
+                    out.jsonValue(in.nextString());
+                    break;
+                case BOOLEAN:
+                    out.value(in.nextBoolean());
+                    break;
+                case NULL:
+                    in.nextNull();
+                    out.nullValue();
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected JSON token " + in.peek());
+            }
+        } while (depth > 0);
     }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.converters;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ByteSizeConverterTest {
+
+    private ByteSizeConverter byteSizeConverter;
+
+    @BeforeEach
+    void setUp() {
+        byteSizeConverter = new ByteSizeConverter();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "MB", "0", "-1", "1.5MB", "10TB", "ten", "9999999999GB"})
+    void testInvalidString(String s) {
+        final Exception e = assertThrows(Exception.class, () -> byteSizeConverter.convert(s));
+        assertEquals(ByteSizeConverter.WRONG_INPUT_MESSAGE, e.getMessage());
+    }
+
+    @Test
+    void testSuccess() throws Exception {
+        assertEquals(512L, (long) byteSizeConverter.convert("512"));
+        assertEquals(512L, (long) byteSizeConverter.convert("512B"));
+        assertEquals(2048L, (long) byteSizeConverter.convert("2KB"));
+        assertEquals(10L * 1024 * 1024, (long) byteSizeConverter.convert("10mb"));
+        assertEquals(3L * 1024 * 1024 * 1024, (long) byteSizeConverter.convert("3 GB"));
+    }
+}
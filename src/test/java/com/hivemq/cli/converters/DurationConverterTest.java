@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.converters;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DurationConverterTest {
+
+    private DurationConverter durationConverter;
+
+    @BeforeEach
+    void setUp() {
+        durationConverter = new DurationConverter();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "h", "0", "-1m", "1.5h", "1w", "soon"})
+    void testInvalidString(String s) {
+        final Exception e = assertThrows(Exception.class, () -> durationConverter.convert(s));
+        assertEquals(DurationConverter.WRONG_INPUT_MESSAGE, e.getMessage());
+    }
+
+    @Test
+    void testSuccess() throws Exception {
+        assertEquals(30_000L, (long) durationConverter.convert("30"));
+        assertEquals(30_000L, (long) durationConverter.convert("30s"));
+        assertEquals(15 * 60_000L, (long) durationConverter.convert("15m"));
+        assertEquals(6 * 3_600_000L, (long) durationConverter.convert("6H"));
+        assertEquals(86_400_000L, (long) durationConverter.convert("1d"));
+    }
+}
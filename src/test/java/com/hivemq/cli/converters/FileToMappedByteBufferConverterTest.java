@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.converters;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileToMappedByteBufferConverterTest {
+
+    FileToMappedByteBufferConverter fileToMappedByteBufferConverter;
+
+    @BeforeEach
+    void setUp() {
+        fileToMappedByteBufferConverter = new FileToMappedByteBufferConverter();
+    }
+
+    @Test
+    void file_content() throws Exception {
+        final File file = getFile("payload.json");
+
+        final byte[] expected = "{\"temperature\":21.5,\"unit\":\"C\"}".getBytes(StandardCharsets.UTF_8);
+
+        final ByteBuffer buffer = fileToMappedByteBufferConverter.convert(file.getPath());
+        final byte[] actual = new byte[buffer.remaining()];
+        buffer.get(actual);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void empty_file() throws Exception {
+        final File file = getFile("empty.bin");
+
+        final ByteBuffer buffer = fileToMappedByteBufferConverter.convert(file.getPath());
+
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void file_not_found() {
+        assertThrows(FileNotFoundException.class, () -> fileToMappedByteBufferConverter.convert("not-existing.bin"));
+    }
+
+    private File getFile(final @NotNull String fileName) {
+        return new File(getClass().getResource("/" + getClass().getSimpleName() + "/" + fileName).getPath());
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.converters;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReplaySpeedConverterTest {
+
+    private ReplaySpeedConverter replaySpeedConverter;
+
+    @BeforeEach
+    void setUp() {
+        replaySpeedConverter = new ReplaySpeedConverter();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "fast", "0", "-1", "-0.5", "NaN", "Infinity", "1x"})
+    void testInvalidString(String s) {
+        final Exception e = assertThrows(Exception.class, () -> replaySpeedConverter.convert(s));
+        assertEquals(ReplaySpeedConverter.WRONG_INPUT_MESSAGE, e.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1", "0.5", "10", "2.5"})
+    void testSuccess(String s) throws Exception {
+        assertEquals(Double.parseDouble(s), replaySpeedConverter.convert(s));
+    }
+
+    @Test
+    void testMax() throws Exception {
+        assertEquals(Double.POSITIVE_INFINITY, replaySpeedConverter.convert("max"));
+        assertEquals(Double.POSITIVE_INFINITY, replaySpeedConverter.convert("MAX"));
+    }
+}
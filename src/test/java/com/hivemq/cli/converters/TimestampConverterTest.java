@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.converters;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimestampConverterTest {
+
+    private TimestampConverter timestampConverter;
+
+    @BeforeEach
+    void setUp() {
+        timestampConverter = new TimestampConverter(
+                Clock.fixed(Instant.parse("2020-01-31T12:00:00Z"), ZoneOffset.ofHours(2)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "-1", "03:12pm", "2020-01-32", "31.01.2020", "yesterday", "99999999999999999999"})
+    void testInvalidString(String s) {
+        final Exception e = assertThrows(Exception.class, () -> timestampConverter.convert(s));
+        assertEquals(TimestampConverter.WRONG_INPUT_MESSAGE, e.getMessage());
+    }
+
+    @Test
+    void testSuccess() throws Exception {
+        assertEquals(1580439120000L, (long) timestampConverter.convert("1580439120000"));
+        assertEquals(1580440320000L, (long) timestampConverter.convert("2020-01-31T03:12:00Z"));
+        assertEquals(1580433120000L, (long) timestampConverter.convert("2020-01-31T03:12:00+02:00"));
+        assertEquals(1580433120000L, (long) timestampConverter.convert("2020-01-31T03:12"));
+        assertEquals(1580433135500L, (long) timestampConverter.convert("2020-01-31 03:12:15.5"));
+        assertEquals(1580421600000L, (long) timestampConverter.convert("2020-01-31"));
+        assertEquals(1580433120000L, (long) timestampConverter.convert("03:12"));
+    }
+}
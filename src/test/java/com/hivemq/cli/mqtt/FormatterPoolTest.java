@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FormatterPoolTest {
+
+    @Test
+    void tasks_of_a_key_stay_in_order() {
+        final int keys = 8;
+        final List<List<Integer>> outputs = new ArrayList<>();
+        for (int k = 0; k < keys; k++) {
+            outputs.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+
+        final FormatterPool pool = new FormatterPool(3, 16, FormatterPool.QueueFullPolicy.block);
+        for (int i = 0; i < 1000; i++) {
+            final int key = i % keys;
+            final int value = i;
+            pool.execute("topic/" + key, () -> outputs.get(key).add(value));
+        }
+        pool.close();
+
+        for (int k = 0; k < keys; k++) {
+            final List<Integer> output = outputs.get(k);
+            assertEquals(1000 / keys, output.size());
+            for (int i = 1; i < output.size(); i++) {
+                assertTrue(output.get(i - 1) < output.get(i), "topic/" + k + " out of order: " + output);
+            }
+        }
+        assertEquals(1000, pool.getQueueLag().getCount());
+        assertEquals(0, pool.getDropped());
+    }
+
+    @Test
+    void full_queue_drops_with_drop_policy() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final FormatterPool pool = new FormatterPool(1, 2, FormatterPool.QueueFullPolicy.drop);
+
+        pool.execute("topic", () -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            pool.execute("topic", () -> {});
+        }
+        release.countDown();
+        pool.close();
+
+        assertEquals(3, pool.getDropped());
+        assertEquals(3, pool.getQueueLag().getCount());
+        assertEquals(2, pool.getMaxQueueDepth());
+    }
+
+    @Test
+    void tasks_after_close_run_directly() {
+        final List<String> output = new ArrayList<>();
+        final FormatterPool pool = new FormatterPool(1, 2, FormatterPool.QueueFullPolicy.block);
+        pool.close();
+
+        pool.execute("topic", () -> output.add(Thread.currentThread().getName()));
+
+        assertEquals(Collections.singletonList(Thread.currentThread().getName()), output);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import com.hivemq.cli.commands.cli.PublishCommand;
+import com.hivemq.cli.utils.MessageTemplate;
+import com.hivemq.client.mqtt.MqttClient;
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PeriodicPublishTest {
+
+    private static final String TOPIC = "periodic/${schedule}";
+    private static final String TOPIC_PREFIX = "periodic/";
+    private static final long INTERVAL_MILLIS = 20;
+    private static final int SCHEDULES = 4;
+    private static final int COUNT = 5;
+
+    @Test
+    void schedules_publish_count_times_and_never_before_their_deadline() throws Exception {
+        final TestableMqttClientExecutor executor = TestableMqttClientExecutor.getInstance();
+        executor.clearPublishes();
+        final MqttClient client = MqttClient.builder()
+                .identifier("periodic")
+                .serverHost("localhost")
+                .useMqttVersion5()
+                .build();
+        final PublishCommand publishCommand = mock(PublishCommand.class);
+        when(publishCommand.getTopics()).thenReturn(new String[]{TOPIC});
+        when(publishCommand.getTopicTemplates()).thenReturn(new MessageTemplate[]{MessageTemplate.compile(TOPIC)});
+        when(publishCommand.getQos()).thenReturn(new MqttQos[]{MqttQos.AT_LEAST_ONCE});
+        when(publishCommand.getMessage()).thenReturn(ByteBuffer.wrap("ping".getBytes(StandardCharsets.UTF_8)));
+        when(publishCommand.getCount()).thenReturn((long) COUNT);
+        when(publishCommand.getSchedules()).thenReturn(SCHEDULES);
+        when(publishCommand.getMaxInFlight()).thenReturn(1000);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final PrintStream systemOut = System.out;
+        final long start = System.nanoTime();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8.name()));
+        try {
+            executor.publishPeriodically(Collections.singletonList(client), publishCommand, INTERVAL_MILLIS);
+        } finally {
+            System.setOut(systemOut);
+        }
+
+        final List<String> topics = new ArrayList<>(executor.getPublishTopics());
+        final List<Long> publishNanos = new ArrayList<>(executor.getPublishNanos());
+        assertEquals(SCHEDULES * COUNT, topics.size());
+
+        final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(INTERVAL_MILLIS);
+        final int[] published = new int[SCHEDULES];
+        for (int i = 0; i < topics.size(); i++) {
+            // the first deadlines are spread across the interval, so the schedules take turns
+            final int schedule = Integer.parseInt(topics.get(i).substring(TOPIC_PREFIX.length()));
+            assertEquals(i % SCHEDULES, schedule);
+
+            // every deadline is one interval after the previous deadline of its schedule
+            final long deadline = start + intervalNanos * schedule / SCHEDULES + published[schedule] * intervalNanos;
+            assertTrue(publishNanos.get(i) >= deadline,
+                    "Publish " + published[schedule] + " of schedule " + schedule + " fired " +
+                            (deadline - publishNanos.get(i)) + " ns before its deadline");
+            published[schedule]++;
+        }
+        for (final int schedulePublished : published) {
+            assertEquals(COUNT, schedulePublished);
+        }
+
+        assertTrue(output.toString(StandardCharsets.UTF_8.name()).contains(SCHEDULES + " schedules every " + INTERVAL_MILLIS + " ms, schedule lag (ms): p50="),
+                output.toString(StandardCharsets.UTF_8.name()));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import com.hivemq.cli.commands.Publish;
+import com.hivemq.cli.commands.cli.PublishCommand;
+import com.hivemq.client.mqtt.MqttVersion;
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5ClientConfig;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PublishResult;
+import com.sun.management.ThreadMXBean;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.tinylog.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PublishAllocationTest {
+
+    private static final int MESSAGES = 100_000;
+
+    // the argument array of the proxied client call and the future which releases the in-flight window
+    private static final long ALLOCATION_BUDGET_BYTES_PER_MESSAGE = 64;
+
+    private static final String TOPIC = "allocation/test";
+
+    @Test
+    void repeated_publish_stays_within_allocation_budget() {
+        final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        assumeFalse(Logger.isDebugEnabled(), "The publish hot path is only allocation free with debug logging disabled");
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        final MqttClientExecutor executor = new MqttClientExecutor();
+        final AtomicLong published = new AtomicLong();
+        final Mqtt5Client client = createClient(published);
+        final PublishCommand publishCommand = mock(PublishCommand.class);
+        when(publishCommand.getTopics()).thenReturn(new String[]{TOPIC});
+        when(publishCommand.getQos()).thenReturn(new MqttQos[]{MqttQos.AT_LEAST_ONCE});
+        when(publishCommand.getMessage()).thenReturn(ByteBuffer.wrap(new byte[64]));
+        when(publishCommand.getCount()).thenReturn((long) MESSAGES);
+        when(publishCommand.getMaxInFlight()).thenReturn(1000);
+
+        // warm up
+        executor.publishRepeatedly(Collections.singletonList(client), publishCommand);
+
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        executor.publishRepeatedly(Collections.singletonList(client), publishCommand);
+        final long bytesPerMessage = (threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / MESSAGES;
+
+        assertTrue(bytesPerMessage <= ALLOCATION_BUDGET_BYTES_PER_MESSAGE,
+                "Allocated " + bytesPerMessage + " bytes per message");
+        assertEquals(2L * MESSAGES, published.get());
+    }
+
+    @Test
+    void template_is_reused_for_the_same_topic_and_payload() {
+        final ByteBuffer payload = ByteBuffer.wrap(new byte[]{1, 2, 3});
+        final PublishTemplate publishTemplate =
+                PublishTemplate.of(MqttVersion.MQTT_5_0, mock(Publish.class), TOPIC, MqttQos.AT_LEAST_ONCE, payload);
+
+        assertSame(publishTemplate.toMqtt5Publish(TOPIC, payload), publishTemplate.toMqtt5Publish(TOPIC, payload));
+        assertEquals("other/topic", publishTemplate.toMqtt5Publish("other/topic", payload).getTopic().toString());
+    }
+
+    // Mockito records every invocation of a mock, which would dominate the allocations of the publish. The client is
+    // a proxy instead whose publish completes right away with the same future.
+    private static @NotNull Mqtt5Client createClient(final @NotNull AtomicLong published) {
+        final CompletableFuture<Mqtt5PublishResult> publishResult = CompletableFuture.completedFuture(null);
+        final Mqtt5ClientConfig config = proxy(Mqtt5ClientConfig.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getMqttVersion":
+                    return MqttVersion.MQTT_5_0;
+                case "getConnectionConfig":
+                    return Optional.empty();
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+        final Mqtt5AsyncClient asyncClient = proxy(Mqtt5AsyncClient.class, (proxy, method, args) -> {
+            if (method.getName().equals("publish") && args.length == 1 && args[0] instanceof Mqtt5Publish) {
+                published.incrementAndGet();
+                return publishResult;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+        return proxy(Mqtt5Client.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getConfig":
+                    return config;
+                case "toAsync":
+                    return asyncClient;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static <T> @NotNull T proxy(final @NotNull Class<T> type, final @NotNull InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscribeStatisticsTest {
+
+    private ByteArrayOutputStream output;
+    private SubscribeStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        output = new ByteArrayOutputStream();
+        // the periodic report is not reached during a test, reports are triggered explicitly
+        statistics = new SubscribeStatistics(new PrintStream(output, true), TimeUnit.HOURS.toMillis(1), 2, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.close();
+    }
+
+    @Test
+    void report_totals_and_top_topics() {
+        for (int i = 0; i < 3; i++) {
+            statistics.record("consumer", "a", payload(10), MqttQos.AT_MOST_ONCE, false);
+        }
+        statistics.record("consumer", "b", payload(5), MqttQos.AT_LEAST_ONCE, true);
+        statistics.record("consumer", "c", Optional.empty(), MqttQos.EXACTLY_ONCE, false);
+        statistics.record("consumer", "c", Optional.empty(), MqttQos.EXACTLY_ONCE, false);
+
+        statistics.report();
+
+        final String[] lines = output.toString().split(System.lineSeparator());
+        assertEquals(5, lines.length, output.toString());
+        assertTrue(lines[0].contains("total: 6 messages (35 bytes) on 3 topics, QoS 0/1/2: 3/1/2, retained: 1"), lines[0]);
+        assertTrue(lines[1].startsWith("  inter-arrival (ms): p50="), lines[1]);
+        assertTrue(lines[2].trim().startsWith("msg/s"), lines[2]);
+        assertTrue(lines[3].endsWith("3  a"), lines[3]);
+        assertTrue(lines[4].endsWith("2  c"), lines[4]);
+    }
+
+    @Test
+    void report_only_topics_with_new_messages() {
+        statistics.record("consumer", "a", payload(1), MqttQos.AT_MOST_ONCE, false);
+        statistics.report();
+        output.reset();
+
+        statistics.record("consumer", "b", payload(1), MqttQos.AT_MOST_ONCE, false);
+        statistics.report();
+
+        final String report = output.toString();
+        assertTrue(report.contains("total: 2 messages (2 bytes) on 2 topics"), report);
+        assertTrue(report.contains("1  b"), report);
+        assertFalse(report.contains("1  a"), report);
+    }
+
+    @Test
+    void close_prints_summary_once() {
+        statistics.record("consumer", "a", payload(4), MqttQos.AT_LEAST_ONCE, true);
+
+        statistics.close();
+        statistics.close();
+
+        final String[] lines = output.toString().split(System.lineSeparator());
+        assertEquals(1, lines.length);
+        assertTrue(lines[0].startsWith("Received 1 messages (4 bytes) on 1 topics in "), lines[0]);
+        assertTrue(lines[0].endsWith("QoS 0/1/2: 0/1/0, retained: 1"), lines[0]);
+    }
+
+    @Test
+    void report_and_summary_include_consumers() {
+        for (int i = 0; i < 3; i++) {
+            statistics.record("consumer-1", "a", payload(2), MqttQos.AT_MOST_ONCE, false);
+        }
+        statistics.record("consumer-0", "a", payload(2), MqttQos.AT_MOST_ONCE, false);
+
+        statistics.report();
+
+        final String[] lines = output.toString().split(System.lineSeparator());
+        assertTrue(lines[2].trim().startsWith("msg/s"), lines[2]);
+        assertTrue(lines[2].endsWith("share  consumer"), lines[2]);
+        assertTrue(lines[3].endsWith(" 1   25.0%  consumer-0"), lines[3]);
+        assertTrue(lines[4].endsWith(" 3   75.0%  consumer-1"), lines[4]);
+        output.reset();
+
+        statistics.close();
+
+        final String summary = output.toString();
+        assertTrue(summary.contains("  consumer-0: 1 messages (2 bytes, "), summary);
+        assertTrue(summary.contains("  consumer-1: 3 messages (6 bytes, "), summary);
+        assertTrue(summary.contains("75.0%)"), summary);
+    }
+
+    private static Optional<ByteBuffer> payload(final int length) {
+        return Optional.of(ByteBuffer.wrap(new String(new char[length]).replace('\0', 'x').getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -17,23 +17,29 @@ package com.hivemq.cli.mqtt;
 
 import com.hivemq.cli.commands.Connect;
 import com.hivemq.cli.commands.Disconnect;
-import com.hivemq.cli.commands.Publish;
 import com.hivemq.cli.commands.Subscribe;
 import com.hivemq.cli.commands.Unsubscribe;
 import com.hivemq.client.mqtt.datatypes.MqttQos;
 import com.hivemq.client.mqtt.mqtt3.Mqtt3Client;
 import com.hivemq.client.mqtt.mqtt3.message.connect.Mqtt3Connect;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
 import com.hivemq.client.mqtt.mqtt5.message.connect.Mqtt5Connect;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class TestableMqttClientExecutor extends AbstractMqttClientExecutor {
 
     private static TestableMqttClientExecutor instance = null;
     private Mqtt5Connect connectMsg;
     private ArrayList<String> subscribeTopic;
+    private final List<String> publishTopics = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> publishNanos = Collections.synchronizedList(new ArrayList<>());
 
     private TestableMqttClientExecutor() {
     }
@@ -53,6 +59,19 @@ public class TestableMqttClientExecutor extends AbstractMqttClientExecutor {
         return subscribeTopic;
     }
 
+    public List<String> getPublishTopics() {
+        return publishTopics;
+    }
+
+    public List<Long> getPublishNanos() {
+        return publishNanos;
+    }
+
+    public void clearPublishes() {
+        publishTopics.clear();
+        publishNanos.clear();
+    }
+
 
     @Override
     void mqtt5Connect(@NotNull Mqtt5Client client, @NotNull Mqtt5Connect connectMessage, @NotNull Connect connect) {
@@ -65,23 +84,25 @@ public class TestableMqttClientExecutor extends AbstractMqttClientExecutor {
     }
 
     @Override
-    void mqtt5Subscribe(@NotNull Mqtt5Client client, @NotNull Subscribe subscribe, @NotNull String topic, @NotNull MqttQos qos) {
+    void mqtt5Subscribe(@NotNull Mqtt5Client client, @NotNull Subscribe subscribe, @NotNull String[] topics, @NotNull MqttQos[] qos) {
 
     }
 
     @Override
-    void mqtt3Subscribe(@NotNull Mqtt3Client client, @NotNull Subscribe subscribe, @NotNull String topic, @NotNull MqttQos qos) {
+    void mqtt3Subscribe(@NotNull Mqtt3Client client, @NotNull Subscribe subscribe, @NotNull String[] topics, @NotNull MqttQos[] qos) {
 
     }
 
     @Override
-    void mqtt5Publish(@NotNull Mqtt5Client client, @NotNull Publish publish, @NotNull String topic, @NotNull MqttQos qos) {
-
+    @NotNull CompletableFuture<?> mqtt5Publish(@NotNull Mqtt5Client client, @NotNull Mqtt5Publish publish) {
+        publishNanos.add(System.nanoTime());
+        publishTopics.add(publish.getTopic().toString());
+        return CompletableFuture.completedFuture(null);
     }
 
     @Override
-    void mqtt3Publish(@NotNull Mqtt3Client client, @NotNull Publish publish, @NotNull String topic, @NotNull MqttQos qos) {
-
+    @NotNull CompletableFuture<?> mqtt3Publish(@NotNull Mqtt3Client client, @NotNull Mqtt3Publish publish) {
+        return CompletableFuture.completedFuture(null);
     }
 
     @Override
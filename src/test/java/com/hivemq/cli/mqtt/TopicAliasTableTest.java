@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopicAliasTableTest {
+
+    @Test
+    void repeated_topic_saves_bytes() {
+        final TopicAliasTable table = new TopicAliasTable(2);
+
+        assertFalse(table.use("sensors/temperature"));
+        assertTrue(table.use("sensors/temperature"));
+        assertTrue(table.use("sensors/temperature"));
+
+        assertEquals(1, table.getAssignments());
+        assertEquals(2, table.getHits());
+        assertEquals(2 * (19 - TopicAliasTable.ALIAS_PROPERTY_LENGTH) - TopicAliasTable.ALIAS_PROPERTY_LENGTH, table.getBytesSaved());
+        assertFalse(table.isEstimate());
+    }
+
+    @Test
+    void least_recently_used_topic_loses_alias() {
+        final TopicAliasTable table = new TopicAliasTable(2);
+
+        table.use("a");
+        table.use("b");
+        table.use("a");
+        table.use("c");
+
+        assertTrue(table.use("a"));
+        assertTrue(table.use("c"));
+        assertFalse(table.use("b"));
+        assertEquals(4, table.getAssignments());
+        assertTrue(table.isEstimate());
+    }
+
+    @Test
+    void topic_alias_maximum_too_small() {
+        assertThrows(IllegalArgumentException.class, () -> new TopicAliasTable(0));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.capture;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureConverterTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private File captureFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        captureFile = File.createTempFile("capture", ".mqttcap");
+        try (final CaptureWriter writer = new CaptureWriter(captureFile)) {
+            writer.write(Mqtt5Publish.builder()
+                    .topic("sensors/1")
+                    .qos(MqttQos.AT_LEAST_ONCE)
+                    .payload("21.5".getBytes(StandardCharsets.UTF_8))
+                    .build());
+            writer.write(Mqtt5Publish.builder()
+                    .topic("sensors/2")
+                    .retain(true)
+                    .payload("a,\"b\"".getBytes(StandardCharsets.UTF_8))
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        captureFile.delete();
+    }
+
+    @Test
+    void text_with_topics() throws Exception {
+        final String converted = convert(new CaptureConverter(CaptureConverter.Format.text, false, true));
+
+        assertEquals("sensors/1: 21.5" + NL + "sensors/2: a,\"b\"" + NL, converted);
+    }
+
+    @Test
+    void text_base64() throws Exception {
+        final String converted = convert(new CaptureConverter(CaptureConverter.Format.text, true, false));
+
+        assertEquals("MjEuNQ==" + NL + "YSwiYiI=" + NL, converted);
+    }
+
+    @Test
+    void csv_quotes_fields() throws Exception {
+        final String[] lines = convert(new CaptureConverter(CaptureConverter.Format.csv, false, false)).split(NL);
+
+        assertEquals(3, lines.length);
+        assertEquals(CaptureConverter.CSV_HEADER, lines[0]);
+        assertTrue(lines[1].endsWith(",sensors/1,1,false,21.5"), lines[1]);
+        assertTrue(lines[2].endsWith(",sensors/2,0,true,\"a,\"\"b\"\"\""), lines[2]);
+    }
+
+    @Test
+    void json_contains_topic_and_payload() throws Exception {
+        final String converted = convert(new CaptureConverter(CaptureConverter.Format.json, false, false));
+
+        assertTrue(converted.contains("\"topic\": \"sensors/1\""), converted);
+        assertTrue(converted.contains("\"payload\": 21.5"), converted);
+        assertTrue(converted.contains("\"retain\": true"), converted);
+    }
+
+    private String convert(final CaptureConverter converter) throws IOException {
+        final StringWriter out = new StringWriter();
+        try (final CaptureReader reader = new CaptureReader(captureFile)) {
+            converter.convert(reader, out);
+        }
+        return out.toString();
+    }
+}
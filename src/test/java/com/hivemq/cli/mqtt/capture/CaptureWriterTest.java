@@ -0,0 +1,181 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.capture;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5PayloadFormatIndicator;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CaptureWriterTest {
+
+    private File captureFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        captureFile = File.createTempFile("capture", ".mqttcap");
+        captureFile.deleteOnExit();
+    }
+
+    @Test
+    void mqtt5_publish_round_trip() throws Exception {
+        final Mqtt5Publish publish = Mqtt5Publish.builder()
+                .topic("sensors/1/temp")
+                .qos(MqttQos.EXACTLY_ONCE)
+                .retain(true)
+                .messageExpiryInterval(60)
+                .payloadFormatIndicator(Mqtt5PayloadFormatIndicator.UTF_8)
+                .contentType("application/json")
+                .responseTopic("sensors/1/response")
+                .correlationData("correlation".getBytes(StandardCharsets.UTF_8))
+                .userProperties(Mqtt5UserProperties.builder().add("key", "value").add("key", "other").build())
+                .payload("{\"temp\":21.5}".getBytes(StandardCharsets.UTF_8))
+                .build();
+
+        try (final CaptureWriter writer = new CaptureWriter(captureFile)) {
+            writer.write(publish);
+            writer.write(publish);
+        }
+
+        try (final CaptureReader reader = new CaptureReader(captureFile)) {
+            final CapturedPublish first = reader.next();
+            final CapturedPublish second = reader.next();
+            assertNotNull(first);
+            assertNotNull(second);
+            assertEquals(publish, first.getPublish());
+            assertEquals(publish, second.getPublish());
+            assertTrue(second.getReceiveNanos() >= first.getReceiveNanos());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void mqtt3_publish_round_trip() throws Exception {
+        final Mqtt3Publish publish = Mqtt3Publish.builder()
+                .topic("topic")
+                .qos(MqttQos.AT_LEAST_ONCE)
+                .payload(new byte[]{0, 1, 2, (byte) 0xFF})
+                .build();
+
+        try (final CaptureWriter writer = new CaptureWriter(captureFile)) {
+            writer.write(publish);
+        }
+
+        try (final CaptureReader reader = new CaptureReader(captureFile)) {
+            final CapturedPublish captured = reader.next();
+            assertNotNull(captured);
+            assertEquals(publish, captured.toMqtt3Publish());
+            assertFalse(captured.getPublish().getContentType().isPresent());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void record_larger_than_buffer_round_trip() throws Exception {
+        final Mqtt5Publish small = Mqtt5Publish.builder().topic("small").payload(new byte[10]).build();
+        final Mqtt5Publish large = Mqtt5Publish.builder().topic("large").payload(new byte[CaptureWriter.BUFFER_SIZE + 1]).build();
+
+        try (final CaptureWriter writer = new CaptureWriter(captureFile)) {
+            writer.write(small);
+            writer.write(large);
+            writer.write(small);
+        }
+
+        try (final CaptureReader reader = new CaptureReader(captureFile)) {
+            assertEquals(small, reader.next().getPublish());
+            assertEquals(large, reader.next().getPublish());
+            assertEquals(small, reader.next().getPublish());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void buffered_records_are_written_after_flush_interval() throws Exception {
+        try (final CaptureWriter writer = new CaptureWriter(captureFile)) {
+            writer.write(Mqtt5Publish.builder().topic("topic").payload(new byte[100]).build());
+
+            final long deadline = System.currentTimeMillis() + 5_000;
+            while (captureFile.length() == CaptureWriter.HEADER_LENGTH) {
+                assertTrue(System.currentTimeMillis() < deadline, "Records were not flushed in time");
+                Thread.sleep(10);
+            }
+            try (final CaptureReader reader = new CaptureReader(captureFile)) {
+                assertNotNull(reader.next());
+                assertNull(reader.next());
+            }
+        }
+    }
+
+    @Test
+    void publishes_after_close_are_ignored() throws Exception {
+        final Mqtt5Publish publish = Mqtt5Publish.builder().topic("topic").payload(new byte[100]).build();
+        final CaptureWriter writer = new CaptureWriter(captureFile);
+        writer.write(publish);
+
+        writer.close();
+        writer.close();
+        writer.write(publish);
+        writer.flush();
+
+        try (final CaptureReader reader = new CaptureReader(captureFile)) {
+            assertEquals(publish, reader.next().getPublish());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void truncated_record_ends_capture() throws Exception {
+        try (final CaptureWriter writer = new CaptureWriter(captureFile)) {
+            writer.write(Mqtt5Publish.builder().topic("topic").payload(new byte[100]).build());
+            writer.write(Mqtt5Publish.builder().topic("topic").payload(new byte[100]).build());
+        }
+        final byte[] bytes = Files.readAllBytes(captureFile.toPath());
+        try (final FileOutputStream out = new FileOutputStream(captureFile)) {
+            out.write(bytes, 0, bytes.length - 10);
+        }
+
+        try (final CaptureReader reader = new CaptureReader(captureFile)) {
+            final CapturedPublish captured = reader.next();
+            assertNotNull(captured);
+            assertArrayEquals(new byte[100], captured.getPublish().getPayloadAsBytes());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void not_a_capture_file() throws Exception {
+        Files.write(captureFile.toPath(), "hello".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> new CaptureReader(captureFile));
+    }
+}
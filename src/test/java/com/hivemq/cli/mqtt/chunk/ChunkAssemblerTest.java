@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.chunk;
+
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkAssemblerTest {
+
+    private static final byte[] TRANSFER_ID = {0x01, 0x23, (byte) 0xAB};
+    private static final byte[] PAYLOAD = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+    private static final int CHUNK_SIZE = 8;
+
+    private File directory;
+    private ChunkAssembler assembler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("chunks").toFile();
+        assembler = new ChunkAssembler(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        assembler.close();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    void chunks_in_order_are_reassembled() throws IOException {
+        assertNull(assembler.accept(chunk(0)));
+        assertNull(assembler.accept(chunk(1)));
+        final File file = assembler.accept(chunk(2));
+
+        assertNotNull(file);
+        assertEquals("0123ab", file.getName());
+        assertArrayEquals(PAYLOAD, Files.readAllBytes(file.toPath()));
+        assertFalse(new File(directory, "0123ab" + ChunkAssembler.PART_SUFFIX).exists());
+    }
+
+    @Test
+    void chunks_out_of_order_and_duplicates_are_reassembled() throws IOException {
+        assertNull(assembler.accept(chunk(2)));
+        assertNull(assembler.accept(chunk(0)));
+        assertNull(assembler.accept(chunk(0)));
+        assertNull(assembler.accept(chunk(2)));
+        final File file = assembler.accept(chunk(1));
+
+        assertNotNull(file);
+        assertArrayEquals(PAYLOAD, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    void incomplete_transfer_stays_partial() throws IOException {
+        assertNull(assembler.accept(chunk(0)));
+        assembler.close();
+
+        final File partFile = new File(directory, "0123ab" + ChunkAssembler.PART_SUFFIX);
+        assertTrue(partFile.exists());
+        assertArrayEquals(Arrays.copyOf(PAYLOAD, CHUNK_SIZE), Files.readAllBytes(partFile.toPath()));
+    }
+
+    @Test
+    void chunk_with_different_count_is_rejected() throws IOException {
+        assembler.accept(chunk(0));
+        final Mqtt5Publish publish = Mqtt5Publish.builder()
+                .topic("files/large")
+                .correlationData(TRANSFER_ID)
+                .userProperties(Chunk.userProperties(null, 1, 5, CHUNK_SIZE))
+                .payload(Arrays.copyOfRange(PAYLOAD, CHUNK_SIZE, 2 * CHUNK_SIZE))
+                .build();
+
+        assertThrows(IOException.class, () -> assembler.accept(Chunk.of(publish)));
+    }
+
+    @Test
+    void publish_without_chunk_properties_is_no_chunk() {
+        final Mqtt5Publish publish = Mqtt5Publish.builder()
+                .topic("files/large")
+                .userProperties(Mqtt5UserProperties.builder().add("key", "value").build())
+                .payload(PAYLOAD)
+                .build();
+
+        assertNull(Chunk.of(publish));
+    }
+
+    @Test
+    void chunk_without_correlation_data_is_invalid() {
+        final Mqtt5Publish publish = Mqtt5Publish.builder()
+                .topic("files/large")
+                .userProperties(Chunk.userProperties(null, 0, 1, 0))
+                .payload(PAYLOAD)
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> Chunk.of(publish));
+    }
+
+    @Test
+    void chunk_index_out_of_range_is_invalid() {
+        final Mqtt5Publish publish = Mqtt5Publish.builder()
+                .topic("files/large")
+                .correlationData(TRANSFER_ID)
+                .userProperties(Chunk.userProperties(null, 3, 3, 0))
+                .payload(PAYLOAD)
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> Chunk.of(publish));
+    }
+
+    private static Chunk chunk(final int index) {
+        final int count = (PAYLOAD.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        final int offset = index * CHUNK_SIZE;
+        final Mqtt5Publish publish = Mqtt5Publish.builder()
+                .topic("files/large")
+                .correlationData(TRANSFER_ID)
+                .userProperties(Chunk.userProperties(null, index, count, offset))
+                .payload(Arrays.copyOfRange(PAYLOAD, offset, Math.min(offset + CHUNK_SIZE, PAYLOAD.length)))
+                .build();
+        final Chunk chunk = Chunk.of(publish);
+        assertNotNull(chunk);
+        return chunk;
+    }
+}
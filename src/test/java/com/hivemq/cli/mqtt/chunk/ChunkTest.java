@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.chunk;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperty;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChunkTest {
+
+    private static final String TOPIC = "files/firmware";
+
+    @Test
+    void overhead_covers_header_topic_and_chunk_properties() {
+        final Mqtt5Publish publish = Mqtt5Publish.builder().topic(TOPIC).qos(MqttQos.AT_LEAST_ONCE).build();
+
+        // header 9, topic alias 3, topic 16, correlation data 19, packet identifier 2, chunk properties 23 + 23 + 24
+        assertEquals(119, Chunk.getOverhead(publish, 1_000_000));
+    }
+
+    @Test
+    void overhead_grows_with_properties_of_the_publish() {
+        final Mqtt5Publish publish = Mqtt5Publish.builder().topic(TOPIC).qos(MqttQos.AT_MOST_ONCE).build();
+        final Mqtt5Publish publishWithProperties = publish.extend()
+                .contentType("application/octet-stream")
+                .userProperties(Mqtt5UserProperties.of(Mqtt5UserProperty.of("device", "sensor-1")))
+                .build();
+
+        assertEquals(Chunk.getOverhead(publish, 1_000_000) + 1 + 2 + 24 + 1 + 2 + 6 + 2 + 8,
+                Chunk.getOverhead(publishWithProperties, 1_000_000));
+    }
+
+    @Test
+    void overhead_grows_with_the_digits_of_the_payload_length() {
+        final Mqtt5Publish publish = Mqtt5Publish.builder().topic(TOPIC).build();
+
+        assertEquals(Chunk.getOverhead(publish, 9) + 3, Chunk.getOverhead(publish, 10));
+    }
+}
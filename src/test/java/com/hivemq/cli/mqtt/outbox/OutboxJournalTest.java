@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.outbox;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxJournalTest {
+
+    private File journalFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journalFile = File.createTempFile("outbox", ".journal");
+        journalFile.delete();
+    }
+
+    @AfterEach
+    void tearDown() {
+        journalFile.delete();
+    }
+
+    @Test
+    void entries_are_sent_in_order() throws Exception {
+        try (final OutboxJournal journal = new OutboxJournal(journalFile)) {
+            journal.append(publish("telemetry/1", "first"));
+            journal.append(publish("telemetry/2", "second"));
+            assertEquals(2, journal.getPending());
+
+            final OutboxJournal.Entry first = journal.next();
+            final OutboxJournal.Entry second = journal.next();
+            assertNotNull(first);
+            assertNotNull(second);
+            assertNull(journal.next());
+            assertEquals(publish("telemetry/1", "first"), first.getPublish().getPublish());
+            assertEquals(publish("telemetry/2", "second"), second.getPublish().getPublish());
+
+            journal.acknowledge(second);
+            journal.acknowledge(first);
+            assertEquals(0, journal.getPending());
+        }
+    }
+
+    @Test
+    void pending_entries_survive_reopen() throws Exception {
+        try (final OutboxJournal journal = new OutboxJournal(journalFile)) {
+            journal.append(publish("telemetry", "acknowledged"));
+            journal.append(publish("telemetry", "pending"));
+            journal.acknowledge(journal.next());
+        }
+
+        try (final OutboxJournal journal = new OutboxJournal(journalFile)) {
+            assertEquals(1, journal.getPending());
+            final OutboxJournal.Entry entry = journal.next();
+            assertNotNull(entry);
+            assertEquals(publish("telemetry", "pending"), entry.getPublish().getPublish());
+            assertNull(journal.next());
+        }
+    }
+
+    @Test
+    void failed_entries_are_sent_again_after_rewind() throws Exception {
+        try (final OutboxJournal journal = new OutboxJournal(journalFile)) {
+            journal.append(publish("telemetry", "first"));
+            journal.append(publish("telemetry", "second"));
+
+            final OutboxJournal.Entry first = journal.next();
+            final OutboxJournal.Entry second = journal.next();
+            journal.acknowledge(first);
+            journal.failed(second);
+            assertNull(journal.next());
+
+            journal.rewind();
+            final OutboxJournal.Entry resent = journal.next();
+            assertNotNull(resent);
+            assertEquals(publish("telemetry", "second"), resent.getPublish().getPublish());
+            assertNull(journal.next());
+        }
+    }
+
+    @Test
+    void acknowledged_entries_are_compacted() throws Exception {
+        try (final OutboxJournal journal = new OutboxJournal(journalFile)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(publish("telemetry", "message " + i));
+            }
+            for (int i = 0; i < 8; i++) {
+                journal.acknowledge(journal.next());
+            }
+            // the remaining entries are moved to the start of the journal, appending continues behind them
+            journal.append(publish("telemetry", "message 10"));
+            assertEquals(3, journal.getPending());
+        }
+
+        try (final OutboxJournal journal = new OutboxJournal(journalFile)) {
+            assertEquals(3, journal.getPending());
+            for (int i = 8; i <= 10; i++) {
+                final OutboxJournal.Entry entry = journal.next();
+                assertNotNull(entry);
+                assertEquals(publish("telemetry", "message " + i), entry.getPublish().getPublish());
+            }
+            assertNull(journal.next());
+        }
+    }
+
+    @Test
+    void entries_in_flight_stay_pending_after_close() throws Exception {
+        final OutboxJournal journal = new OutboxJournal(journalFile);
+        journal.append(publish("telemetry", "acknowledged"));
+        journal.append(publish("telemetry", "in flight"));
+        journal.append(publish("telemetry", "failed"));
+        final OutboxJournal.Entry acknowledged = journal.next();
+        final OutboxJournal.Entry inFlight = journal.next();
+        final OutboxJournal.Entry failed = journal.next();
+        journal.acknowledge(acknowledged);
+
+        journal.close();
+        journal.acknowledge(inFlight);
+        journal.failed(failed);
+        assertNull(journal.next());
+        assertThrows(IOException.class, () -> journal.append(publish("telemetry", "closed")));
+        journal.close();
+
+        try (final OutboxJournal reopened = new OutboxJournal(journalFile)) {
+            assertEquals(2, reopened.getPending());
+            final OutboxJournal.Entry first = reopened.next();
+            final OutboxJournal.Entry second = reopened.next();
+            assertNotNull(first);
+            assertNotNull(second);
+            assertEquals(publish("telemetry", "in flight"), first.getPublish().getPublish());
+            assertEquals(publish("telemetry", "failed"), second.getPublish().getPublish());
+            assertNull(reopened.next());
+        }
+    }
+
+    @Test
+    void journal_grows_beyond_initial_capacity() throws Exception {
+        final byte[] payload = new byte[64 * 1024];
+        final int count = 2 * OutboxJournal.INITIAL_CAPACITY / payload.length;
+        try (final OutboxJournal journal = new OutboxJournal(journalFile)) {
+            for (int i = 0; i < count; i++) {
+                journal.append(Mqtt5Publish.builder().topic("large").payload(payload).build());
+            }
+            assertEquals(count, journal.getPending());
+        }
+        assertTrue(journalFile.length() > OutboxJournal.INITIAL_CAPACITY);
+
+        try (final OutboxJournal journal = new OutboxJournal(journalFile)) {
+            assertEquals(count, journal.getPending());
+        }
+    }
+
+    @Test
+    void not_a_journal() throws Exception {
+        try (final FileOutputStream out = new FileOutputStream(journalFile)) {
+            out.write("no journal".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThrows(IOException.class, () -> new OutboxJournal(journalFile));
+    }
+
+    private static Mqtt5Publish publish(final String topic, final String payload) {
+        return Mqtt5Publish.builder()
+                .topic(topic)
+                .qos(MqttQos.AT_LEAST_ONCE)
+                .payload(payload.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.probe;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProbeStampTest {
+
+    @Test
+    void header_round_trip() {
+        final ByteBuffer payload = ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8));
+
+        final ByteBuffer stamped = new ProbeStamp(-42, 7, 1_600_000_000_000_000L).prependHeader(payload);
+
+        assertEquals(ProbeStamp.HEADER_LENGTH + 5, stamped.remaining());
+        assertEquals(5, payload.remaining());
+        final ProbeStamp stamp = ProbeStamp.read(Optional.of(stamped));
+        assertNotNull(stamp);
+        assertEquals(-42, stamp.getStream());
+        assertEquals(7, stamp.getSequence());
+        assertEquals(1_600_000_000_000_000L, stamp.getSendTimeMicros());
+        assertEquals(0, stamped.position());
+    }
+
+    @Test
+    void user_property_round_trip() {
+        final ProbeStamp stamp = ProbeStamp.parse(new ProbeStamp(-42, 7, 1_600_000_000_000_000L).toUserPropertyValue());
+
+        assertNotNull(stamp);
+        assertEquals(-42, stamp.getStream());
+        assertEquals(7, stamp.getSequence());
+        assertEquals(1_600_000_000_000_000L, stamp.getSendTimeMicros());
+    }
+
+    @Test
+    void unstamped_payload_has_no_stamp() {
+        assertNull(ProbeStamp.read(Optional.empty()));
+        assertNull(ProbeStamp.read(Optional.of(ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)))));
+        assertNull(ProbeStamp.read(Optional.of(ByteBuffer.allocate(ProbeStamp.HEADER_LENGTH))));
+        assertNull(ProbeStamp.parse("1:2"));
+        assertNull(ProbeStamp.parse("x:2:3"));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.probe;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProbeStatisticsTest {
+
+    private static final long SEND_TIME = 1_600_000_000_000_000L;
+
+    private ByteArrayOutputStream output;
+    private ProbeStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        output = new ByteArrayOutputStream();
+        // the periodic report is not reached during a test, reports are triggered explicitly
+        statistics = new ProbeStatistics(new PrintStream(output, true), TimeUnit.HOURS.toMillis(1), 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.close();
+    }
+
+    @Test
+    void report_latency_loss_and_reordering() {
+        statistics.record(new ProbeStamp(1, 0, SEND_TIME), SEND_TIME + 2_000);
+        statistics.record(new ProbeStamp(1, 2, SEND_TIME), SEND_TIME + 2_000);
+        statistics.record(new ProbeStamp(1, 1, SEND_TIME), SEND_TIME + 2_000);
+        statistics.record(new ProbeStamp(1, 4, SEND_TIME), SEND_TIME + 2_000);
+        statistics.record(new ProbeStamp(2, 10, SEND_TIME), SEND_TIME + 2_000);
+
+        statistics.report();
+
+        final String report = output.toString();
+        assertTrue(report.contains(" 5 probes, latency (ms): p50=2.000 p99=2.000 p99.9=2.000 max=2.000, lost: 1 of 6 (16.67%), reordered: 1"), report);
+    }
+
+    @Test
+    void clock_offset_corrects_latency() {
+        statistics.close();
+        output.reset();
+        statistics = new ProbeStatistics(new PrintStream(output, true), TimeUnit.HOURS.toMillis(1), 1.5);
+
+        statistics.record(new ProbeStamp(1, 0, SEND_TIME), SEND_TIME - 1_000);
+        statistics.close();
+
+        final String summary = output.toString();
+        assertTrue(summary.startsWith("Received 1 probes from 1 streams, latency (ms): p50=0.500 "), summary);
+        assertFalse(summary.contains("negative"), summary);
+    }
+
+    @Test
+    void close_reports_unstamped_and_negative_latencies() {
+        statistics.record(null);
+        statistics.record(new ProbeStamp(1, 0, SEND_TIME), SEND_TIME - 1_000);
+
+        statistics.close();
+
+        final String summary = output.toString();
+        assertTrue(summary.contains("1 publishes were not stamped"), summary);
+        assertTrue(summary.contains("1 latencies were negative"), summary);
+    }
+}
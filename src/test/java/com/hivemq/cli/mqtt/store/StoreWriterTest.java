@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.mqtt.store;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StoreWriterTest {
+
+    private File directory;
+    private TestClock clock;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("store").toFile();
+        clock = new TestClock();
+    }
+
+    @AfterEach
+    void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    void query_by_topic_filter() throws Exception {
+        try (final StoreWriter writer = new StoreWriter(directory, StoreWriter.MAX_SEGMENT_SIZE, clock)) {
+            writer.write("a/b/c", payload("1"), MqttQos.AT_MOST_ONCE, false);
+            writer.write("a/b/d", payload("2"), MqttQos.AT_LEAST_ONCE, false);
+            writer.write("a/x/c", payload("3"), MqttQos.EXACTLY_ONCE, true);
+        }
+
+        final List<StoredPublish> publishes = query(Collections.singletonList("a/+/c"), Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(2, publishes.size());
+        assertEquals("a/b/c", publishes.get(0).getTopic());
+        assertEquals(MqttQos.AT_MOST_ONCE, publishes.get(0).getQos());
+        assertFalse(publishes.get(0).isRetain());
+        assertArrayEquals("1".getBytes(StandardCharsets.UTF_8), publishes.get(0).getPayload());
+        assertEquals("a/x/c", publishes.get(1).getTopic());
+        assertEquals(MqttQos.EXACTLY_ONCE, publishes.get(1).getQos());
+        assertTrue(publishes.get(1).isRetain());
+        assertEquals(3, query(Collections.emptyList(), Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void query_by_time_range() throws Exception {
+        try (final StoreWriter writer = new StoreWriter(directory, StoreWriter.MAX_SEGMENT_SIZE, clock)) {
+            // many index entries, so the query starts in the middle of the segment
+            for (int i = 0; i < 2000; i++) {
+                clock.millis = 1000 + i;
+                writer.write("topic", payload(String.format("%0100d", i)), MqttQos.AT_MOST_ONCE, false);
+            }
+        }
+
+        final List<StoredPublish> publishes = query(Collections.emptyList(), 2500, 2509);
+
+        assertEquals(10, publishes.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2500 + i, publishes.get(i).getReceivedAtMillis());
+        }
+        assertEquals(1, query(Collections.emptyList(), Long.MIN_VALUE, 1000).size());
+        assertEquals(0, query(Collections.emptyList(), 3000, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void receive_times_never_decrease() throws Exception {
+        try (final StoreWriter writer = new StoreWriter(directory, StoreWriter.MAX_SEGMENT_SIZE, clock)) {
+            clock.millis = 2000;
+            writer.write("topic", payload("1"), MqttQos.AT_MOST_ONCE, false);
+            clock.millis = 1000;
+            writer.write("topic", payload("2"), MqttQos.AT_MOST_ONCE, false);
+        }
+
+        final List<StoredPublish> publishes = query(Collections.emptyList(), Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(2000, publishes.get(0).getReceivedAtMillis());
+        assertEquals(2000, publishes.get(1).getReceivedAtMillis());
+    }
+
+    @Test
+    void segments_are_skipped_by_their_summary() throws Exception {
+        // 5 records of 117 bytes fit into the first segment
+        try (final StoreWriter writer = new StoreWriter(directory, 600, clock)) {
+            for (int i = 0; i < 10; i++) {
+                clock.millis = 1000 + i;
+                writer.write(i < 5 ? "a" : "b", payload(String.format("%0100d", i)), MqttQos.AT_MOST_ONCE, false);
+            }
+        }
+
+        final StoreQuery byTopic = new StoreQuery(directory, Collections.singletonList("b"), Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(5, count(byTopic));
+        assertEquals(2, byTopic.getSegmentCount());
+        assertEquals(1, byTopic.getReadSegments());
+
+        final StoreQuery byTime = new StoreQuery(directory, Collections.emptyList(), Long.MIN_VALUE, 1002);
+        assertEquals(3, count(byTime));
+        assertEquals(1, byTime.getReadSegments());
+    }
+
+    @Test
+    void reopened_store_continues_with_next_segment() throws Exception {
+        try (final StoreWriter writer = new StoreWriter(directory, StoreWriter.MAX_SEGMENT_SIZE, clock)) {
+            writer.write("a", payload("1"), MqttQos.AT_MOST_ONCE, false);
+        }
+        // a topic which was only partially written is removed
+        Files.write(new File(directory, TopicDictionary.FILE_NAME).toPath(), new byte[]{0, 5, 'x'}, StandardOpenOption.APPEND);
+        try (final StoreWriter writer = new StoreWriter(directory, StoreWriter.MAX_SEGMENT_SIZE, clock)) {
+            writer.write("b", payload("2"), MqttQos.AT_MOST_ONCE, false);
+            writer.write("a", payload("3"), MqttQos.AT_MOST_ONCE, false);
+        }
+
+        final List<StoredPublish> publishes = query(Collections.emptyList(), Long.MIN_VALUE, Long.MAX_VALUE);
+
+        assertEquals(Arrays.asList("a", "b", "a"), topics(publishes));
+        assertEquals(2, StoreWriter.listSegments(directory).size());
+        assertEquals(2, TopicDictionary.read(directory).size());
+    }
+
+    @Test
+    void unsealed_segment_is_read_up_to_last_complete_record() throws Exception {
+        final StoreWriter writer = new StoreWriter(directory, StoreWriter.MAX_SEGMENT_SIZE, clock);
+        try {
+            writer.write("a", payload("1"), MqttQos.AT_MOST_ONCE, false);
+            writer.write("a", payload("2"), MqttQos.AT_MOST_ONCE, false);
+            writer.flush();
+            try (final FileChannel segment = FileChannel.open(
+                    StoreWriter.getFile(directory, 1, StoreWriter.SEGMENT_SUFFIX).toPath(), StandardOpenOption.WRITE)) {
+                segment.truncate(segment.size() - 1);
+            }
+
+            final List<StoredPublish> publishes = query(Collections.emptyList(), Long.MIN_VALUE, Long.MAX_VALUE);
+
+            assertEquals(1, publishes.size());
+            assertArrayEquals("1".getBytes(StandardCharsets.UTF_8), publishes.get(0).getPayload());
+            assertThrows(IOException.class, () -> new StoreWriter(directory, StoreWriter.MAX_SEGMENT_SIZE, clock));
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    void invalid_topic_filter() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new StoreQuery(directory, Collections.singletonList(""), Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    private @NotNull List<StoredPublish> query(
+            final @NotNull List<String> topicFilters, final long fromMillis, final long toMillis) throws IOException {
+
+        final StoreQuery query = new StoreQuery(directory, topicFilters, fromMillis, toMillis);
+        final List<StoredPublish> publishes = new ArrayList<>();
+        StoredPublish publish;
+        while ((publish = query.next()) != null) {
+            publishes.add(publish);
+        }
+        return publishes;
+    }
+
+    private static int count(final @NotNull StoreQuery query) throws IOException {
+        int count = 0;
+        while (query.next() != null) {
+            count++;
+        }
+        return count;
+    }
+
+    private static @NotNull List<String> topics(final @NotNull List<StoredPublish> publishes) {
+        final List<String> topics = new ArrayList<>();
+        for (final StoredPublish publish : publishes) {
+            topics.add(publish.getTopic());
+        }
+        return topics;
+    }
+
+    private static @NotNull ByteBuffer payload(final @NotNull String payload) {
+        return ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class TestClock extends Clock {
+
+        private long millis = 1000;
+
+        @Override
+        public @NotNull ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public @NotNull Clock withZone(final @Nullable ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public @NotNull Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
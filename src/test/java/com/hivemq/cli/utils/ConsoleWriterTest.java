@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsoleWriterTest {
+
+    private static final String NL = System.lineSeparator();
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(bytes, false);
+
+    @Test
+    void lines_are_buffered_until_close() throws Exception {
+        final ConsoleWriter writer = new ConsoleWriter(out, 4, 1024, 60_000);
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            writer.write("message-" + i);
+            expected.append("message-").append(i).append(NL);
+        }
+        Thread.sleep(50);
+        assertEquals("", output());
+
+        writer.close();
+        assertEquals(expected.toString(), output());
+    }
+
+    @Test
+    void lines_are_written_after_flush_interval() throws Exception {
+        final ConsoleWriter writer = new ConsoleWriter(out, 4, 1024, 10);
+        writer.write("first");
+
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (output().isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Lines were not flushed in time");
+            Thread.sleep(5);
+        }
+        assertEquals("first" + NL, output());
+        writer.close();
+    }
+
+    @Test
+    void full_batch_is_written_before_interval() throws Exception {
+        final ConsoleWriter writer = new ConsoleWriter(out, 4, 16, 60_000);
+        writer.write("0123456789");
+        writer.write("0123456789");
+
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (output().isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Full batch was not written");
+            Thread.sleep(5);
+        }
+        assertEquals("0123456789" + NL, output());
+        writer.close();
+        assertEquals("0123456789" + NL + "0123456789" + NL, output());
+    }
+
+    private String output() {
+        synchronized (out) {
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DatasetReaderTest {
+
+    @Test
+    void json_lines_records_with_fields() throws Exception {
+        final DatasetReader reader = reader("{\"temp\":{\"x\":[1,2]},\"device\":\"s1\"}\n\n{\"device\":7,\"temp\":true}\n",
+                DatasetReader.Format.jsonl, "device", "temp");
+
+        assertEquals("{\"temp\":{\"x\":[1,2]},\"device\":\"s1\"}", asString(reader.next()));
+        assertEquals("s1", reader.getValue(0));
+        assertNull(reader.getValue(1));
+        assertEquals("{\"device\":7,\"temp\":true}", asString(reader.next()));
+        assertEquals("7", reader.getValue(0));
+        assertEquals("true", reader.getValue(1));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void json_lines_malformed_record_lacks_fields() throws Exception {
+        final DatasetReader reader = reader("not json\n{\"device\":null}\n", DatasetReader.Format.jsonl, "device");
+
+        assertEquals("not json", asString(reader.next()));
+        assertNull(reader.getValue(0));
+        assertEquals("{\"device\":null}", asString(reader.next()));
+        assertNull(reader.getValue(0));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void csv_records_as_json_objects() throws Exception {
+        final DatasetReader reader = reader("device,temp,note\r\ns1,21.5,\"a, \"\"b\"\"\nc\"\n\ns2,22,x\n",
+                DatasetReader.Format.csv, "device");
+
+        assertEquals("{\"device\":\"s1\",\"temp\":\"21.5\",\"note\":\"a, \\\"b\\\"\\nc\"}", asString(reader.next()));
+        assertEquals("s1", reader.getValue(0));
+        assertEquals("{\"device\":\"s2\",\"temp\":\"22\",\"note\":\"x\"}", asString(reader.next()));
+        assertEquals("s2", reader.getValue(0));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void csv_missing_column() throws Exception {
+        final DatasetReader reader = reader("device,temp\ns1\n", DatasetReader.Format.csv, "temp", "unknown");
+
+        assertEquals("{\"device\":\"s1\"}", asString(reader.next()));
+        assertNull(reader.getValue(0));
+        assertNull(reader.getValue(1));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void csv_header_only() throws Exception {
+        assertNull(reader("device,temp\n", DatasetReader.Format.csv, "device").next());
+    }
+
+    @Test
+    void format_for_file() {
+        assertEquals(DatasetReader.Format.csv, DatasetReader.Format.forFile(new File("data.CSV")));
+        assertEquals(DatasetReader.Format.jsonl, DatasetReader.Format.forFile(new File("data.jsonl")));
+    }
+
+    private static DatasetReader reader(final String input, final DatasetReader.Format format, final String... fields) {
+        return new DatasetReader(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), format, fields);
+    }
+
+    private static String asString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DelimitedRecordReaderTest {
+
+    @Test
+    void line_records() throws Exception {
+        final DelimitedRecordReader reader = reader("first\nsecond\r\n\nthird".getBytes(StandardCharsets.UTF_8), DelimitedRecordReader.Format.line);
+
+        assertEquals("first", asString(reader.next()));
+        assertEquals("second", asString(reader.next()));
+        assertEquals("third", asString(reader.next()));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void line_empty_stream() throws Exception {
+        final DelimitedRecordReader reader = reader("\n\n".getBytes(StandardCharsets.UTF_8), DelimitedRecordReader.Format.line);
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    void length_prefixed_records() throws Exception {
+        final byte[] input = {0, 0, 0, 3, 'a', '\n', 'b', 0, 0, 0, 0, 0, 0, 0, 1, 'c'};
+        final DelimitedRecordReader reader = reader(input, DelimitedRecordReader.Format.length);
+
+        assertEquals("a\nb", asString(reader.next()));
+        assertEquals("", asString(reader.next()));
+        assertEquals("c", asString(reader.next()));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void length_prefixed_truncated_record() {
+        final byte[] input = {0, 0, 0, 5, 'a', 'b'};
+        final DelimitedRecordReader reader = reader(input, DelimitedRecordReader.Format.length);
+
+        assertThrows(EOFException.class, reader::next);
+    }
+
+    @Test
+    void length_prefixed_invalid_length() {
+        final byte[] input = {(byte) 0xFF, 0, 0, 0};
+        final DelimitedRecordReader reader = reader(input, DelimitedRecordReader.Format.length);
+
+        assertThrows(IOException.class, reader::next);
+    }
+
+    private static DelimitedRecordReader reader(final byte[] input, final DelimitedRecordReader.Format format) {
+        return new DelimitedRecordReader(new ByteArrayInputStream(input), format);
+    }
+
+    private static String asString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
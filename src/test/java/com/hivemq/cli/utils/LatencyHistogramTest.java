@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void empty() {
+        final LatencyHistogram histogram = new LatencyHistogram(3_600_000_000L);
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    void small_values_exact() {
+        final LatencyHistogram histogram = new LatencyHistogram(3_600_000_000L);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getValueAtPercentile(50));
+        assertEquals(990, histogram.getValueAtPercentile(99));
+        assertEquals(999, histogram.getValueAtPercentile(99.9));
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getMin());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.0001);
+    }
+
+    @Test
+    void large_values_relative_error() {
+        final LatencyHistogram histogram = new LatencyHistogram(3_600_000_000L);
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        final long p50 = histogram.getValueAtPercentile(50);
+        final long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(Math.abs(p50 - 50_000_000L) <= 50_000_000L / 1000, "p50 was " + p50);
+        assertTrue(Math.abs(p99 - 99_000_000L) <= 99_000_000L / 1000, "p99 was " + p99);
+        assertEquals(100_000_000L, histogram.getMax());
+    }
+
+    @Test
+    void values_above_highest_trackable_value_are_clamped() {
+        final LatencyHistogram histogram = new LatencyHistogram(10_000);
+        histogram.record(1_000_000);
+
+        assertEquals(10_000, histogram.getMax());
+        assertEquals(10_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void highest_trackable_value_too_small() {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(10));
+    }
+}
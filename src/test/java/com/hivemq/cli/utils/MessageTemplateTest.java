@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageTemplateTest {
+
+    @Test
+    void constant_template() {
+        final MessageTemplate template = MessageTemplate.compile("sensors/temp");
+
+        assertTrue(template.isConstant());
+        assertEquals("sensors/temp", render(template, 1, 0));
+        assertEquals("sensors/temp", template.render(new StringBuilder(), 1, 0));
+    }
+
+    @Test
+    void sequence_and_client_index() {
+        final MessageTemplate template = MessageTemplate.compile("{\"seq\":${seq},\"client\":${clientIdx}}");
+
+        assertFalse(template.isConstant());
+        assertEquals("{\"seq\":0,\"client\":3}", render(template, 0, 3));
+        assertEquals("{\"seq\":1234567890123,\"client\":3}", render(template, 1234567890123L, 3));
+        assertEquals("{\"seq\":-42,\"client\":3}", render(template, -42, 3));
+        assertEquals("{\"seq\":" + Long.MIN_VALUE + ",\"client\":3}", render(template, Long.MIN_VALUE, 3));
+    }
+
+    @Test
+    void topic_template() {
+        final MessageTemplate template = MessageTemplate.compile("sensors/${clientIdx}/temp");
+
+        assertEquals("sensors/7/temp", template.render(new StringBuilder(), 1, 7));
+    }
+
+    @Test
+    void schedule_index() {
+        final MessageTemplate template = MessageTemplate.compile("sensors/${schedule}/temp");
+
+        assertEquals("sensors/4999/temp", template.render(new StringBuilder(), 1, 0, 4999));
+        assertEquals("sensors/0/temp", template.render(new StringBuilder(), 1, 0));
+    }
+
+    @Test
+    void variables_only() {
+        final MessageTemplate template = MessageTemplate.compile("${seq}${seq}");
+
+        assertEquals("55", render(template, 5, 0));
+    }
+
+    @Test
+    void time_variables_are_numbers() {
+        final MessageTemplate template = MessageTemplate.compile("${nanoTime} ${timestamp} ${random}");
+
+        assertTrue(render(template, 0, 0).matches("-?\\d+ \\d+ \\d+"));
+    }
+
+    @Test
+    void unknown_variable() {
+        assertThrows(IllegalArgumentException.class, () -> MessageTemplate.compile("${unknown}"));
+    }
+
+    @Test
+    void unterminated_variable() {
+        assertThrows(IllegalArgumentException.class, () -> MessageTemplate.compile("value ${seq"));
+    }
+
+    private static String render(final MessageTemplate template, final long sequenceNumber, final int clientIndex) {
+        final ByteBuffer buffer = ByteBuffer.allocate(template.getMaxLength());
+        template.render(buffer, sequenceNumber, clientIndex);
+        buffer.flip();
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
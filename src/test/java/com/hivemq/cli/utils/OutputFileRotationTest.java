@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputFileRotationTest {
+
+    private File directory;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("rotation").toFile();
+        file = new File(directory, "out.txt");
+    }
+
+    @AfterEach
+    void tearDown() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    void rotation_is_due_on_size_or_age() {
+        final OutputFileRotation rotation = new OutputFileRotation(100, 1_000, 0);
+        assertFalse(rotation.isDue(0, 200, 2_000));
+        assertFalse(rotation.isDue(50, 50, 999));
+        assertTrue(rotation.isDue(50, 51, 0));
+        assertTrue(rotation.isDue(1, 0, 1_000));
+        assertFalse(new OutputFileRotation(0, 1_000, 0).isDue(1_000_000, 1_000_000, 999));
+        assertFalse(new OutputFileRotation(100, 0, 0).isDue(1, 1, Long.MAX_VALUE));
+    }
+
+    @Test
+    void segments_are_ordered_by_timestamp_and_suffix() throws IOException {
+        for (final String name : Arrays.asList(
+                "out.txt.20261018T120000.123.gz",
+                "out.txt.20261018T120000.123-2.gz",
+                "out.txt.20261018T110000.000.gz",
+                "out.txt.20261018T120000.123-1",
+                "out.txt.20261018T130000.000.gz.tmp",
+                "other.txt.20261018T120000.123.gz")) {
+            assertTrue(new File(directory, name).createNewFile());
+        }
+
+        final List<String> names = new ArrayList<>();
+        for (final File segment : OutputFileRotation.getSegments(file)) {
+            names.add(segment.getName());
+        }
+        assertEquals(Arrays.asList(
+                "out.txt.20261018T110000.000.gz",
+                "out.txt.20261018T120000.123.gz",
+                "out.txt.20261018T120000.123-1",
+                "out.txt.20261018T120000.123-2.gz"), names);
+    }
+
+    @Test
+    void writer_rotates_and_compresses_segments() throws Exception {
+        final OutputFileWriter writer = new OutputFileWriter(file, new OutputFileRotation(32, 0, 0), 4, 16, 60_000);
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add("line-0" + i);
+            writer.write("line-0" + i);
+        }
+        writer.close();
+
+        final List<File> segments = OutputFileRotation.getSegments(file);
+        assertEquals(2, segments.size());
+        final List<String> lines = new ArrayList<>();
+        for (final File segment : segments) {
+            assertTrue(segment.getName().endsWith(".gz"));
+            lines.addAll(readCompressed(segment));
+        }
+        lines.addAll(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    void writer_keeps_newest_segments() throws Exception {
+        final OutputFileWriter writer = new OutputFileWriter(file, new OutputFileRotation(8, 0, 2), 4, 8, 60_000);
+        for (int i = 0; i < 6; i++) {
+            writer.write("line-0" + i);
+        }
+        writer.close();
+
+        final List<File> segments = OutputFileRotation.getSegments(file);
+        assertEquals(2, segments.size());
+        assertEquals(Arrays.asList("line-03"), readCompressed(segments.get(0)));
+        assertEquals(Arrays.asList("line-04"), readCompressed(segments.get(1)));
+        assertEquals(Arrays.asList("line-05"), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    private static List<String> readCompressed(final File segment) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segment.toPath())), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
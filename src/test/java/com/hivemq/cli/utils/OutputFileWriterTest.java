@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputFileWriterTest {
+
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = File.createTempFile("output", ".txt");
+        file.delete();
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void close_writes_buffered_lines_in_order() throws Exception {
+        final OutputFileWriter writer = new OutputFileWriter(file, null, 4, 64, 60_000);
+        final List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("message-" + i);
+            writer.write("message-" + i);
+        }
+        writer.close();
+
+        assertEquals(expected, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void lines_larger_than_batch_are_written() throws Exception {
+        final OutputFileWriter writer = new OutputFileWriter(file, null, 4, 8, 60_000);
+        final char[] chars = new char[100];
+        Arrays.fill(chars, 'x');
+        writer.write("a");
+        writer.write(new String(chars));
+        writer.write("b");
+        writer.close();
+
+        assertEquals(Arrays.asList("a", new String(chars), "b"), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void batch_is_flushed_after_interval() throws Exception {
+        final OutputFileWriter writer = new OutputFileWriter(file, null, 4, 1024, 10);
+        writer.write("first");
+
+        awaitLines(file, 1);
+        assertEquals(Arrays.asList("first"), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+        writer.close();
+    }
+
+    @Test
+    void deleted_file_is_re_created() throws Exception {
+        final OutputFileWriter writer = new OutputFileWriter(file, null, 4, 1024, 10);
+        writer.write("before");
+        awaitLines(file, 1);
+
+        assertTrue(file.delete());
+        writer.write("after");
+        writer.close();
+
+        assertEquals(Arrays.asList("after"), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void write_after_close_appends_directly() throws Exception {
+        final OutputFileWriter writer = new OutputFileWriter(file, null, 4, 1024, 60_000);
+        writer.write("queued");
+        writer.close();
+        writer.write("late");
+
+        assertEquals(Arrays.asList("queued", "late"), Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    private static void awaitLines(final File file, final int lines) throws Exception {
+        final long deadline = System.currentTimeMillis() + 5_000;
+        while (!file.exists() || Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size() < lines) {
+            assertTrue(System.currentTimeMillis() < deadline, "Lines were not flushed in time");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PayloadCodecTest {
+
+    private static final byte[] PAYLOAD =
+            "{\"device\":\"sensor-1\",\"temperature\":21.5},{\"device\":\"sensor-1\",\"temperature\":21.5}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    @ParameterizedTest
+    @EnumSource(PayloadCodec.class)
+    void round_trip(final PayloadCodec codec) throws IOException {
+        final ByteBuffer compressed = codec.encode(ByteBuffer.wrap(PAYLOAD));
+
+        assertTrue(compressed.remaining() < PAYLOAD.length);
+        assertArrayEquals(PAYLOAD, codec.decode(compressed.array()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(PayloadCodec.class)
+    void encode_keeps_position_of_read_only_payload(final PayloadCodec codec) throws IOException {
+        final ByteBuffer payload = ByteBuffer.wrap(PAYLOAD).asReadOnlyBuffer();
+
+        final ByteBuffer compressed = codec.encode(payload);
+
+        assertEquals(PAYLOAD.length, payload.remaining());
+        assertArrayEquals(PAYLOAD, codec.decode(compressed.array()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(PayloadCodec.class)
+    void decode_invalid_payload(final PayloadCodec codec) {
+        assertThrows(IOException.class, () -> codec.decode(PAYLOAD));
+    }
+
+    @ParameterizedTest
+    @EnumSource(PayloadCodec.class)
+    void decode_received_payload_above_limit(final PayloadCodec codec) {
+        final ByteBuffer compressed = codec.encode(ByteBuffer.wrap(new byte[PayloadCodec.MIN_DECODED_LIMIT + 1]));
+
+        assertTrue(compressed.remaining() * PayloadCodec.MAX_COMPRESSION_RATIO < PayloadCodec.MIN_DECODED_LIMIT);
+        assertThrows(IOException.class, () -> codec.decodeReceived(compressed.array()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(PayloadCodec.class)
+    void decode_payload_up_to_limit(final PayloadCodec codec) throws IOException {
+        final ByteBuffer compressed = codec.encode(ByteBuffer.wrap(PAYLOAD));
+
+        assertArrayEquals(PAYLOAD, codec.decode(compressed.array(), PAYLOAD.length));
+        assertThrows(IOException.class, () -> codec.decode(compressed.array(), PAYLOAD.length - 1));
+    }
+
+    @Test
+    void decoded_limit() {
+        assertEquals(PayloadCodec.MIN_DECODED_LIMIT, PayloadCodec.getDecodedLimit(10));
+        assertEquals(100 * 1024 * 1024, PayloadCodec.getDecodedLimit(1024 * 1024));
+        assertEquals(PayloadCodec.MAX_DECODED_LIMIT, PayloadCodec.getDecodedLimit(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void for_name() {
+        assertEquals(PayloadCodec.gzip, PayloadCodec.forName("gzip"));
+        assertEquals(PayloadCodec.deflate, PayloadCodec.forName("DEFLATE"));
+        assertNull(PayloadCodec.forName("br"));
+    }
+}
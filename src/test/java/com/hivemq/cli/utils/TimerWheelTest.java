@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    private static final long TICK = 1_000;
+
+    @Test
+    void timers_expire_in_tick_of_deadline() throws Exception {
+        final TimerWheel<NamedTimer> wheel = new TimerWheel<>(0, TICK, 8);
+        final List<String> expired = new ArrayList<>();
+        wheel.schedule(new NamedTimer("a"), 2_500);
+        wheel.schedule(new NamedTimer("b"), 1_000);
+
+        wheel.advance(999, timer -> expired.add(timer.name));
+        assertTrue(expired.isEmpty());
+
+        wheel.advance(1_000, timer -> expired.add(timer.name));
+        assertEquals(1, expired.size());
+        assertEquals("b", expired.get(0));
+
+        // deadlines are rounded up to the next tick, so a timer never expires early
+        wheel.advance(2_999, timer -> expired.add(timer.name));
+        assertEquals(1, expired.size());
+        wheel.advance(3_000, timer -> expired.add(timer.name));
+        assertEquals(2, expired.size());
+        assertEquals("a", expired.get(1));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void timers_beyond_one_round_wait_for_their_round() throws Exception {
+        final TimerWheel<NamedTimer> wheel = new TimerWheel<>(0, TICK, 4);
+        final List<String> expired = new ArrayList<>();
+        wheel.schedule(new NamedTimer("far"), 10 * TICK);
+        wheel.schedule(new NamedTimer("near"), 2 * TICK);
+
+        wheel.advance(9 * TICK, timer -> expired.add(timer.name));
+        assertEquals(1, expired.size());
+        assertEquals("near", expired.get(0));
+
+        wheel.advance(10 * TICK, timer -> expired.add(timer.name));
+        assertEquals(2, expired.size());
+        assertEquals("far", expired.get(1));
+    }
+
+    @Test
+    void rescheduling_relative_to_deadline_does_not_drift() throws Exception {
+        final TimerWheel<NamedTimer> wheel = new TimerWheel<>(0, TICK, 16);
+        final List<Long> deadlines = new ArrayList<>();
+        wheel.schedule(new NamedTimer("periodic"), 0);
+
+        // the wheel is advanced late and in large steps, the deadlines stay on the interval
+        for (long now = 1_700; now <= 20_000; now += 3_700) {
+            wheel.advance(now, timer -> {
+                deadlines.add(timer.getDeadline());
+                if (deadlines.size() < 5) {
+                    wheel.schedule(timer, timer.getDeadline() + 2 * TICK);
+                }
+            });
+        }
+
+        assertEquals(5, deadlines.size());
+        for (int i = 0; i < deadlines.size(); i++) {
+            assertEquals(i * 2 * TICK, (long) deadlines.get(i));
+        }
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void past_deadline_expires_with_next_tick() throws Exception {
+        final TimerWheel<NamedTimer> wheel = new TimerWheel<>(0, TICK, 8);
+        final List<String> expired = new ArrayList<>();
+        wheel.advance(5 * TICK, timer -> expired.add(timer.name));
+        wheel.schedule(new NamedTimer("late"), TICK);
+
+        assertEquals(1, wheel.size());
+        assertEquals(6 * TICK, wheel.getNextTickNanos());
+        wheel.advance(6 * TICK, timer -> expired.add(timer.name));
+        assertEquals(1, expired.size());
+    }
+
+    private static class NamedTimer extends TimerWheel.Timer {
+
+        private final String name;
+
+        NamedTimer(final String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TimestampFormatterTest {
+
+    @Test
+    void formatSeconds_matches_date_format() {
+        final long millis = 1_609_502_400_123L;
+
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(millis)), TimestampFormatter.formatSeconds(millis));
+    }
+
+    @Test
+    void formatSeconds_caches_second() {
+        final String first = TimestampFormatter.formatSeconds(1_609_502_400_001L);
+
+        assertSame(first, TimestampFormatter.formatSeconds(1_609_502_400_999L));
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(1_609_502_401_000L)),
+                TimestampFormatter.formatSeconds(1_609_502_401_000L));
+    }
+
+    @Test
+    void formatMillis_pads_millis() {
+        final long millis = 1_609_502_400_007L;
+
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(millis)), TimestampFormatter.formatMillis(millis));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019-present HiveMQ and the HiveMQ Community
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hivemq.cli.utils.json;
+
+import com.hivemq.client.mqtt.datatypes.MqttQos;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonMqttPublishTest {
+
+    private static final String RECEIVED_AT = "2021-01-01 12:00:00";
+
+    @Test
+    void compact_embeds_json_payload() {
+        final Mqtt5Publish publish = publish("{\"temp\": 21.50, \"tags\": [\"a\", null, true]}");
+
+        assertEquals("{\"topic\":\"sensors/1\",\"payload\":{\"temp\":21.50,\"tags\":[\"a\",null,true]},\"qos\":\"AT_LEAST_ONCE\"," +
+                "\"receivedAt\":\"" + RECEIVED_AT + "\",\"retain\":false}",
+                new JsonMqttPublish(publish, false, RECEIVED_AT).toString(false));
+    }
+
+    @Test
+    void compact_writes_invalid_json_payload_as_string() {
+        final Mqtt5Publish publish = publish("{\"temp\": 21.5} trailing");
+
+        assertEquals("{\"topic\":\"sensors/1\",\"payload\":\"{\\\"temp\\\": 21.5} trailing\",\"qos\":\"AT_LEAST_ONCE\"," +
+                "\"receivedAt\":\"" + RECEIVED_AT + "\",\"retain\":false}",
+                new JsonMqttPublish(publish, false, RECEIVED_AT).toString(false));
+    }
+
+    @Test
+    void compact_writes_base64_payload_as_string() {
+        final Mqtt5Publish publish = publish("42");
+
+        assertTrue(new JsonMqttPublish(publish, true, RECEIVED_AT).toString(false).contains("\"payload\":\"NDI=\""));
+    }
+
+    @Test
+    void compact_writes_user_properties_in_order() {
+        final Mqtt5Publish publish = Mqtt5Publish.builder()
+                .topic("sensors/1")
+                .payload("42".getBytes(StandardCharsets.UTF_8))
+                .contentType("text/plain")
+                .userProperties(Mqtt5UserProperties.builder().add("b", "1").add("a", "2").build())
+                .build();
+
+        assertTrue(new JsonMqttPublish(publish, false, RECEIVED_AT).toString(false)
+                .endsWith("\"retain\":false,\"contentType\":\"text/plain\",\"userProperties\":{\"b\":\"1\",\"a\":\"2\"}}"));
+    }
+
+    @Test
+    void pretty_spans_lines() {
+        final String json = new JsonMqttPublish(publish("{\"temp\": 21.5}"), false, RECEIVED_AT).toString();
+
+        assertTrue(json.startsWith("{\n  \"topic\": \"sensors/1\",\n  \"payload\": {\n    \"temp\": 21.5\n  },"), json);
+    }
+
+    @Test
+    void isJson() {
+        assertTrue(JsonMqttPublish.isJson("{\"a\": [1, 2]}"));
+        assertTrue(JsonMqttPublish.isJson("21.5"));
+        assertTrue(JsonMqttPublish.isJson("\"text\""));
+        assertFalse(JsonMqttPublish.isJson(""));
+        assertFalse(JsonMqttPublish.isJson("text"));
+        assertFalse(JsonMqttPublish.isJson("{\"a\": 1"));
+        assertFalse(JsonMqttPublish.isJson("[1] [2]"));
+    }
+
+    private static Mqtt5Publish publish(final String payload) {
+        return Mqtt5Publish.builder()
+                .topic("sensors/1")
+                .qos(MqttQos.AT_LEAST_ONCE)
+                .payload(payload.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+}